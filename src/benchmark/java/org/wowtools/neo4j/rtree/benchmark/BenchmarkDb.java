@@ -0,0 +1,48 @@
+package org.wowtools.neo4j.rtree.benchmark;
+
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.dbms.api.DatabaseManagementServiceBuilder;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试用的内嵌neo4j库，建在临时目录下，关闭时删除
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class BenchmarkDb implements AutoCloseable {
+
+    private final Path dir;
+    private final DatabaseManagementService managementService;
+    private final GraphDatabaseService graphDb;
+
+    public BenchmarkDb() {
+        try {
+            dir = Files.createTempDirectory("neo4j-rtree-benchmark");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        managementService = new DatabaseManagementServiceBuilder(dir).build();
+        graphDb = managementService.database("neo4j");
+    }
+
+    public GraphDatabaseService getGraphDb() {
+        return graphDb;
+    }
+
+    @Override
+    public void close() {
+        managementService.shutdown();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
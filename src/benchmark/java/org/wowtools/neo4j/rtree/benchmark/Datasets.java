@@ -0,0 +1,138 @@
+package org.wowtools.neo4j.rtree.benchmark;
+
+import org.wowtools.neo4j.rtree.pojo.PointNd;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.Random;
+
+/**
+ * 生成基准测试用的数据，相同参数生成的数据相同
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class Datasets {
+
+    private static final int clusterNum = 50;
+
+    private Datasets() {
+    }
+
+    /**
+     * 生成二维矩形，dataNodeId为其数组下标
+     *
+     * @param distribution 分布
+     * @param size         数量
+     * @param seed         随机种子
+     * @return 矩形
+     */
+    public static RectNd[] rects(Distribution distribution, int size, long seed) {
+        Random r = new Random(seed);
+        double[][] clusters = clusters(r);
+        RectNd[] rects = new RectNd[size];
+        for (int i = 0; i < size; i++) {
+            RectNd rect;
+            switch (distribution) {
+                case UNIFORM:
+                    rect = box(r.nextDouble(), r.nextDouble(), r.nextDouble() * 0.001, r.nextDouble() * 0.001);
+                    break;
+                case CLUSTERED: {
+                    double[] c = clusters[r.nextInt(clusterNum)];
+                    rect = box(gaussian(r, c[0], 0.02), gaussian(r, c[1], 0.02), r.nextDouble() * 0.001, r.nextDouble() * 0.001);
+                    break;
+                }
+                case OSM_LIKE: {
+                    //簇的选中概率约按1/(k+1)递减
+                    int k = (int) Math.floor(Math.pow(clusterNum + 1, r.nextDouble())) - 1;
+                    double[] c = clusters[Math.min(k, clusterNum - 1)];
+                    double sigma = 0.002 + 0.03 / (k + 1);
+                    double x = gaussian(r, c[0], sigma), y = gaussian(r, c[1], sigma);
+                    double kind = r.nextDouble();
+                    if (kind < 0.7) {
+                        rect = box(x, y, 0, 0);
+                    } else if (kind < 0.95) {
+                        rect = box(x, y, r.nextDouble() * 0.0005, r.nextDouble() * 0.0005);
+                    } else if (r.nextBoolean()) {
+                        rect = box(x, y, r.nextDouble() * 0.05, r.nextDouble() * 0.001);
+                    } else {
+                        rect = box(x, y, r.nextDouble() * 0.01, r.nextDouble() * 0.01);
+                    }
+                    break;
+                }
+                default:
+                    throw new RuntimeException("未知的分布 " + distribution);
+            }
+            rect.setDataNodeId(String.valueOf(i));
+            rects[i] = rect;
+        }
+        return rects;
+    }
+
+    /**
+     * 生成查询矩形，中心点取自数据，使查询落在有数据的区域
+     *
+     * @param data        数据
+     * @param num         数量
+     * @param selectivity 查询矩形面积占数据范围面积的比例
+     * @param seed        随机种子
+     * @return 查询矩形
+     */
+    public static RectNd[] queries(RectNd[] data, int num, double selectivity, long seed) {
+        Random r = new Random(seed);
+        double half = Math.sqrt(selectivity) / 2;
+        RectNd[] queries = new RectNd[num];
+        for (int i = 0; i < num; i++) {
+            double[] c = data[r.nextInt(data.length)].getMinXs();
+            queries[i] = new RectNd(new PointNd(new double[]{c[0] - half, c[1] - half}), new PointNd(new double[]{c[0] + half, c[1] + half}));
+        }
+        return queries;
+    }
+
+    /**
+     * 生成查询点，取自数据附近
+     *
+     * @param data 数据
+     * @param num  数量
+     * @param seed 随机种子
+     * @return 查询点
+     */
+    public static PointNd[] points(RectNd[] data, int num, long seed) {
+        Random r = new Random(seed);
+        PointNd[] points = new PointNd[num];
+        for (int i = 0; i < num; i++) {
+            double[] c = data[r.nextInt(data.length)].getMinXs();
+            points[i] = new PointNd(new double[]{c[0] + (r.nextDouble() - 0.5) * 0.01, c[1] + (r.nextDouble() - 0.5) * 0.01});
+        }
+        return points;
+    }
+
+    /**
+     * 把fanout参数解析为mMin、mMax
+     *
+     * @param fanout 格式为 mMin:mMax ，如 8:32
+     * @return [mMin, mMax]
+     */
+    public static int[] fanout(String fanout) {
+        String[] strs = fanout.split(":");
+        if (strs.length != 2) {
+            throw new RuntimeException("fanout格式应为 mMin:mMax ，实际为 " + fanout);
+        }
+        return new int[]{Integer.parseInt(strs[0]), Integer.parseInt(strs[1])};
+    }
+
+    private static double[][] clusters(Random r) {
+        double[][] clusters = new double[clusterNum][];
+        for (int i = 0; i < clusterNum; i++) {
+            clusters[i] = new double[]{0.05 + r.nextDouble() * 0.9, 0.05 + r.nextDouble() * 0.9};
+        }
+        return clusters;
+    }
+
+    private static double gaussian(Random r, double mean, double sigma) {
+        return Math.min(1, Math.max(0, mean + r.nextGaussian() * sigma));
+    }
+
+    private static RectNd box(double x, double y, double w, double h) {
+        return new RectNd(new PointNd(new double[]{x, y}), new PointNd(new double[]{Math.min(1, x + w), Math.min(1, y + h)}));
+    }
+}
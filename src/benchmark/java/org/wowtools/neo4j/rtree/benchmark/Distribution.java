@@ -0,0 +1,23 @@
+package org.wowtools.neo4j.rtree.benchmark;
+
+/**
+ * 测试数据的空间分布，坐标范围均为[0,1]
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public enum Distribution {
+    /**
+     * 均匀分布的小矩形
+     */
+    UNIFORM,
+    /**
+     * 高斯分布在若干个簇中的小矩形
+     */
+    CLUSTERED,
+    /**
+     * 模拟osm数据：簇的规模呈幂律分布(少数大城市、大量小村镇)，
+     * 大部分是点(poi)，其次是小矩形(建筑)，少量是细长或较大的矩形(道路、区域)
+     */
+    OSM_LIKE
+}
@@ -0,0 +1,138 @@
+package org.wowtools.neo4j.rtree.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.neo4j.rtree.RtreeEditor;
+import org.wowtools.neo4j.rtree.pojo.PointNd;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RtreeEditor add/remove/update 基准测试。
+ * 每次调用在一个编辑器内连续编辑batch条数据并提交，计时按条折算；每轮前后恢复索引内容，使各轮测量的索引规模一致
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EditorBenchmark {
+
+    public static final int batch = 1000;
+
+    private static RectNd[] batchData(IndexState state, int iteration, long seed) {
+        RectNd[] src = Datasets.rects(state.distribution, batch, seed + iteration);
+        RectNd[] res = new RectNd[batch];
+        for (int i = 0; i < batch; i++) {
+            RectNd rectNd = new RectNd(src[i].getMin(), src[i].getMax());
+            rectNd.setDataNodeId("b" + (state.size + i));
+            res[i] = rectNd;
+        }
+        return res;
+    }
+
+    private static void add(IndexState state, RectNd[] rectNds) {
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(state.db.getGraphDb(), IndexState.commitLimit, IndexState.indexName)) {
+            for (RectNd rectNd : rectNds) {
+                rtreeEditor.add(rectNd);
+            }
+        }
+    }
+
+    private static void remove(IndexState state, RectNd[] rectNds) {
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(state.db.getGraphDb(), IndexState.commitLimit, IndexState.indexName)) {
+            for (RectNd rectNd : rectNds) {
+                rtreeEditor.remove(rectNd);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class AddState extends IndexState {
+        private int iteration;
+        RectNd[] rectNds;
+
+        @Setup(Level.Iteration)
+        public void before() {
+            rectNds = batchData(this, iteration++, 1);
+        }
+
+        @TearDown(Level.Iteration)
+        public void after() {
+            remove(this, rectNds);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RemoveState extends IndexState {
+        private int iteration;
+        RectNd[] rectNds;
+
+        @Setup(Level.Iteration)
+        public void before() {
+            rectNds = batchData(this, iteration++, 2);
+            add(this, rectNds);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UpdateState extends IndexState {
+        private int iteration;
+        RectNd[] olds;
+        RectNd[] news;
+
+        @Setup(Level.Iteration)
+        public void before() {
+            //把已有数据随机挪动一小段距离，下一轮从挪动后的位置继续挪动；同一条数据被选中多次时按顺序依次挪动
+            Random r = new Random(iteration++);
+            olds = new RectNd[batch];
+            news = new RectNd[batch];
+            for (int i = 0; i < batch; i++) {
+                int idx = r.nextInt(size);
+                RectNd old = data[idx];
+                double dx = (r.nextDouble() - 0.5) * 0.01, dy = (r.nextDouble() - 0.5) * 0.01;
+                double[] min = old.getMinXs(), max = old.getMaxXs();
+                RectNd moved = new RectNd(new PointNd(new double[]{min[0] + dx, min[1] + dy}), new PointNd(new double[]{max[0] + dx, max[1] + dy}));
+                moved.setDataNodeId(old.getDataNodeId());
+                olds[i] = old;
+                news[i] = moved;
+                data[idx] = moved;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(batch)
+    public void add(AddState state) {
+        add(state, state.rectNds);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(batch)
+    public void addAll(AddState state) {
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(state.db.getGraphDb(), IndexState.commitLimit, IndexState.indexName)) {
+            rtreeEditor.addAll(Arrays.asList(state.rectNds));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(batch)
+    public void remove(RemoveState state) {
+        remove(state, state.rectNds);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(batch)
+    public void update(UpdateState state) {
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(state.db.getGraphDb(), IndexState.commitLimit, IndexState.indexName)) {
+            for (int i = 0; i < batch; i++) {
+                rtreeEditor.update(state.olds[i], state.news[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.wowtools.neo4j.rtree.benchmark;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKBWriter;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.neo4j.rtree.geometry2d.Geometry2dRtreeEditor;
+import org.wowtools.neo4j.rtree.geometry2d.Geometry2dRtreeIntersectsSearcher;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geometry2dRtreeIntersectsSearcher.intersects 基准测试，数据和查询条件均为多边形，每次调用开启一个事务执行一次查询
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class Geometry2dIntersectsBenchmark {
+
+    private static final String indexName = "benchmark";
+    private static final String geometryName = "geo";
+    private static final int queryNum = 1024;
+
+    /**
+     * 节点扇出 mMin:mMax
+     */
+    @Param({"2:8", "8:32", "16:64"})
+    public String fanout;
+
+    /**
+     * 数据量
+     */
+    @Param({"100000"})
+    public int size;
+
+    /**
+     * 数据分布
+     */
+    @Param({"UNIFORM", "CLUSTERED", "OSM_LIKE"})
+    public Distribution distribution;
+
+    /**
+     * 查询范围面积占数据范围面积的比例
+     */
+    @Param({"0.0001", "0.001", "0.01"})
+    public double selectivity;
+
+    private BenchmarkDb db;
+    private Geometry[] queries;
+    private int queryIndex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        db = new BenchmarkDb();
+        GeometryFactory geometryFactory = new GeometryFactory();
+        WKBWriter wkbWriter = new WKBWriter();
+        RectNd[] data = Datasets.rects(distribution, size, 233);
+        int[] m = Datasets.fanout(fanout);
+        //数据为以矩形中心为圆心的多边形，点数据给一个很小的半径
+        List<String> dataNodeIds = new ArrayList<>(size);
+        try (Transaction tx = db.getGraphDb().beginTx()) {
+            for (RectNd rectNd : data) {
+                double[] min = rectNd.getMinXs(), max = rectNd.getMaxXs();
+                Coordinate center = new Coordinate((min[0] + max[0]) / 2, (min[1] + max[1]) / 2);
+                double radius = Math.max(Math.max(max[0] - min[0], max[1] - min[1]) / 2, 0.00005);
+                Geometry geometry = geometryFactory.createPoint(center).buffer(radius, 4);
+                Node dataNode = tx.createNode();
+                dataNode.setProperty(geometryName, wkbWriter.write(geometry));
+                dataNodeIds.add(dataNode.getElementId());
+            }
+            tx.commit();
+        }
+        try (Geometry2dRtreeEditor rtreeEditor = Geometry2dRtreeEditor.create(db.getGraphDb(), IndexState.commitLimit, indexName, m[0], m[1], geometryName)) {
+            for (String dataNodeId : dataNodeIds) {
+                rtreeEditor.add(dataNodeId);
+            }
+        }
+        //查询条件为以查询矩形中心为圆心、面积相同的多边形
+        RectNd[] queryRects = Datasets.queries(data, queryNum, selectivity, 1);
+        queries = new Geometry[queryNum];
+        double radius = Math.sqrt(selectivity / Math.PI);
+        for (int i = 0; i < queryNum; i++) {
+            double[] min = queryRects[i].getMinXs(), max = queryRects[i].getMaxXs();
+            Coordinate center = new Coordinate((min[0] + max[0]) / 2, (min[1] + max[1]) / 2);
+            queries[i] = geometryFactory.createPoint(center).buffer(radius, 8);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+    }
+
+    @Benchmark
+    public int intersects() {
+        Geometry query = queries[queryIndex++ & (queryNum - 1)];
+        int[] num = new int[1];
+        try (Transaction tx = db.getGraphDb().beginTx()) {
+            Geometry2dRtreeIntersectsSearcher searcher = Geometry2dRtreeIntersectsSearcher.get(tx, indexName);
+            searcher.intersects(query, tx, (nodeId, geometry) -> {
+                num[0]++;
+                return false;
+            });
+        }
+        return num[0];
+    }
+}
@@ -0,0 +1,76 @@
+package org.wowtools.neo4j.rtree.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wowtools.neo4j.rtree.RtreeEditor;
+import org.wowtools.neo4j.rtree.RtreeSplit;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.Arrays;
+
+/**
+ * 基准测试公共状态：建库、生成数据、构建索引
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public abstract class IndexState {
+
+    public static final String indexName = "benchmark";
+
+    public static final int commitLimit = 2000;
+
+    /**
+     * 节点扇出 mMin:mMax
+     */
+    @Param({"2:8", "8:32", "16:64"})
+    public String fanout;
+
+    /**
+     * 数据量
+     */
+    @Param({"100000"})
+    public int size;
+
+    /**
+     * 数据分布
+     */
+    @Param({"UNIFORM", "CLUSTERED", "OSM_LIKE"})
+    public Distribution distribution;
+
+    /**
+     * 构建索引的方式，add逐条添加，rstar以R*策略逐条添加，bulk批量构建
+     */
+    @Param({"add"})
+    public String build;
+
+    protected BenchmarkDb db;
+
+    protected RectNd[] data;
+
+    @Setup(Level.Trial)
+    public void setupIndex() {
+        db = new BenchmarkDb();
+        data = Datasets.rects(distribution, size, 233);
+        int[] m = Datasets.fanout(fanout);
+        RtreeSplit split = "rstar".equals(build) ? RtreeSplit.RSTAR : RtreeSplit.AXIAL;
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(db.getGraphDb(), commitLimit, indexName, m[0], m[1], split)) {
+            if ("bulk".equals(build)) {
+                rtreeEditor.bulkLoad(Arrays.asList(data).iterator());
+            } else if ("add".equals(build) || "rstar".equals(build)) {
+                for (RectNd rectNd : data) {
+                    rtreeEditor.add(rectNd);
+                }
+            } else {
+                throw new RuntimeException("未知的构建方式 " + build);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownIndex() {
+        db.close();
+    }
+}
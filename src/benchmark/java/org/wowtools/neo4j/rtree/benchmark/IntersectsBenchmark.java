@@ -0,0 +1,85 @@
+package org.wowtools.neo4j.rtree.benchmark;
+
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.neo4j.rtree.RtreeIntersectsSearcher;
+import org.wowtools.neo4j.rtree.RtreeKernelIntersectsSearcher;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RtreeIntersectsSearcher、RtreeKernelIntersectsSearcher 相交查询基准测试，每次调用执行一次查询
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IntersectsBenchmark extends IndexState {
+
+    private static final int queryNum = 1024;
+
+    /**
+     * 查询范围面积占数据范围面积的比例
+     */
+    @Param({"0.00001", "0.0001", "0.001", "0.01"})
+    public double selectivity;
+
+    private RectNd[] queries;
+    private int queryIndex;
+
+    @Setup(Level.Trial)
+    public void setupQueries() {
+        queries = Datasets.queries(data, queryNum, selectivity, 1);
+    }
+
+    @Benchmark
+    public int intersects() {
+        RectNd query = queries[queryIndex++ & (queryNum - 1)];
+        int[] num = new int[1];
+        try (Transaction tx = db.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher searcher = RtreeIntersectsSearcher.get(tx, indexName);
+            searcher.intersects(query, tx, nodeId -> {
+                num[0]++;
+                return false;
+            });
+        }
+        return num[0];
+    }
+
+    @Benchmark
+    public int kernelIntersects() {
+        RectNd query = queries[queryIndex++ & (queryNum - 1)];
+        int[] num = new int[1];
+        try (Transaction tx = db.getGraphDb().beginTx()) {
+            RtreeKernelIntersectsSearcher searcher = RtreeKernelIntersectsSearcher.get(tx, indexName);
+            searcher.intersects(query, tx, nodeId -> {
+                num[0]++;
+                return false;
+            });
+        }
+        return num[0];
+    }
+
+    @Benchmark
+    public int parallelIntersects() {
+        RectNd query = queries[queryIndex++ & (queryNum - 1)];
+        AtomicInteger num = new AtomicInteger();
+        RtreeIntersectsSearcher searcher;
+        try (Transaction tx = db.getGraphDb().beginTx()) {
+            searcher = RtreeIntersectsSearcher.get(tx, indexName);
+        }
+        searcher.parallelIntersects(query, db.getGraphDb(), ForkJoinPool.commonPool(), nodeId -> {
+            num.incrementAndGet();
+            return false;
+        });
+        return num.get();
+    }
+}
@@ -0,0 +1,63 @@
+package org.wowtools.neo4j.rtree.benchmark;
+
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.neo4j.rtree.RtreeNearestSearcher;
+import org.wowtools.neo4j.rtree.pojo.PointNd;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+import org.wowtools.neo4j.rtree.util.DistanceResult;
+import org.wowtools.neo4j.rtree.util.NearestNeighbour;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RtreeNearestSearcher.nearest 基准测试，每次调用开启一个事务执行一次查询
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NearestBenchmark extends IndexState {
+
+    private static final int queryNum = 1024;
+
+    /**
+     * 返回的最近邻个数
+     */
+    @Param({"1", "10", "100"})
+    public int k;
+
+    private PointNd[] queries;
+    private int queryIndex;
+
+    @Setup(Level.Trial)
+    public void setupQueries() {
+        queries = Datasets.points(data, queryNum, 1);
+    }
+
+    @Benchmark
+    public List<DistanceResult> nearest() {
+        PointNd query = queries[queryIndex++ & (queryNum - 1)];
+        double[] xy = query.getXs();
+        NearestNeighbour<DistanceResult> nearestNeighbour = new NearestNeighbour<>(k, query) {
+            @Override
+            public DistanceResult createDistanceResult(PointNd pointNd, String dataNodeId) {
+                RectNd rectNd = data[Integer.parseInt(dataNodeId)];
+                double[] min = rectNd.getMinXs(), max = rectNd.getMaxXs();
+                double dx = Math.max(0, Math.max(min[0] - xy[0], xy[0] - max[0]));
+                double dy = Math.max(0, Math.max(min[1] - xy[1], xy[1] - max[1]));
+                return new DistanceResult(Math.sqrt(dx * dx + dy * dy), dataNodeId);
+            }
+        };
+        try (Transaction tx = db.getGraphDb().beginTx()) {
+            RtreeNearestSearcher searcher = RtreeNearestSearcher.get(tx, indexName);
+            return searcher.nearest(nearestNeighbour, tx);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package org.wowtools.neo4j.rtree;
+
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.edit.GraphDbTxBuilder;
+import org.wowtools.neo4j.rtree.internal.edit.HilbertOrder;
+import org.wowtools.neo4j.rtree.internal.edit.TxBuilder;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 异步rtree编辑器，多个线程可同时提交add、remove、update操作，操作进入一个有界队列后立即返回CompletableFuture，
+ * 由一个专门的写线程按批次取出操作，在一个RtreeEditor会话中写入并提交，提交后完成对应的CompletableFuture。
+ * <p>
+ * 写锁只在写入一个批次期间持有，队列满时提交操作的线程阻塞等待，以此代替对写锁的竞争。
+ * 同一批次中同一dataNodeId的多个操作会先合并(例如先add后remove则两者都不执行，先remove后add仍依次执行)，
+ * 合并后按希尔伯特曲线排序再写入，所以同一dataNodeId在索引中应只有一个元素；合并后没有需要执行的操作时不打开编辑器。
+ * 写入失败时批次中全部操作的CompletableFuture异常完成，此时批次中的部分操作可能已被提交。
+ * <p>
+ * 使用结束时务必调用close方法
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@Slf4j
+public class RtreeAsyncEditor implements AutoCloseable {
+
+    private static final Op stop = new Op(null, null, null);
+
+    private final TxBuilder txBuilder;
+    private final int commitLimit;
+    private final String name;
+    private final BlockingQueue<Op> queue;
+    private final Thread writer;
+    /**
+     * 提交操作时加读锁，关闭时加写锁，保证关闭后不会再有操作进入队列
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private RtreeAsyncEditor(TxBuilder txBuilder, int commitLimit, String name, int queueCapacity) {
+        this.txBuilder = txBuilder;
+        this.commitLimit = commitLimit;
+        this.name = name;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writer = new Thread(this::run, "RtreeAsyncEditor-" + name);
+        writer.setDaemon(true);
+    }
+
+    /**
+     * 获取RtreeAsyncEditor，索引须已存在
+     *
+     * @param txBuilder     neo4j 事务构建接口
+     * @param commitLimit   操作达到多少个顶点时执行提交操作，同时也是每个批次的最大操作数
+     * @param name          索引名
+     * @param queueCapacity 队列容量，队列满时提交操作的线程阻塞
+     * @return RtreeAsyncEditor
+     */
+    public static RtreeAsyncEditor get(TxBuilder txBuilder, int commitLimit, String name, int queueCapacity) {
+        //用读事务检查索引是否存在，不打开编辑器，避免产生空的提交
+        try (Transaction tx = txBuilder.beginTx()) {
+            if (null == tx.findNode(Labels.METADATA, "name", name)) {
+                throw new RuntimeException("索引 " + name + " 不存在");
+            }
+        }
+        RtreeAsyncEditor editor = new RtreeAsyncEditor(txBuilder, commitLimit, name, queueCapacity);
+        editor.writer.start();
+        return editor;
+    }
+
+    /**
+     * 获取RtreeAsyncEditor，索引须已存在
+     *
+     * @param graphdb       neo4j db
+     * @param commitLimit   操作达到多少个顶点时执行提交操作，同时也是每个批次的最大操作数
+     * @param name          索引名
+     * @param queueCapacity 队列容量，队列满时提交操作的线程阻塞
+     * @return RtreeAsyncEditor
+     */
+    public static RtreeAsyncEditor get(GraphDatabaseService graphdb, int commitLimit, String name, int queueCapacity) {
+        return get(new GraphDbTxBuilder(graphdb), commitLimit, name, queueCapacity);
+    }
+
+    /**
+     * 向索引中添加数据
+     *
+     * @param t 数据的外接矩形
+     * @return 操作被提交后完成
+     */
+    public CompletableFuture<Void> add(RectNd t) {
+        return enqueue(new Op(null, t, new CompletableFuture<>()));
+    }
+
+    /**
+     * 从索引中移除数据，注意不会删除数据节点
+     *
+     * @param t 被移除的节点，min、max、dataNodeId必须与现有节点一致
+     * @return 操作被提交后完成
+     */
+    public CompletableFuture<Void> remove(RectNd t) {
+        return enqueue(new Op(t, null, new CompletableFuture<>()));
+    }
+
+    /**
+     * 修改现有数据
+     *
+     * @param told 现有节点，min、max、dataNodeId必须与现有节点一致
+     * @param tnew 新节点，dataNodeId必须与现有节点一致
+     * @return 操作被提交后完成
+     */
+    public CompletableFuture<Void> update(RectNd told, RectNd tnew) {
+        return enqueue(new Op(told, tnew, new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<Void> enqueue(Op op) {
+        Lock lock = closeLock.readLock();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new RuntimeException("RtreeAsyncEditor " + name + " 已关闭");
+            }
+            //队列满时在此阻塞，写线程仍在消费，close会等待这里完成
+            queue.put(op);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            lock.unlock();
+        }
+        return op.future;
+    }
+
+    private void run() {
+        List<Op> batch = new ArrayList<>(commitLimit);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, commitLimit - 1);
+            if (batch.remove(stop)) {
+                running = false;
+            }
+            write(batch);
+            batch.clear();
+        }
+        //写线程被中断时队列中剩余的操作
+        for (Op op : queue) {
+            if (null != op.future) {
+                op.future.completeExceptionally(new RuntimeException("RtreeAsyncEditor " + name + " 已关闭"));
+            }
+        }
+    }
+
+    private void write(List<Op> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<Op> merged = merge(batch);
+            if (!merged.isEmpty()) {
+                HilbertOrder.sort(merged, op -> null != op.tnew ? op.tnew : op.told);
+                try (RtreeEditor editor = RtreeEditor.get(txBuilder, commitLimit, name)) {
+                    for (Op op : merged) {
+                        if (null == op.told) {
+                            editor.add(op.tnew);
+                        } else if (null == op.tnew) {
+                            editor.remove(op.told);
+                        } else if (op.removeThenAdd) {
+                            editor.remove(op.told);
+                            editor.add(op.tnew);
+                        } else {
+                            editor.update(op.told, op.tnew);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("索引 {} 异步写入失败", name, e);
+            for (Op op : batch) {
+                op.future.completeExceptionally(e);
+            }
+            return;
+        }
+        for (Op op : batch) {
+            op.future.complete(null);
+        }
+    }
+
+    /**
+     * 按dataNodeId合并操作，每个dataNodeId合并为一个 移除told、添加tnew 的操作，told、tnew为null表示不移除、不添加；
+     * 先remove后add的合并后仍依次执行，不转为update；未改变bbox的update被忽略
+     */
+    private static List<Op> merge(List<Op> batch) {
+        Map<String, Op> merged = new LinkedHashMap<>();
+        for (Op op : batch) {
+            String id = null != op.tnew ? op.tnew.getDataNodeId() : op.told.getDataNodeId();
+            Op pre = merged.get(id);
+            if (null == pre) {
+                merged.put(id, new Op(op.told, op.tnew, null));
+            } else if (null == pre.tnew) {
+                //已移除，再次添加时先移除再添加
+                if (null == op.told) {
+                    pre.tnew = op.tnew;
+                    pre.removeThenAdd = null != pre.told;
+                }
+            } else {
+                //已添加，再次移除或修改时，以最新结果为准
+                pre.tnew = op.tnew;
+            }
+        }
+        List<Op> res = new ArrayList<>(merged.size());
+        for (Op op : merged.values()) {
+            if (null == op.told && null == op.tnew) {
+                continue;
+            }
+            if (null != op.told && null != op.tnew && !op.removeThenAdd
+                    && Arrays.equals(op.told.getMinXs(), op.tnew.getMinXs()) && Arrays.equals(op.told.getMaxXs(), op.tnew.getMaxXs())) {
+                continue;
+            }
+            res.add(op);
+        }
+        return res;
+    }
+
+    /**
+     * 停止接收操作，等待队列中已有的操作全部写入后返回
+     */
+    @Override
+    public void close() {
+        Lock lock = closeLock.writeLock();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            queue.put(stop);
+            closed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class Op {
+        private final RectNd told;
+        private RectNd tnew;
+        /**
+         * 由先remove后add合并而来，told不一定在索引中，不能当作update执行
+         */
+        private boolean removeThenAdd;
+        private final CompletableFuture<Void> future;
+
+        private Op(RectNd told, RectNd tnew, CompletableFuture<Void> future) {
+            this.told = told;
+            this.tnew = tnew;
+            this.future = future;
+        }
+    }
+}
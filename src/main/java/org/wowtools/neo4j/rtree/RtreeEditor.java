@@ -2,23 +2,32 @@ package org.wowtools.neo4j.rtree;
 
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.schema.Schema;
+import org.wowtools.neo4j.rtree.internal.IndexVersion;
 import org.wowtools.neo4j.rtree.internal.RtreeLock;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
 import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
 import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.internal.edit.BulkLoader;
 import org.wowtools.neo4j.rtree.internal.edit.GraphDbTxBuilder;
+import org.wowtools.neo4j.rtree.internal.edit.HilbertOrder;
 import org.wowtools.neo4j.rtree.internal.edit.RTree;
 import org.wowtools.neo4j.rtree.internal.edit.TxBuilder;
 import org.wowtools.neo4j.rtree.internal.edit.TxCell;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 import org.wowtools.neo4j.rtree.util.VoidDataNodeVisitor;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 
 /**
  * rtree编辑器，此对象实例化时，会启动一个事务，并在索引上加写锁，所以务必在结束时调用close方法
+ * 写锁只用于编辑器之间的互斥，不会阻塞查询，查询读到的总是最近一次提交后的完整的树
  * 此对象非线程安全
  *
  * @author liuyu
@@ -28,15 +37,20 @@ public class RtreeEditor implements AutoCloseable {
 
     private static final String entityNodeIdIndexName = "index_entity_node_id";
 
+    /**
+     * bulkLoad默认在内存中最多保留的数据数
+     */
+    public static final int DEFAULT_BULK_LOAD_RUN_SIZE = 1 << 18;
+
     private final RTree rTree;
     private final Lock writeLock;
     private final TxCell txCell;
 
     private RtreeEditor(RTree rTree, String name, TxCell txCell) {
         this.rTree = rTree;
-        writeLock = RtreeLock.getUseReadWriteLock(name).writeLock();
+        writeLock = RtreeLock.getWriteLock(name);
         this.txCell = txCell;
-        writeLock.lock();
+        RtreeLock.lock(writeLock, name, "write");
     }
 
     /**
@@ -51,6 +65,7 @@ public class RtreeEditor implements AutoCloseable {
         String metadataNodeId;
         int mMin;
         int mMax;
+        RtreeSplit split;
         synchronized (RtreeLock.getCreateIndexLock()) {
             try (Transaction tx = txBuilder.beginTx()) {
                 Node metadataNode = tx.findNode(Labels.METADATA, "name", name);
@@ -61,11 +76,13 @@ public class RtreeEditor implements AutoCloseable {
                 Map<String, Object> properties = metadataNode.getProperties("mMin", "mMax");
                 mMin = (int) properties.get("mMin");
                 mMax = (int) properties.get("mMax");
+                split = getSplit(metadataNode);
             }
 
         }
 
-        TxCell txCell = new TxCell(commitLimit, mMin, mMax, txBuilder);
+        TxCell txCell = new TxCell(commitLimit, mMin, mMax, txBuilder, name);
+        txCell.setSplit(split);
         RTree rTree = new RTree(new RectNd.Builder(), mMin, mMax, txCell, metadataNodeId);
         RtreeEditor rtreeEditor = new RtreeEditor(rTree, name, txCell);
         return rtreeEditor;
@@ -84,6 +101,15 @@ public class RtreeEditor implements AutoCloseable {
         return get(txBuilder, commitLimit, name);
     }
 
+    /**
+     * @param metadataNode 索引METADATA节点
+     * @return 索引的分裂策略，未记录的旧索引为AXIAL
+     */
+    private static RtreeSplit getSplit(Node metadataNode) {
+        Object split = metadataNode.getProperty("split", null);
+        return null == split ? RtreeSplit.AXIAL : RtreeSplit.valueOf((String) split);
+    }
+
     private static void createIndexIfNotExist(TxBuilder txBuilder) {
         try (Transaction tx = txBuilder.beginTx()){
             Schema schema = tx.schema();
@@ -109,8 +135,24 @@ public class RtreeEditor implements AutoCloseable {
      * @return RtreeEditor
      */
     public static RtreeEditor create(TxBuilder txBuilder, int commitLimit, String name, int mMin, int mMax) {
+        return create(txBuilder, commitLimit, name, mMin, mMax, RtreeSplit.AXIAL);
+    }
+
+    /**
+     * 新建索引
+     *
+     * @param txBuilder   txBuilder
+     * @param commitLimit 操作达到多少个顶点时执行提交操作
+     * @param name        索引名
+     * @param mMin        索引中每个节点最小子节点数
+     * @param mMax        索引中每个节点最大子节点数
+     * @param split       索引的插入和节点分裂策略
+     * @return RtreeEditor
+     */
+    public static RtreeEditor create(TxBuilder txBuilder, int commitLimit, String name, int mMin, int mMax, RtreeSplit split) {
         createIndexIfNotExist(txBuilder);
-        TxCell txCell = new TxCell(commitLimit, mMin, mMax, txBuilder);
+        TxCell txCell = new TxCell(commitLimit, mMin, mMax, txBuilder, name);
+        txCell.setSplit(split);
         Node metadataNode;
         synchronized (RtreeLock.getCreateIndexLock()) {
             metadataNode = txCell.getTx().findNode(Labels.METADATA, "name", name);
@@ -123,6 +165,7 @@ public class RtreeEditor implements AutoCloseable {
         metadataNode.setProperty("mMin", mMin);
         metadataNode.setProperty("mMax", mMax);
         metadataNode.setProperty("name", name);
+        metadataNode.setProperty("split", split.name());
 
         RTree rTree = new RTree(new RectNd.Builder(), mMin, mMax, txCell, metadataNode.getElementId());
         RtreeEditor rtreeEditor = new RtreeEditor(rTree, name, txCell);
@@ -144,6 +187,22 @@ public class RtreeEditor implements AutoCloseable {
         return create(txBuilder, commitLimit, name, mMin, mMax);
     }
 
+    /**
+     * 新建索引
+     *
+     * @param graphdb     neo4j db
+     * @param commitLimit 操作达到多少个顶点时执行提交操作
+     * @param name        索引名
+     * @param mMin        索引中每个节点最小子节点数
+     * @param mMax        索引中每个节点最大子节点数
+     * @param split       索引的插入和节点分裂策略
+     * @return RtreeEditor
+     */
+    public static RtreeEditor create(GraphDatabaseService graphdb, int commitLimit, String name, int mMin, int mMax, RtreeSplit split) {
+        TxBuilder txBuilder = new GraphDbTxBuilder(graphdb);
+        return create(txBuilder, commitLimit, name, mMin, mMax, split);
+    }
+
     /**
      * 若指定名称的索引存在，获取索引，若不存在，则新建一个
      *
@@ -159,6 +218,22 @@ public class RtreeEditor implements AutoCloseable {
         return getOrCreate(txBuilder, commitLimit, name, mMin, mMax);
     }
 
+    /**
+     * 若指定名称的索引存在，获取索引，若不存在，则新建一个
+     *
+     * @param graphdb     neo4j db
+     * @param commitLimit 操作达到多少个顶点时执行提交操作
+     * @param name        索引名
+     * @param mMin        索引中每个节点最小子节点数，如索引已存在则使用现有值，此输入值失效
+     * @param mMax        索引中每个节点最大子节点数，如索引已存在则使用现有值，此输入值失效
+     * @param split       索引的插入和节点分裂策略，如索引已存在则使用现有值，此输入值失效
+     * @return RtreeEditor
+     */
+    public static RtreeEditor getOrCreate(GraphDatabaseService graphdb, int commitLimit, String name, int mMin, int mMax, RtreeSplit split) {
+        TxBuilder txBuilder = new GraphDbTxBuilder(graphdb);
+        return getOrCreate(txBuilder, commitLimit, name, mMin, mMax, split);
+    }
+
     /**
      * 若指定名称的索引存在，获取索引，若不存在，则新建一个
      *
@@ -170,8 +245,23 @@ public class RtreeEditor implements AutoCloseable {
      * @return RtreeEditor
      */
     public static RtreeEditor getOrCreate(TxBuilder txBuilder, int commitLimit, String name, int mMin, int mMax) {
+        return getOrCreate(txBuilder, commitLimit, name, mMin, mMax, RtreeSplit.AXIAL);
+    }
+
+    /**
+     * 若指定名称的索引存在，获取索引，若不存在，则新建一个
+     *
+     * @param txBuilder   txBuilder
+     * @param commitLimit 操作达到多少个顶点时执行提交操作
+     * @param name        索引名
+     * @param mMin        索引中每个节点最小子节点数，如索引已存在则使用现有值，此输入值失效
+     * @param mMax        索引中每个节点最大子节点数，如索引已存在则使用现有值，此输入值失效
+     * @param split       索引的插入和节点分裂策略，如索引已存在则使用现有值，此输入值失效
+     * @return RtreeEditor
+     */
+    public static RtreeEditor getOrCreate(TxBuilder txBuilder, int commitLimit, String name, int mMin, int mMax, RtreeSplit split) {
         createIndexIfNotExist(txBuilder);
-        TxCell txCell = new TxCell(commitLimit, mMin, mMax, txBuilder);
+        TxCell txCell = new TxCell(commitLimit, mMin, mMax, txBuilder, name);
         Node metadataNode;
         boolean exist;
         synchronized (RtreeLock.getCreateIndexLock()) {
@@ -185,6 +275,7 @@ public class RtreeEditor implements AutoCloseable {
         }
 
         if (exist) {
+            txCell.setSplit(getSplit(metadataNode));
             RTree rTree = new RTree(new RectNd.Builder(), mMin, mMax, txCell, metadataNode.getElementId());
             RtreeEditor rtreeEditor = new RtreeEditor(rTree, name, txCell);
             return rtreeEditor;
@@ -192,6 +283,8 @@ public class RtreeEditor implements AutoCloseable {
             metadataNode.setProperty("mMin", mMin);
             metadataNode.setProperty("mMax", mMax);
             metadataNode.setProperty("name", name);
+            metadataNode.setProperty("split", split.name());
+            txCell.setSplit(split);
 
             RTree rTree = new RTree(new RectNd.Builder(), mMin, mMax, txCell, metadataNode.getElementId());
             RtreeEditor rtreeEditor = new RtreeEditor(rTree, name, txCell);
@@ -224,7 +317,6 @@ public class RtreeEditor implements AutoCloseable {
 
         //删掉METADATA
         String rootId;
-        int mMax;
         try (Transaction tx = txBuilder.beginTx()) {
             synchronized (RtreeLock.getCreateIndexLock()) {
                 Node metadataNode = tx.findNode(Labels.METADATA, "name", name);
@@ -234,16 +326,11 @@ public class RtreeEditor implements AutoCloseable {
                 Relationship r = metadataNode.getRelationships(Relationships.RTREE_METADATA_TO_ROOT).iterator().next();
                 rootId = r.getEndNode().getElementId();
                 r.delete();
-                mMax = (int) metadataNode.getProperty("mMax");
                 metadataNode.delete();
-                tx.commit();
+                IndexVersion.commit(name, tx);
             }
         }
         //删掉树上的节点
-        String[] keys = new String[mMax];
-        for (int i = 0; i < mMax; i++) {
-            keys[i] = PropertyNames.entryDataId + i;
-        }
         try (Transaction tx = txBuilder.beginTx()) {
             Node node = tx.getNodeByElementId(rootId);
             ArrayDeque<Node> stack = new ArrayDeque<>();
@@ -260,10 +347,10 @@ public class RtreeEditor implements AutoCloseable {
                     }
                     relationships.close();
                 } else if (label.equals(Labels.RTREE_LEAF.name())) {
-                    Map<String, Object> entryDataIds = node.getProperties(keys);
-                    entryDataIds.forEach((key, id) -> {
-                        dataNodeVisitor.visit((String) id);
-                    });
+                    LeafEntries entries = LeafEntries.read(node);
+                    for (int i = 0; i < entries.size(); i++) {
+                        dataNodeVisitor.visit(entries.getDataNodeId(i));
+                    }
                     ResourceIterable<Relationship> relationships = node.getRelationships(Direction.OUTGOING, Relationships.RTREE_LEAF_TO_ENTITY);
                     for (Relationship relationship : relationships) {
                         relationship.getEndNode().delete();
@@ -273,7 +360,163 @@ public class RtreeEditor implements AutoCloseable {
                 }
                 node.delete();
             } while (!stack.isEmpty());
-            tx.commit();
+            IndexVersion.commit(name, tx);
+        }
+    }
+
+    /**
+     * 将旧版本索引中以entryMin{i}、entryMax{i}、entryDataId{i}逐个存储元素的叶子节点迁移为紧凑存储格式。
+     * 未迁移的索引仍可正常查询和编辑，编辑时被修改的叶子节点会自动转换，此方法用于一次性转换全部叶子节点以提升查询性能
+     *
+     * @param graphdb     neo4j db
+     * @param commitLimit 迁移多少个叶子节点时执行提交操作
+     * @param name        索引名
+     * @return 迁移的叶子节点数
+     */
+    public static int migrateLeafFormat(GraphDatabaseService graphdb, int commitLimit, String name) {
+        TxBuilder txBuilder = new GraphDbTxBuilder(graphdb);
+        return migrateLeafFormat(txBuilder, commitLimit, name);
+    }
+
+    /**
+     * 将旧版本索引中以entryMin{i}、entryMax{i}、entryDataId{i}逐个存储元素的叶子节点迁移为紧凑存储格式。
+     * 未迁移的索引仍可正常查询和编辑，编辑时被修改的叶子节点会自动转换，此方法用于一次性转换全部叶子节点以提升查询性能
+     *
+     * @param txBuilder   txBuilder
+     * @param commitLimit 迁移多少个叶子节点时执行提交操作
+     * @param name        索引名
+     * @return 迁移的叶子节点数
+     */
+    public static int migrateLeafFormat(TxBuilder txBuilder, int commitLimit, String name) {
+        Lock writeLock = RtreeLock.getWriteLock(name);
+        RtreeLock.lock(writeLock, name, "write");
+        try {
+            //找到所有叶子节点
+            List<String> leafIds = new ArrayList<>();
+            int mMax;
+            try (Transaction tx = txBuilder.beginTx()) {
+                Node metadataNode = tx.findNode(Labels.METADATA, "name", name);
+                if (null == metadataNode) {
+                    throw new RuntimeException("索引 " + name + " 不存在");
+                }
+                mMax = (int) metadataNode.getProperty("mMax");
+                Iterator<Relationship> iterator = metadataNode.getRelationships(Relationships.RTREE_METADATA_TO_ROOT).iterator();
+                if (!iterator.hasNext()) {
+                    return 0;
+                }
+                ArrayDeque<Node> stack = new ArrayDeque<>();
+                stack.push(iterator.next().getEndNode());
+                do {
+                    Node node = stack.pop();
+                    if (node.hasLabel(Labels.RTREE_LEAF)) {
+                        leafIds.add(node.getElementId());
+                    } else {
+                        for (Relationship relationship : node.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD)) {
+                            stack.push(relationship.getEndNode());
+                        }
+                    }
+                } while (!stack.isEmpty());
+            }
+            //分批迁移
+            int num = 0;
+            int idx = 0;
+            while (idx < leafIds.size()) {
+                try (Transaction tx = txBuilder.beginTx()) {
+                    int end = Math.min(idx + commitLimit, leafIds.size());
+                    for (; idx < end; idx++) {
+                        Node leaf = tx.getNodeByElementId(leafIds.get(idx));
+                        LeafEntries entries = LeafEntries.read(leaf);
+                        if (!entries.isLegacy()) {
+                            continue;
+                        }
+                        RectNd[] rectNds = new RectNd[entries.size()];
+                        for (int i = 0; i < rectNds.length; i++) {
+                            rectNds[i] = entries.getRectNd(i);
+                        }
+                        LeafEntries.write(leaf, rectNds);
+                        LeafEntries.removeLegacy(leaf, mMax);
+                        num++;
+                    }
+                    IndexVersion.commit(name, tx);
+                }
+            }
+            return num;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 为旧版本索引中没有记录子树元素总数的非叶子节点补齐entryCount
+     *
+     * @param graphdb     neo4j db
+     * @param commitLimit 补齐多少个非叶子节点时执行提交操作
+     * @param name        索引名
+     * @return 补齐的非叶子节点数
+     */
+    public static int backfillEntryCount(GraphDatabaseService graphdb, int commitLimit, String name) {
+        TxBuilder txBuilder = new GraphDbTxBuilder(graphdb);
+        return backfillEntryCount(txBuilder, commitLimit, name);
+    }
+
+    /**
+     * 为旧版本索引中没有记录子树元素总数的非叶子节点补齐entryCount。
+     * 未补齐的索引仍可正常查询和编辑，count、estimateCount会进入这些节点逐个统计，编辑时也不会补齐，
+     * 此方法用于一次性补齐全部非叶子节点以提升统计性能。子节点先于父节点补齐，中途提交的结果也是正确的
+     *
+     * @param txBuilder   txBuilder
+     * @param commitLimit 补齐多少个非叶子节点时执行提交操作
+     * @param name        索引名
+     * @return 补齐的非叶子节点数
+     */
+    public static int backfillEntryCount(TxBuilder txBuilder, int commitLimit, String name) {
+        Lock writeLock = RtreeLock.getWriteLock(name);
+        RtreeLock.lock(writeLock, name, "write");
+        try {
+            //找到所有没有记录的非叶子节点，父节点在前
+            List<String> branchIds = new ArrayList<>();
+            try (Transaction tx = txBuilder.beginTx()) {
+                Node metadataNode = tx.findNode(Labels.METADATA, "name", name);
+                if (null == metadataNode) {
+                    throw new RuntimeException("索引 " + name + " 不存在");
+                }
+                Iterator<Relationship> iterator = metadataNode.getRelationships(Relationships.RTREE_METADATA_TO_ROOT).iterator();
+                if (!iterator.hasNext()) {
+                    return 0;
+                }
+                ArrayDeque<Node> stack = new ArrayDeque<>();
+                stack.push(iterator.next().getEndNode());
+                do {
+                    Node node = stack.pop();
+                    if (node.hasLabel(Labels.RTREE_LEAF) || node.hasProperty(PropertyNames.entryCount)) {
+                        continue;
+                    }
+                    branchIds.add(node.getElementId());
+                    for (Relationship relationship : node.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD)) {
+                        stack.push(relationship.getEndNode());
+                    }
+                } while (!stack.isEmpty());
+            }
+            //逆序分批补齐，子节点先于父节点
+            int idx = branchIds.size() - 1;
+            while (idx >= 0) {
+                try (Transaction tx = txBuilder.beginTx()) {
+                    int end = Math.max(idx - commitLimit, -1);
+                    for (; idx > end; idx--) {
+                        Node branch = tx.getNodeByElementId(branchIds.get(idx));
+                        int entryCount = 0;
+                        for (Relationship relationship : branch.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD)) {
+                            Node child = relationship.getEndNode();
+                            entryCount += (int) child.getProperty(child.hasLabel(Labels.RTREE_LEAF) ? PropertyNames.size : PropertyNames.entryCount);
+                        }
+                        branch.setProperty(PropertyNames.entryCount, entryCount);
+                    }
+                    IndexVersion.commit(name, tx);
+                }
+            }
+            return branchIds.size();
+        } finally {
+            writeLock.unlock();
         }
     }
 
@@ -288,6 +531,67 @@ public class RtreeEditor implements AutoCloseable {
         txCell.limitCommit();
     }
 
+    /**
+     * 向已有数据的索引中批量添加数据，数据先按希尔伯特曲线排序，再按commitLimit分批，
+     * 每批中落入同一子树的数据一起向下添加，每个节点只读写一次，比逐条add少很多次从根节点到叶子节点的查找和节点更新。
+     * 适合持续写入的场景，例如定时批量更新大量移动目标的位置；索引为空时应使用bulkLoad
+     *
+     * @param ts 数据的外接矩形
+     */
+    public void addAll(Collection<RectNd> ts) {
+        List<RectNd> list = new ArrayList<>(ts);
+        HilbertOrder.sort(list, t -> t);
+        int limit = Math.max(txCell.getLimit(), 1);
+        for (int i = 0; i < list.size(); i += limit) {
+            List<RectNd> batch = list.subList(i, Math.min(i + limit, list.size()));
+            rTree.addAll(batch);
+            txCell.addChange(batch.size());
+            txCell.limitCommit();
+        }
+    }
+
+    /**
+     * 批量向索引中添加数据，内存中最多保留DEFAULT_BULK_LOAD_RUN_SIZE个数据，见bulkLoad(Iterator, int)
+     *
+     * @param iterator 数据的外接矩形
+     */
+    public void bulkLoad(Iterator<RectNd> iterator) {
+        bulkLoad(iterator, DEFAULT_BULK_LOAD_RUN_SIZE);
+    }
+
+    /**
+     * 批量向索引中添加数据。
+     * 若索引为空，用STR算法排序分组，自底向上一次性构建出整棵树，比逐条add快得多，且构建出的树节点间重叠更小，查询更快；
+     * 数据多于runSize个时不会全部读入内存，而是借助临时文件做外部排序后按希尔伯特曲线顺序流式构建。
+     * 若索引中已有数据，则每runSize个数据调用一次addAll
+     *
+     * @param iterator 数据的外接矩形
+     * @param runSize  内存中最多保留的数据数
+     */
+    public void bulkLoad(Iterator<RectNd> iterator, int runSize) {
+        if (!"".equals(rTree.getRootNodeId())) {
+            List<RectNd> batch = new ArrayList<>();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() >= runSize) {
+                    addAll(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                addAll(batch);
+            }
+            return;
+        }
+        String rootId = new BulkLoader(txCell).load(iterator, runSize);
+        if (null == rootId) {
+            return;
+        }
+        rTree.setRoot(rootId);
+        txCell.addChange();
+        txCell.limitCommit();
+    }
+
     /**
      * 从索引中移除数据，注意不会删除数据节点，如需删除或其它操作应在自身业务代码中实现
      *
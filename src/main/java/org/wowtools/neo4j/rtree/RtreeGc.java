@@ -1,151 +1,523 @@
-//package org.wowtools.neo4j.rtree;
-//
-//import org.neo4j.graphdb.*;
-//import org.wowtools.neo4j.rtree.internal.define.Labels;
-//import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
-//import org.wowtools.neo4j.rtree.internal.define.Relationships;
-//
-//import java.util.ArrayDeque;
-//import java.util.ArrayList;
-//import java.util.HashSet;
-//import java.util.Map;
-//
-///**
-// * 树节点的“垃圾回收”操作，移除掉图库中由于更新而没有被使用的索引节点或字段以节约空间
-// *
-// * @author liuyu
-// * @date 2024/11/1
-// */
-//public class RtreeGc {
-//
-//    private final Transaction tx;
-//    //在使用中的节点
-//    private final HashSet<String> usedNodeIds = new HashSet<>();
-//
-//    public RtreeGc(Transaction tx) {
-//        this.tx = tx;
-//    }
-//
-//    public void gc() {
-//        //1、找到所有叶子节点，清理叶子节点上的属性
-//        ResourceIterator<Node> nodes = tx.findNodes(Labels.RTREE_LEAF);
-//        nodes.forEachRemaining(this::clearLeaf);
-//        nodes.close();
-//        //2、找到所有叶子节点和非叶子节点，向下找没有子节点的删除，向上遍历找不到root的删除
-//
-//        //1、找到所有叶子节点，向上遍历，找不到root就删除掉，找到root则检查没有存在的entryDataIdX，删除entryDataIdX entryMaxX并调整mbrMax mbrMin size
-//        ResourceIterator<Node> nodes = tx.findNodes(Labels.RTREE_LEAF);
-//        nodes.forEachRemaining((node) -> {
-//            if (traversalUp(node)) {
-//                clearLeaf(node);
-//            }
-//        });
-//        nodes.close();
-//        //2、找到所有非叶子节点，向上遍历，找不到root就删除掉
-//        nodes = tx.findNodes(Labels.RTREE_BRANCH);
-//        nodes.forEachRemaining(this::traversalUp);
-//    }
-//
-//    private void clearLeaf(Node node) {
-//        Map<String, Object> properties = node.getAllProperties();
-//        int size = (int) properties.get(PropertyNames.size);
-//        ArrayList<String> entryDataIds = new ArrayList<>(size);
-//        ArrayList<double[]> entryMaxs = new ArrayList<>(size);
-//        ArrayList<double[]> entryMins = new ArrayList<>(size);
-//        for (int i = 0; i < size; i++) {
-//            try {
-//                tx.getNodeByElementId(PropertyNames.entryDataId + i);
-//                continue;
-//            } catch (NotFoundException ignored) {
-//            }
-//            entryDataIds.add((String) properties.get(PropertyNames.entryDataId + i));
-//            entryMaxs.add((double[]) properties.get(PropertyNames.entryMax + i));
-//            entryMins.add((double[]) properties.get(PropertyNames.entryMin + i));
-//        }
-//        if (entryDataIds.isEmpty()) {
-//            //没有元素了，删除节点
-//            rDelete(node);
-//        } else if (entryDataIds.size() < size) {
-//            int newSize = entryDataIds.size();
-//            //元素少了，重新整理
-//            double[] mbrMax = new double[]{Double.MAX_VALUE, Double.MAX_VALUE};
-//            double[] mbrMin = new double[]{Double.MIN_VALUE, Double.MIN_VALUE};
-//            for (double[] entryMax : entryMaxs) {
-//                if (entryMax[0] > mbrMax[0]) {
-//                    mbrMax[0] = entryMax[0];
-//                }
-//                if (entryMax[1] > mbrMax[1]) {
-//                    mbrMax[1] = entryMax[1];
-//                }
-//            }
-//            for (double[] entryMin : entryMins) {
-//                if (entryMin[0] < mbrMin[0]) {
-//                    mbrMin[0] = entryMin[0];
-//                }
-//                if (entryMin[1] < mbrMin[1]) {
-//                    mbrMin[1] = entryMin[1];
-//                }
-//            }
-//            for (int i = 0; i < newSize; i++) {
-//                node.setProperty(PropertyNames.entryDataId + i, entryDataIds.get(i));
-//                node.setProperty(PropertyNames.entryMin + i, entryMins.get(i));
-//                node.setProperty(PropertyNames.entryMax + i, entryMaxs.get(i));
-//            }
-//            for (int i = newSize; i < size; i++) {
-//                node.removeProperty(PropertyNames.entryDataId + i);
-//                node.removeProperty(PropertyNames.entryMin + i);
-//                node.removeProperty(PropertyNames.entryMax + i);
-//            }
-//            node.setProperty(PropertyNames.size, newSize);
-//        }
-//    }
-//
-//    private void rDelete(Node node) {
-//        ResourceIterable<Relationship> rs = node.getRelationships();
-//        for (Relationship r : rs) {
-//            r.delete();
-//        }
-//        node.delete();
-//        rs.close();
-//    }
-//
-//    private boolean traversalUp(Node node) {
-//        HashSet<Node> traversalNodes = new HashSet<>();
-//        ArrayDeque<Node> stack = new ArrayDeque<>();
-//        stack.push(node);
-//        boolean findRoot = false;
-//        do {
-//            node = stack.pop();
-//            String nodeId = node.getElementId();
-//            traversalNodes.add(node);
-//            //检查节点是否已在usedNodeIds，在则说明已在使用
-//            if (usedNodeIds.contains(nodeId)) {
-//                findRoot = true;
-//                break;
-//            }
-//
-//            //检查是否有关系 RTREE_METADATA_TO_ROOT 有则说明连接到了根节点，已在使用
-//            if (node.hasRelationship(Direction.INCOMING, Relationships.RTREE_METADATA_TO_ROOT)) {
-//                findRoot = true;
-//                break;
-//            }
-//            //将父节点丢进栈继续
-//            Relationship parentNodeRelationship = node.getSingleRelationship(Relationships.RTREE_PARENT_TO_CHILD, Direction.INCOMING);
-//            if (null != parentNodeRelationship) {
-//                stack.push(parentNodeRelationship.getStartNode());
-//            }
-//        } while (!stack.isEmpty());
-//        if (findRoot) {
-//            for (Node traversalNode : traversalNodes) {
-//                usedNodeIds.add(traversalNode.getElementId());
-//            }
-//            return false;
-//        } else {
-//            for (Node traversalNode : traversalNodes) {
-//                traversalNode.delete();
-//            }
-//            return false;
-//        }
-//    }
-//
-//}
+package org.wowtools.neo4j.rtree;
+
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.graphdb.*;
+import org.wowtools.neo4j.rtree.internal.IndexVersion;
+import org.wowtools.neo4j.rtree.internal.RtreeLock;
+import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.internal.edit.BulkLoader;
+import org.wowtools.neo4j.rtree.internal.edit.GraphDbTxBuilder;
+import org.wowtools.neo4j.rtree.internal.edit.TxBuilder;
+import org.wowtools.neo4j.rtree.internal.edit.TxCell;
+import org.wowtools.neo4j.rtree.internal.read.BranchNode;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 树节点的“垃圾回收”操作，在索引使用期间于后台逐步整理长期增删改后退化的树：
+ * <p>
+ * 1、重新打包退化的子树：子树中叶子节点的平均填充率低于minFill，或某个非叶子节点的子节点间重叠面积之和超过其面积之和的maxOverlap倍时，
+ * 取出子树中的全部元素用STR算法重新构建，替换掉原子树，非根节点的子树重新构建后层数不变。每个子树在一个独立的小事务中完成，子树的元素数不超过maxRepackEntries；
+ * <p>
+ * 2、删除没有挂在任何索引上的树节点和数据节点(旧版本遗留或编辑中断导致)，这一步会短暂地对所有索引加写锁。
+ * <p>
+ * 查找退化子树时不加锁，重新打包时加写锁，且只在查找后索引没有提交过时才执行，查询不受影响。
+ * 每秒处理的节点数不超过nodesPerSecond，以控制对线上查询和写入的影响。
+ * 使用结束时务必调用close方法
+ *
+ * @author liuyu
+ * @date 2024/11/1
+ */
+@Slf4j
+public class RtreeGc implements AutoCloseable {
+
+    private final TxBuilder txBuilder;
+    private final String name;
+    private final int nodesPerSecond;
+    private final double minFill;
+    private final double maxOverlap;
+    private final int maxRepackEntries;
+
+    /**
+     * 本对象重新打包出的子树，其子节点重叠已无法通过重新打包改善，只在填充率过低时再次打包
+     */
+    private final Set<String> repackedIds = new HashSet<>();
+
+    private ScheduledExecutorService executor;
+    private volatile boolean closed;
+
+    private int mMax;
+    /**
+     * 查找退化子树时的索引版本号，之后只有本对象的提交时，找到的子树仍然有效
+     */
+    private long expectedVersion;
+    private long paceStart;
+    private long paced;
+
+    private long repackedNum;
+    private long orphanDeletedNum;
+
+    private RtreeGc(TxBuilder txBuilder, String name, int nodesPerSecond, double minFill, double maxOverlap, int maxRepackEntries) {
+        this.txBuilder = txBuilder;
+        this.name = name;
+        this.nodesPerSecond = nodesPerSecond;
+        this.minFill = minFill;
+        this.maxOverlap = maxOverlap;
+        this.maxRepackEntries = maxRepackEntries;
+    }
+
+    /**
+     * 获取RtreeGc，叶子节点填充率低于0.5或子节点重叠超过0.5时重新打包，每次打包的子树不超过2000个元素
+     *
+     * @param graphdb        neo4j db
+     * @param name           索引名
+     * @param nodesPerSecond 每秒最多处理的节点数
+     * @return RtreeGc
+     */
+    public static RtreeGc get(GraphDatabaseService graphdb, String name, int nodesPerSecond) {
+        return get(new GraphDbTxBuilder(graphdb), name, nodesPerSecond);
+    }
+
+    /**
+     * 获取RtreeGc，叶子节点填充率低于0.5或子节点重叠超过0.5时重新打包，每次打包的子树不超过2000个元素
+     *
+     * @param txBuilder      neo4j 事务构建接口
+     * @param name           索引名
+     * @param nodesPerSecond 每秒最多处理的节点数
+     * @return RtreeGc
+     */
+    public static RtreeGc get(TxBuilder txBuilder, String name, int nodesPerSecond) {
+        return get(txBuilder, name, nodesPerSecond, 0.5, 0.5, 2000);
+    }
+
+    /**
+     * 获取RtreeGc
+     *
+     * @param txBuilder        neo4j 事务构建接口
+     * @param name             索引名
+     * @param nodesPerSecond   每秒最多处理的节点数
+     * @param minFill          子树中叶子节点的平均填充率(元素数/(叶子节点数*mMax))低于此值时重新打包
+     * @param maxOverlap       子树中某个非叶子节点的子节点间重叠面积之和超过子节点面积之和的此倍数时重新打包
+     * @param maxRepackEntries 每次重新打包的子树最多包含的元素数，即每个事务的规模
+     * @return RtreeGc
+     */
+    public static RtreeGc get(TxBuilder txBuilder, String name, int nodesPerSecond, double minFill, double maxOverlap, int maxRepackEntries) {
+        return new RtreeGc(txBuilder, name, nodesPerSecond, minFill, maxOverlap, maxRepackEntries);
+    }
+
+    /**
+     * 启动后台线程，每轮gc结束后间隔interval毫秒开始下一轮
+     *
+     * @param interval 两轮gc的间隔，毫秒
+     */
+    public synchronized void start(long interval) {
+        if (null != executor) {
+            throw new RuntimeException("RtreeGc " + name + " 已启动");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "RtreeGc-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                gc();
+            } catch (Exception e) {
+                if (!closed) {
+                    log.warn("索引 {} gc失败", name, e);
+                }
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在当前线程执行一轮gc
+     */
+    public synchronized void gc() {
+        paceStart = System.nanoTime();
+        paced = 0;
+        for (Unit unit : findDegradedUnits()) {
+            if (closed) {
+                return;
+            }
+            if (repack(unit)) {
+                repackedNum++;
+            }
+        }
+        if (!closed) {
+            deleteOrphans();
+        }
+    }
+
+    /**
+     * 不加锁遍历树，找出退化的子树
+     */
+    private List<Unit> findDegradedUnits() {
+        List<Unit> res = new ArrayList<>();
+        try (Transaction tx = txBuilder.beginTx()) {
+            long version = IndexVersion.get(name);
+            expectedVersion = version;
+            Node metadataNode = tx.findNode(Labels.METADATA, "name", name);
+            if (null == metadataNode) {
+                throw new RuntimeException("索引 " + name + " 不存在");
+            }
+            mMax = (int) metadataNode.getProperty("mMax");
+            BranchNode metadata = BranchNode.read(metadataNode, version);
+            if (metadata.size() == 0) {
+                return res;
+            }
+            ArrayDeque<Unit> stack = new ArrayDeque<>();
+            stack.push(new Unit(null, metadata.getChildId(0), metadata.getChildEntryCount(0), metadata.isChildLeaf(0)));
+            while (!stack.isEmpty() && !closed) {
+                Unit unit = stack.pop();
+                if (unit.leaf) {
+                    continue;
+                }
+                if (unit.entryCount >= 0 && unit.entryCount <= maxRepackEntries) {
+                    if (isDegraded(tx, unit, version)) {
+                        res.add(unit);
+                    }
+                    continue;
+                }
+                //子树太大，向下找
+                BranchNode branch = BranchNode.read(tx.getNodeByElementId(unit.nodeId), version);
+                pace(1);
+                for (int i = 0; i < branch.size(); i++) {
+                    stack.push(new Unit(unit.nodeId, branch.getChildId(i), branch.getChildEntryCount(i), branch.isChildLeaf(i)));
+                }
+            }
+        }
+        return res;
+    }
+
+    private boolean isDegraded(Transaction tx, Unit unit, long version) {
+        long entryNum = 0;
+        long leafNum = 0;
+        double overlap = 0;
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        stack.push(unit.nodeId);
+        do {
+            BranchNode branch = BranchNode.read(tx.getNodeByElementId(stack.pop()), version);
+            pace(1);
+            overlap = Math.max(overlap, overlap(branch));
+            for (int i = 0; i < branch.size(); i++) {
+                if (branch.isChildLeaf(i)) {
+                    leafNum++;
+                    entryNum += branch.getChildEntryCount(i);
+                } else {
+                    stack.push(branch.getChildId(i));
+                }
+            }
+        } while (!stack.isEmpty());
+        if (leafNum == 0) {
+            return false;
+        }
+        double fill = (double) entryNum / (leafNum * mMax);
+        if (fill < minFill) {
+            return true;
+        }
+        return overlap > maxOverlap && !repackedIds.contains(unit.nodeId);
+    }
+
+    /**
+     * @return 子节点间两两重叠的面积之和与子节点面积之和的比值
+     */
+    private static double overlap(BranchNode branch) {
+        int size = branch.size();
+        double areaSum = 0;
+        double overlapSum = 0;
+        double[][] mins = new double[size][];
+        double[][] maxs = new double[size][];
+        for (int i = 0; i < size; i++) {
+            mins[i] = branch.getChildMin(i);
+            maxs[i] = branch.getChildMax(i);
+            double area = 1;
+            for (int d = 0; d < mins[i].length; d++) {
+                area *= maxs[i][d] - mins[i][d];
+            }
+            areaSum += area;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double area = 1;
+                for (int d = 0; d < mins[i].length && area > 0; d++) {
+                    area *= Math.max(0, Math.min(maxs[i][d], maxs[j][d]) - Math.max(mins[i][d], mins[j][d]));
+                }
+                overlapSum += area;
+            }
+        }
+        return areaSum > 0 ? overlapSum / areaSum : 0;
+    }
+
+    /**
+     * 加写锁重新打包一个子树
+     *
+     * @return 是否执行了打包，查找后索引已有提交时不执行
+     */
+    private boolean repack(Unit unit) {
+        //先加写锁检查版本号，放弃打包时不打开编辑器，避免空提交使查询重试
+        Lock writeLock = RtreeLock.getWriteLock(name);
+        RtreeLock.lock(writeLock, name, "write");
+        long handledNum;
+        try {
+            handledNum = repackLocked(unit);
+        } finally {
+            writeLock.unlock();
+        }
+        //释放写锁后再限速，避免限速期间阻塞编辑器
+        if (handledNum < 0) {
+            return false;
+        }
+        pace(handledNum);
+        return true;
+    }
+
+    /**
+     * @return 打包处理的节点数，没有执行打包时返回-1
+     */
+    private long repackLocked(Unit unit) {
+        if (IndexVersion.get(name) != expectedVersion) {
+            return -1;
+        }
+        //逐层取出子树中的全部元素，并记录子树的层数
+        List<RectNd> entries = new ArrayList<>(unit.entryCount);
+        int nodeNum = 0;
+        int height = 0;
+        try (Transaction tx = txBuilder.beginTx()) {
+            List<Node> level = List.of(tx.getNodeByElementId(unit.nodeId));
+            do {
+                height++;
+                List<Node> lower = new ArrayList<>();
+                for (Node node : level) {
+                    nodeNum++;
+                    if (node.hasLabel(Labels.RTREE_LEAF)) {
+                        LeafEntries leafEntries = LeafEntries.read(node);
+                        for (int i = 0; i < leafEntries.size(); i++) {
+                            entries.add(leafEntries.getRectNd(i));
+                        }
+                    } else {
+                        for (Relationship relationship : node.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD)) {
+                            lower.add(relationship.getEndNode());
+                        }
+                    }
+                }
+                level = lower;
+            } while (!level.isEmpty());
+        }
+        if (entries.isEmpty()) {
+            return -1;
+        }
+        //替换非根节点的子树时保持层数不变，叶子节点的深度才不会改变；STR构建的树比原子树还高时(原子树接近满载)不打包
+        if (null != unit.parentId) {
+            if (BulkLoader.height(entries.size(), entries.get(0).getNDim(), mMax) > height) {
+                return -1;
+            }
+        } else {
+            height = 0;
+        }
+        try (RtreeEditor editor = RtreeEditor.get(txBuilder, Integer.MAX_VALUE, name)) {
+            TxCell txCell = editor.getTxCell();
+            Transaction tx = txCell.getTx();
+            //重新构建并替换原子树，原子树在提交时被删除
+            String newId = new BulkLoader(txCell).load(entries, height);
+            if (null == unit.parentId) {
+                editor.getrTree().setRoot(newId);
+            } else {
+                Node node = tx.getNodeByElementId(unit.nodeId);
+                for (Relationship relationship : node.getRelationships(Direction.INCOMING, Relationships.RTREE_PARENT_TO_CHILD)) {
+                    relationship.delete();
+                }
+                tx.getNodeByElementId(unit.parentId).createRelationshipTo(tx.getNodeByElementId(newId), Relationships.RTREE_PARENT_TO_CHILD);
+                txCell.markDetached(unit.nodeId);
+            }
+            txCell.addChange();
+            repackedIds.add(newId);
+        }
+        //close时提交，版本号加二
+        expectedVersion += 2;
+        return nodeNum + entries.size();
+    }
+
+    /**
+     * 删除没有挂在任何索引上的树节点和数据节点
+     */
+    private void deleteOrphans() {
+        long start = System.nanoTime();
+        long[] counter = new long[2];//遍历的节点数、删除的节点数
+        List<String> orphanIds = new ArrayList<>();
+        List<String> indexNames = new ArrayList<>();
+        try (Transaction tx = txBuilder.beginTx()) {
+            tx.findNodes(Labels.METADATA).forEachRemaining(node -> indexNames.add((String) node.getProperty("name")));
+            for (Label label : new Label[]{Labels.RTREE_BRANCH, Labels.RTREE_LEAF, Labels.RTREE_ENTITY}) {
+                ResourceIterator<Node> nodes = tx.findNodes(label);
+                while (nodes.hasNext() && !closed) {
+                    Node node = nodes.next();
+                    counter[0]++;
+                    pace(1);
+                    if (!isAttached(node, label)) {
+                        orphanIds.add(node.getElementId());
+                    }
+                }
+                nodes.close();
+            }
+        }
+        if (orphanIds.isEmpty() || closed) {
+            RtreeMetrics.gcFinished(name, counter[0], counter[1], System.nanoTime() - start);
+            return;
+        }
+        //按名称顺序对所有索引加写锁，期间没有编辑器在写入，不会误删正在构建中的子树；分批删除，每批持锁时间很短
+        Collections.sort(indexNames);
+        try {
+            for (int i = 0; i < orphanIds.size() && !closed; i += maxRepackEntries) {
+                if (!deleteOrphans(indexNames, orphanIds.subList(i, Math.min(i + maxRepackEntries, orphanIds.size())), counter)) {
+                    //下一轮再删除
+                    break;
+                }
+            }
+        } finally {
+            RtreeMetrics.gcFinished(name, counter[0], counter[1], System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return 是否成功加锁并删除，有编辑器长时间占用或有新建的索引时返回false
+     */
+    private boolean deleteOrphans(List<String> indexNames, List<String> orphanIds, long[] counter) {
+        List<Lock> locks = new ArrayList<>(indexNames.size());
+        boolean success = false;
+        try {
+            for (String indexName : indexNames) {
+                Lock lock = RtreeLock.getWriteLock(indexName);
+                if (!lock.tryLock(1, TimeUnit.SECONDS)) {
+                    return false;
+                }
+                locks.add(lock);
+            }
+            try (Transaction tx = txBuilder.beginTx()) {
+                //扫描后新建的索引没有加锁，其正在批量构建、尚未挂到根节点的子树会被误删，本轮放弃
+                ResourceIterator<Node> metadataNodes = tx.findNodes(Labels.METADATA);
+                while (metadataNodes.hasNext()) {
+                    if (!indexNames.contains((String) metadataNodes.next().getProperty("name"))) {
+                        metadataNodes.close();
+                        return false;
+                    }
+                }
+                for (String id : orphanIds) {
+                    Node node;
+                    try {
+                        node = tx.getNodeByElementId(id);
+                    } catch (NotFoundException e) {
+                        //已随前面的节点被删除
+                        continue;
+                    }
+                    Label label = node.hasLabel(Labels.RTREE_ENTITY) ? Labels.RTREE_ENTITY : null;
+                    if (isAttached(node, label)) {
+                        continue;
+                    }
+                    long deleted = counter[1];
+                    if (null == label) {
+                        TxCell.deleteSubtree(node, counter);
+                    } else {
+                        node.delete();
+                        counter[1]++;
+                    }
+                    orphanDeletedNum += counter[1] - deleted;
+                }
+                tx.commit();
+            }
+            success = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        } finally {
+            for (Lock lock : locks) {
+                lock.unlock();
+            }
+        }
+        //释放全部写锁后再限速
+        if (success) {
+            pace(orphanIds.size());
+        }
+        return success;
+    }
+
+    private static boolean isAttached(Node node, Label label) {
+        if (label == Labels.RTREE_ENTITY) {
+            return node.hasRelationship(Direction.INCOMING, Relationships.RTREE_LEAF_TO_ENTITY);
+        }
+        return TxCell.isAttached(node);
+    }
+
+    /**
+     * 按nodesPerSecond控制处理速度
+     *
+     * @param n 刚处理的节点数
+     */
+    private void pace(long n) {
+        paced += n;
+        long wait = paced * 1000 / nodesPerSecond - (System.nanoTime() - paceStart) / 1000000;
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+        }
+    }
+
+    /**
+     * @return 已重新打包的子树数
+     */
+    public long getRepackedNum() {
+        return repackedNum;
+    }
+
+    /**
+     * @return 已删除的没有挂在索引上的节点数
+     */
+    public long getOrphanDeletedNum() {
+        return orphanDeletedNum;
+    }
+
+    /**
+     * 停止后台线程，正在进行的一轮gc会在当前子树处理完后结束
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (null != executor) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 待检查或重新打包的子树
+     */
+    private static final class Unit {
+        private final String parentId;
+        private final String nodeId;
+        private final int entryCount;
+        private final boolean leaf;
+
+        private Unit(String parentId, String nodeId, int entryCount, boolean leaf) {
+            this.parentId = parentId;
+            this.nodeId = nodeId;
+            this.entryCount = entryCount;
+            this.leaf = leaf;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.wowtools.neo4j.rtree;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.read.BranchNode;
+import org.wowtools.neo4j.rtree.internal.read.ConsistentRead;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
+import org.wowtools.neo4j.rtree.internal.read.TreeReader;
+import org.wowtools.neo4j.rtree.util.BooleanDataNodePairVisitor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 两个索引间的相交连接查询器，查询两个索引中bbox相交的数据节点对。
+ * 两棵树同步向下遍历，只有mbr相交的两个子树才会继续展开，每个树节点只需与另一棵树中与它相交的节点比较，
+ * 而不是对一个索引中的每条数据都到另一个索引中查询一次
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class RtreeIntersectsJoinSearcher {
+
+    /**
+     * 一次连接过程中缓存的叶子节点数，同一个叶子节点通常会与另一棵树中相邻的几个叶子节点比较
+     */
+    private static final int leafCacheSize = 256;
+
+    private final String nameA;
+    private final String metadataNodeIdA;
+    private final String nameB;
+    private final String metadataNodeIdB;
+
+    private RtreeIntersectsJoinSearcher(String nameA, String metadataNodeIdA, String nameB, String metadataNodeIdB) {
+        this.nameA = nameA;
+        this.metadataNodeIdA = metadataNodeIdA;
+        this.nameB = nameB;
+        this.metadataNodeIdB = metadataNodeIdB;
+    }
+
+    /**
+     * 获取查询器
+     *
+     * @param tx    事务 此事务需要在外部手动关闭
+     * @param nameA 索引A的索引名
+     * @param nameB 索引B的索引名
+     * @return RtreeIntersectsJoinSearcher
+     */
+    public static RtreeIntersectsJoinSearcher get(Transaction tx, String nameA, String nameB) {
+        return new RtreeIntersectsJoinSearcher(nameA, getMetadataNodeId(tx, nameA), nameB, getMetadataNodeId(tx, nameB));
+    }
+
+    private static String getMetadataNodeId(Transaction tx, String name) {
+        Node metadataNode = tx.findNode(Labels.METADATA, "name", name);
+        if (null == metadataNode) {
+            throw new RuntimeException("索引 " + name + " 不存在");
+        }
+        return metadataNode.getElementId();
+    }
+
+    /**
+     * 相交连接查询，每对bbox相交的数据节点访问一次。
+     * 有结果时从第一个结果起阻塞两个索引的提交直到查询结束，所以访问器中不能提交这两个索引的修改
+     *
+     * @param tx      事务 此事务需要在外部手动关闭
+     * @param visitor 结果访问器
+     */
+    public void join(Transaction tx, BooleanDataNodePairVisitor visitor) {
+        ConsistentRead.read(tx, metadataNodeIdA, nameA, metadataNodeIdB, nameB, "intersectsJoin",
+                (readerA, readerB) -> new Joiner(readerA, readerB, (nodeIdA, nodeIdB) -> {
+                    //第一次交出结果前加两个索引的提交锁，之后不会重试，结果不会重复，不需要记录访问过的数据节点对
+                    if (!ConsistentRead.lockCommit(readerA, readerB)) {
+                        //放弃本次读取
+                        return true;
+                    }
+                    return visitor.visit(nodeIdA, nodeIdB);
+                }).join());
+    }
+
+    public String getMetadataNodeIdA() {
+        return metadataNodeIdA;
+    }
+
+    public String getMetadataNodeIdB() {
+        return metadataNodeIdB;
+    }
+
+    /**
+     * 一次同步遍历
+     */
+    private static final class Joiner {
+        private final TreeReader readerA;
+        private final TreeReader readerB;
+        private final BooleanDataNodePairVisitor visitor;
+        private final Map<String, LeafEntries> leafCacheA = newLeafCache();
+        private final Map<String, LeafEntries> leafCacheB = newLeafCache();
+
+        Joiner(TreeReader readerA, TreeReader readerB, BooleanDataNodePairVisitor visitor) {
+            this.readerA = readerA;
+            this.readerB = readerB;
+            this.visitor = visitor;
+        }
+
+        boolean join() {
+            BranchNode rootA = readerA.getRoot();
+            BranchNode rootB = readerB.getRoot();
+            for (int i = 0; i < rootA.size(); i++) {
+                for (int j = 0; j < rootB.size(); j++) {
+                    if (join(rootA, i, rootB, j)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 连接a的第i个子节点与b的第j个子节点
+         *
+         * @return 是否终止了遍历
+         */
+        private boolean join(BranchNode a, int i, BranchNode b, int j) {
+            double[] minA = a.getChildMin(i);
+            double[] maxA = a.getChildMax(i);
+            if (!b.intersects(j, minA, maxA)) {
+                return false;
+            }
+            boolean leafA = a.isChildLeaf(i);
+            boolean leafB = b.isChildLeaf(j);
+            if (leafA && leafB) {
+                //只有落在两个叶子节点mbr的交集内的元素才可能相交
+                double[] minB = b.getChildMin(j);
+                double[] maxB = b.getChildMax(j);
+                int nDim = minA.length;
+                double[] min = new double[nDim];
+                double[] max = new double[nDim];
+                for (int d = 0; d < nDim; d++) {
+                    min[d] = Math.max(minA[d], minB[d]);
+                    max[d] = Math.min(maxA[d], maxB[d]);
+                }
+                return joinLeaf(getLeaf(readerA, leafCacheA, a.getChildId(i)), getLeaf(readerB, leafCacheB, b.getChildId(j)), min, max);
+            }
+            if (leafA) {
+                BranchNode nb = readerB.getBranch(b.getChildId(j));
+                for (int jj = 0; jj < nb.size(); jj++) {
+                    if (join(a, i, nb, jj)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (leafB) {
+                BranchNode na = readerA.getBranch(a.getChildId(i));
+                for (int ii = 0; ii < na.size(); ii++) {
+                    if (join(na, ii, b, j)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            BranchNode na = readerA.getBranch(a.getChildId(i));
+            BranchNode nb = readerB.getBranch(b.getChildId(j));
+            for (int ii = 0; ii < na.size(); ii++) {
+                for (int jj = 0; jj < nb.size(); jj++) {
+                    if (join(na, ii, nb, jj)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean joinLeaf(LeafEntries entriesA, LeafEntries entriesB, double[] min, double[] max) {
+            int[] candidatesB = new int[entriesB.size()];
+            int candidateNum = 0;
+            for (int j = 0; j < entriesB.size(); j++) {
+                if (entriesB.intersects(j, min, max)) {
+                    candidatesB[candidateNum++] = j;
+                }
+            }
+            if (candidateNum == 0) {
+                return false;
+            }
+            for (int i = 0; i < entriesA.size(); i++) {
+                if (!entriesA.intersects(i, min, max)) {
+                    continue;
+                }
+                double[] minA = entriesA.getMin(i);
+                double[] maxA = entriesA.getMax(i);
+                for (int k = 0; k < candidateNum; k++) {
+                    int j = candidatesB[k];
+                    if (entriesB.intersects(j, minA, maxA)
+                            && visitor.visit(entriesA.getDataNodeId(i), entriesB.getDataNodeId(j))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static LeafEntries getLeaf(TreeReader reader, Map<String, LeafEntries> cache, String nodeId) {
+            LeafEntries entries = cache.get(nodeId);
+            if (null == entries) {
+                entries = reader.getLeaf(nodeId);
+                cache.put(nodeId, entries);
+            }
+            return entries;
+        }
+
+        private static Map<String, LeafEntries> newLeafCache() {
+            return new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LeafEntries> eldest) {
+                    return size() > leafCacheSize;
+                }
+            };
+        }
+    }
+}
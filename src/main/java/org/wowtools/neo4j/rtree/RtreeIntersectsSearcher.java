@@ -1,21 +1,41 @@
 package org.wowtools.neo4j.rtree;
 
-import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
-import org.wowtools.neo4j.rtree.internal.RtreeLock;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
-import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
-import org.wowtools.neo4j.rtree.internal.define.Relationships;
-import org.wowtools.neo4j.rtree.pojo.PointNd;
+import org.wowtools.neo4j.rtree.internal.edit.GraphDbTxBuilder;
+import org.wowtools.neo4j.rtree.internal.edit.TxBuilder;
+import org.wowtools.neo4j.rtree.internal.read.BranchNode;
+import org.wowtools.neo4j.rtree.internal.read.ConsistentRead;
+import org.wowtools.neo4j.rtree.internal.read.DedupVisitor;
+import org.wowtools.neo4j.rtree.internal.read.DedupBatchVisitor;
+import org.wowtools.neo4j.rtree.internal.read.IntersectsCursor;
+import org.wowtools.neo4j.rtree.internal.read.IntersectsIterator;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
+import org.wowtools.neo4j.rtree.internal.read.TreeReader;
+import org.wowtools.neo4j.rtree.metrics.QueryStats;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
+import org.wowtools.neo4j.rtree.util.BooleanBatchDataNodeVisitor;
 import org.wowtools.neo4j.rtree.util.BooleanDataNodeVisitor;
+import org.wowtools.neo4j.rtree.util.IntersectsPage;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.locks.Lock;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 相交关系查询器
@@ -26,13 +46,13 @@ import java.util.concurrent.locks.Lock;
 public class RtreeIntersectsSearcher {
 
 
+    private final String name;
     private final String metadataNodeId;
-    private final Lock readLock;
 
 
-    private RtreeIntersectsSearcher(String metadataNodeId, Lock readLock) {
+    private RtreeIntersectsSearcher(String name, String metadataNodeId) {
+        this.name = name;
         this.metadataNodeId = metadataNodeId;
-        this.readLock = readLock;
     }
 
     /**
@@ -48,8 +68,7 @@ public class RtreeIntersectsSearcher {
             throw new RuntimeException("索引 " + name + " 不存在");
         }
         String metadataNodeId = metadataNode.getElementId();
-        Lock readLock = RtreeLock.getUseReadWriteLock(name).readLock();
-        RtreeIntersectsSearcher rtreeIntersectsSearcher = new RtreeIntersectsSearcher(metadataNodeId, readLock);
+        RtreeIntersectsSearcher rtreeIntersectsSearcher = new RtreeIntersectsSearcher(name, metadataNodeId);
         return rtreeIntersectsSearcher;
     }
 
@@ -62,55 +81,484 @@ public class RtreeIntersectsSearcher {
      * @param visitor 结果访问器
      */
     public void intersects(RectNd bbox, Transaction tx, BooleanDataNodeVisitor visitor) {
-        readLock.lock();
-        try {
-            Node metadataNode = tx.getNodeByElementId(metadataNodeId);
-            Iterator<Relationship> iterator = metadataNode.getRelationships(Relationships.RTREE_METADATA_TO_ROOT).iterator();
-            if (!iterator.hasNext()) {
-                return;
-            }
-            Node node = iterator.next().getEndNode();
-            ArrayDeque<Node> stack = new ArrayDeque<>();
-            stack.push(node);
+        search(Relation.INTERSECTS, bbox, tx, visitor);
+    }
+
+    /**
+     * 统计与bbox相交的数据条数。
+     * mbr完全在bbox内的子树直接累加其记录的元素总数，不再向下展开，只有与bbox边界相交的子树需要展开到叶子节点
+     *
+     * @param bbox 查询的bbox范围
+     * @param tx   事务 此事务需要在外部手动关闭
+     * @return 数据条数
+     */
+    public long count(RectNd bbox, Transaction tx) {
+        double[] bboxMin = bbox.getMinXs();
+        double[] bboxMax = bbox.getMaxXs();
+        return ConsistentRead.read(tx, metadataNodeId, name, "count", reader -> {
+            long count = 0;
+            ArrayDeque<BranchNode> stack = new ArrayDeque<>();
+            stack.push(reader.getRoot());
             do {
-                node = stack.pop();
-                //判断当前节点是否与bbox相交
-                Map<String, Object> mbrProperties = node.getProperties("mbrMax", "mbrMin");
-                PointNd min = new PointNd((double[]) mbrProperties.get("mbrMin"));
-                PointNd max = new PointNd((double[]) mbrProperties.get("mbrMax"));
-                RectNd nodeMbr = new RectNd(min, max);
-                if (!bbox.intersects(nodeMbr)) {
+                BranchNode node = stack.pop();
+                for (int i = 0; i < node.size(); i++) {
+                    if (!node.intersects(i, bboxMin, bboxMax)) {
+                        continue;
+                    }
+                    int entryCount = node.getChildEntryCount(i);
+                    if (entryCount >= 0 && node.within(i, bboxMin, bboxMax)) {
+                        count += entryCount;
+                    } else if (node.isChildLeaf(i)) {
+                        count += countLeaf(reader.getLeaf(node.getChildId(i)), bboxMin, bboxMax);
+                    } else {
+                        stack.push(reader.getBranch(node.getChildId(i)));
+                    }
+                }
+            } while (!stack.isEmpty());
+            return count;
+        });
+    }
+
+    /**
+     * 估算与bbox相交的数据条数，适用于只需要大致数量的场景，如热力图、分页。
+     * 只向下展开maxDepth层，展开到的子树中与bbox边界相交的部分，按相交部分占子树mbr的比例乘以子树中的元素总数估算，
+     * 假设元素在子树mbr内均匀分布；maxDepth越大越精确，读取的节点也越多
+     *
+     * @param bbox     查询的bbox范围
+     * @param maxDepth 向下展开的层数，0表示只根据根节点估算
+     * @param tx       事务 此事务需要在外部手动关闭
+     * @return 估算的数据条数
+     */
+    public double estimateCount(RectNd bbox, int maxDepth, Transaction tx) {
+        double[] bboxMin = bbox.getMinXs();
+        double[] bboxMax = bbox.getMaxXs();
+        return ConsistentRead.read(tx, metadataNodeId, name, "estimateCount",
+                reader -> estimate(reader, reader.getRoot(), 0, maxDepth, bboxMin, bboxMax));
+    }
+
+    private static double estimate(TreeReader reader, BranchNode node, int depth, int maxDepth, double[] bboxMin, double[] bboxMax) {
+        double count = 0;
+        for (int i = 0; i < node.size(); i++) {
+            if (!node.intersects(i, bboxMin, bboxMax)) {
+                continue;
+            }
+            int entryCount = node.getChildEntryCount(i);
+            if (entryCount >= 0 && node.within(i, bboxMin, bboxMax)) {
+                count += entryCount;
+            } else if (entryCount >= 0 && depth >= maxDepth) {
+                count += entryCount * node.overlapRatio(i, bboxMin, bboxMax);
+            } else if (node.isChildLeaf(i)) {
+                count += countLeaf(reader.getLeaf(node.getChildId(i)), bboxMin, bboxMax);
+            } else {
+                //旧版本的索引没有记录元素总数时，只能继续向下展开
+                count += estimate(reader, reader.getBranch(node.getChildId(i)), depth + 1, maxDepth, bboxMin, bboxMax);
+            }
+        }
+        return count;
+    }
+
+    private static int countLeaf(LeafEntries entries, double[] bboxMin, double[] bboxMax) {
+        int count = 0;
+        for (int j = 0; j < entries.size(); j++) {
+            if (entries.intersects(j, bboxMin, bboxMax)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 分页相交查询，每次读取一页结果和一个游标，凭游标可以在新的事务中继续读取下一页，不会长时间占用事务。
+     * 结果按bbox第0维的min排序，游标记录最后一个结果的位置，下一页从根节点出发只展开位置在其之后的子树；
+     * 分页期间索引被修改时游标仍然有效，未被修改的数据恰好返回一次，被修改的数据可能被跳过或在新的位置再返回一次
+     *
+     * @param bbox     查询的bbox范围，读取后续页时必须与第一页一致
+     * @param cursor   上一页返回的游标，读取第一页时传null
+     * @param pageSize 每页最多返回的结果数
+     * @param tx       事务 此事务需要在外部手动关闭
+     * @return 一页结果
+     */
+    public IntersectsPage intersectsPage(RectNd bbox, String cursor, int pageSize, Transaction tx) {
+        if (pageSize <= 0) {
+            throw new RuntimeException("pageSize必须大于0: " + pageSize);
+        }
+        double[] bboxMin = bbox.getMinXs();
+        double[] bboxMax = bbox.getMaxXs();
+        return ConsistentRead.read(tx, metadataNodeId, name, "intersectsPage", reader -> {
+            IntersectsCursor intersectsCursor = null == cursor
+                    ? IntersectsCursor.start(reader, bboxMin, bboxMax)
+                    : IntersectsCursor.resume(reader, bboxMin, bboxMax, cursor);
+            List<String> dataNodeIds = new ArrayList<>(pageSize);
+            boolean more = intersectsCursor.next(reader, pageSize, dataNodeIds);
+            return new IntersectsPage(dataNodeIds, more ? intersectsCursor.encode() : null);
+        });
+    }
+
+    /**
+     * 增量相交查询，迭代时才继续遍历树，适用于结果集很大且逐条处理、或只需要前若干条结果的场景。
+     * 结果顺序与intersectsPage相同，迭代期间索引被修改时，未被修改的数据恰好返回一次，被修改的数据可能被跳过或在新的位置再返回一次
+     *
+     * @param bbox 查询的bbox范围
+     * @param tx   事务 此事务需要在外部手动关闭，且迭代完成前不能关闭
+     * @return 与bbox相交的数据节点id
+     */
+    public Iterator<String> intersectsIterator(RectNd bbox, Transaction tx) {
+        return new IntersectsIterator(bbox.getMinXs(), bbox.getMaxXs(), tx, metadataNodeId, name);
+    }
+
+    /**
+     * 增量相交查询，同intersectsIterator，以Stream的形式返回，例如 intersectsStream(bbox, tx).limit(100) 只遍历到第100条结果
+     *
+     * @param bbox 查询的bbox范围
+     * @param tx   事务 此事务需要在外部手动关闭，且Stream消费完成前不能关闭
+     * @return 与bbox相交的数据节点id Stream
+     */
+    public Stream<String> intersectsStream(RectNd bbox, Transaction tx) {
+        Iterator<String> iterator = intersectsIterator(bbox, tx);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 批量相交查询，多个bbox共用一次树的遍历，每个节点只读取一次，
+     * 只有与某个bbox相交的子树才会展开，遍历时只判断与其父节点相交的那些bbox。
+     * 适用于一次发起多个相邻的查询，例如一次渲染多个瓦片。
+     * 结果按遍历顺序返回，各查询的结果交错出现，不按查询分组，需要分组时在访问器中按序号自行归集
+     *
+     * @param bboxes  查询的bbox范围
+     * @param tx      事务 此事务需要在外部手动关闭
+     * @param visitor 结果访问器，会传入结果所满足的bbox在bboxes中的序号
+     */
+    public void intersects(List<RectNd> bboxes, Transaction tx, BooleanBatchDataNodeVisitor visitor) {
+        int n = bboxes.size();
+        if (n == 0) {
+            return;
+        }
+        double[][] bboxMins = new double[n][];
+        double[][] bboxMaxs = new double[n][];
+        int[] all = new int[n];
+        for (int q = 0; q < n; q++) {
+            bboxMins[q] = bboxes.get(q).getMinXs();
+            bboxMaxs[q] = bboxes.get(q).getMaxXs();
+            all[q] = q;
+        }
+        DedupBatchVisitor dedupVisitor = new DedupBatchVisitor(visitor);
+        ConsistentRead.read(tx, metadataNodeId, name, "batchIntersects", reader -> {
+            dedupVisitor.beginAttempt(reader);
+            return batchSearch(reader, all, bboxMins, bboxMaxs, dedupVisitor);
+        });
+    }
+
+    private static boolean batchSearch(TreeReader reader, int[] all, double[][] bboxMins, double[][] bboxMaxs,
+                                       BooleanBatchDataNodeVisitor visitor) {
+        //栈中每个非叶子节点与和它相交的查询一起入栈
+        ArrayDeque<BranchNode> stack = new ArrayDeque<>();
+        ArrayDeque<int[]> queryStack = new ArrayDeque<>();
+        stack.push(reader.getRoot());
+        queryStack.push(all);
+        int[] buffer = new int[all.length];
+        do {
+            BranchNode node = stack.pop();
+            int[] queries = queryStack.pop();
+            for (int i = 0; i < node.size(); i++) {
+                int subNum = 0;
+                for (int q : queries) {
+                    if (node.intersects(i, bboxMins[q], bboxMaxs[q])) {
+                        buffer[subNum++] = q;
+                    }
+                }
+                if (subNum == 0) {
+                    continue;
+                }
+                int[] subQueries = Arrays.copyOf(buffer, subNum);
+                if (node.isChildLeaf(i)) {
+                    LeafEntries entries = reader.getLeaf(node.getChildId(i));
+                    for (int j = 0; j < entries.size(); j++) {
+                        for (int q : subQueries) {
+                            if (entries.intersects(j, bboxMins[q], bboxMaxs[q])
+                                    && visitor.visit(q, entries.getDataNodeId(j))) {
+                                return true;
+                            }
+                        }
+                    }
+                } else {
+                    stack.push(reader.getBranch(node.getChildId(i)));
+                    queryStack.push(subQueries);
+                }
+            }
+        } while (!stack.isEmpty());
+        return false;
+    }
+
+    /**
+     * 包含查询，查询bbox包含输入bbox的数据，只会进入mbr包含输入bbox的子树
+     *
+     * @param bbox    查询的bbox范围
+     * @param tx      事务 此事务需要在外部手动关闭
+     * @param visitor 结果访问器
+     */
+    public void contains(RectNd bbox, Transaction tx, BooleanDataNodeVisitor visitor) {
+        search(Relation.CONTAINS, bbox, tx, visitor);
+    }
+
+    /**
+     * 被包含查询，查询bbox在输入bbox内的数据
+     *
+     * @param bbox    查询的bbox范围
+     * @param tx      事务 此事务需要在外部手动关闭
+     * @param visitor 结果访问器
+     */
+    public void within(RectNd bbox, Transaction tx, BooleanDataNodeVisitor visitor) {
+        search(Relation.WITHIN, bbox, tx, visitor);
+    }
+
+    private void search(Relation relation, RectNd bbox, Transaction tx, BooleanDataNodeVisitor visitor) {
+        double[] bboxMin = bbox.getMinXs();
+        double[] bboxMax = bbox.getMaxXs();
+        DedupVisitor dedupVisitor = new DedupVisitor(visitor);
+        ConsistentRead.read(tx, metadataNodeId, name, relation.name().toLowerCase(), reader -> {
+            dedupVisitor.beginAttempt(reader);
+            return search(reader, reader.getRoot(), relation, bboxMin, bboxMax, dedupVisitor, null);
+        });
+    }
+
+    /**
+     * 并行相交查询，适用于结果集很大的查询。
+     * 先将树的上面几层展开为若干棵与bbox相交的子树，再把子树作为任务提交到线程池并行遍历，每个任务使用各自的事务。
+     * 访问器会被多个线程同时调用，必须是线程安全的；访问器返回true时，取消尚未完成的任务并尽快返回
+     *
+     * @param bbox    查询的bbox范围
+     * @param graphdb neo4j db
+     * @param pool    执行任务的线程池
+     * @param visitor 结果访问器，必须是线程安全的
+     */
+    public void parallelIntersects(RectNd bbox, GraphDatabaseService graphdb, ForkJoinPool pool, BooleanDataNodeVisitor visitor) {
+        parallelIntersects(bbox, new GraphDbTxBuilder(graphdb), pool, visitor);
+    }
+
+    /**
+     * 并行相交查询，适用于结果集很大的查询。
+     * 先将树的上面几层展开为若干棵与bbox相交的子树，再把子树作为任务提交到线程池并行遍历，每个任务使用各自的事务。
+     * 访问器会被多个线程同时调用，必须是线程安全的；访问器返回true时，取消尚未完成的任务并尽快返回
+     *
+     * @param bbox      查询的bbox范围
+     * @param txBuilder txBuilder
+     * @param pool      执行任务的线程池
+     * @param visitor   结果访问器，必须是线程安全的
+     */
+    public void parallelIntersects(RectNd bbox, TxBuilder txBuilder, ForkJoinPool pool, BooleanDataNodeVisitor visitor) {
+        double[] bboxMin = bbox.getMinXs();
+        double[] bboxMax = bbox.getMaxXs();
+        try (Transaction tx = txBuilder.beginTx()) {
+            ConsistentRead.read(tx, metadataNodeId, name, "parallelIntersects",
+                    reader -> parallelSearch(reader, txBuilder, pool, bboxMin, bboxMax, visitor));
+        }
+    }
+
+    private boolean parallelSearch(TreeReader reader, TxBuilder txBuilder, ForkJoinPool pool,
+                                   double[] bboxMin, double[] bboxMax, BooleanDataNodeVisitor visitor) {
+        //展开树的上层，直到子树数量足够分给各线程
+        int taskNum = pool.getParallelism() * 4;
+        List<String> subtreeIds = new ArrayList<>();
+        List<Boolean> subtreeLeafs = new ArrayList<>();
+        ArrayDeque<BranchNode> queue = new ArrayDeque<>();
+        queue.add(reader.getRoot());
+        while (!queue.isEmpty() && subtreeIds.size() + queue.size() < taskNum) {
+            BranchNode node = queue.poll();
+            for (int i = 0; i < node.size(); i++) {
+                if (!node.intersects(i, bboxMin, bboxMax)) {
                     continue;
                 }
-                //子节点
-                String label = node.getLabels().iterator().next().name();
-                if (label.equals(Labels.RTREE_BRANCH.name())) {
-                    for (Relationship relationship : node.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD)) {
-                        Node child = relationship.getEndNode();
-                        stack.push(child);
+                if (node.isChildLeaf(i)) {
+                    subtreeIds.add(node.getChildId(i));
+                    subtreeLeafs.add(true);
+                } else {
+                    queue.add(reader.getBranch(node.getChildId(i)));
+                }
+            }
+        }
+        //未展开的非叶子节点的子节点作为子树
+        for (BranchNode node : queue) {
+            for (int i = 0; i < node.size(); i++) {
+                if (node.intersects(i, bboxMin, bboxMax)) {
+                    subtreeIds.add(node.getChildId(i));
+                    subtreeLeafs.add(node.isChildLeaf(i));
+                }
+            }
+        }
+        if (subtreeIds.isEmpty()) {
+            return false;
+        }
+        //访问器会在各任务线程中被调用，所以在分发任务前加提交锁，之后索引不会再有提交，本次读取不会重试，结果不会重复
+        if (!reader.lockCommit()) {
+            return true;
+        }
+        //并行遍历子树，各任务分别计数，结束时合并
+        QueryStats stats = reader.getStats();
+        AtomicBoolean stop = new AtomicBoolean();
+        //正在执行的任务数，被取消的任务可能仍在执行，返回前要等它们结束，保证返回后访问器不再被调用
+        AtomicInteger running = new AtomicInteger();
+        Queue<ForkJoinTask<?>> tasks = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < subtreeIds.size() && !stop.get(); i++) {
+            String subtreeId = subtreeIds.get(i);
+            boolean leaf = subtreeLeafs.get(i);
+            tasks.add(pool.submit(() -> {
+                running.incrementAndGet();
+                try {
+                    if (stop.get()) {
+                        return;
                     }
-                } else if (label.equals(Labels.RTREE_LEAF.name())) {
-                    Map<String, Object> properties = node.getAllProperties();
-                    int size = (int) properties.get(PropertyNames.size);
-                    for (int i = 0; i < size; i++) {
-                        double[] rMin = (double[]) properties.get(PropertyNames.entryMin + i);
-                        double[] rMax = (double[]) properties.get(PropertyNames.entryMax + i);
-                        RectNd dataMbr = new RectNd(rMin, rMax);
-                        if (bbox.intersects(dataMbr)) {
-                            if (visitor.visit((String) properties.get(PropertyNames.entryDataId + i))) {
-                                return;
+                    QueryStats taskStats = stats.fork();
+                    try (Transaction tx = txBuilder.beginTx()) {
+                        TreeReader subtreeReader = new TreeReader(tx, metadataNodeId, name, taskStats);
+                        boolean stopped;
+                        if (leaf) {
+                            stopped = visitLeaf(subtreeReader.getLeaf(subtreeId), Relation.INTERSECTS, bboxMin, bboxMax, visitor, stop);
+                        } else {
+                            stopped = search(subtreeReader, subtreeReader.getBranch(subtreeId), Relation.INTERSECTS, bboxMin, bboxMax, visitor, stop);
+                        }
+                        if (stopped && stop.compareAndSet(false, true)) {
+                            for (ForkJoinTask<?> task : tasks) {
+                                task.cancel(false);
                             }
                         }
+                    } finally {
+                        stats.merge(taskStats);
+                    }
+                } finally {
+                    synchronized (running) {
+                        if (running.decrementAndGet() == 0) {
+                            running.notifyAll();
+                        }
                     }
                 }
-            } while (!stack.isEmpty());
-        } finally {
-            readLock.unlock();
+            }));
+        }
+        RuntimeException exception = null;
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (CancellationException e) {
+                //访问器要求终止遍历，任务被取消
+            } catch (RuntimeException e) {
+                //有任务出错，取消其它任务，等待正在执行的任务结束后抛出
+                if (null == exception) {
+                    exception = e;
+                    stop.set(true);
+                    for (ForkJoinTask<?> t : tasks) {
+                        t.cancel(false);
+                    }
+                }
+            }
         }
+        synchronized (running) {
+            while (running.get() > 0) {
+                try {
+                    running.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        if (null != exception) {
+            throw exception;
+        }
+        return stop.get();
+    }
 
+    /**
+     * 从一个非叶子节点向下深度优先遍历
+     *
+     * @param stop 其它线程要求终止遍历的标志，为null时不检查
+     * @return 是否终止了遍历
+     */
+    private static boolean search(TreeReader reader, BranchNode start, Relation relation, double[] bboxMin, double[] bboxMax,
+                                  BooleanDataNodeVisitor visitor, AtomicBoolean stop) {
+        ArrayDeque<BranchNode> stack = new ArrayDeque<>();
+        stack.push(start);
+        do {
+            if (null != stop && stop.get()) {
+                return true;
+            }
+            BranchNode node = stack.pop();
+            for (int i = 0; i < node.size(); i++) {
+                //判断子节点中是否可能有满足条件的数据
+                if (!relation.matchChild(node, i, bboxMin, bboxMax)) {
+                    continue;
+                }
+                if (node.isChildLeaf(i)) {
+                    if (visitLeaf(reader.getLeaf(node.getChildId(i)), relation, bboxMin, bboxMax, visitor, stop)) {
+                        return true;
+                    }
+                } else {
+                    stack.push(reader.getBranch(node.getChildId(i)));
+                }
+            }
+        } while (!stack.isEmpty());
+        return false;
+    }
+
+    private static boolean visitLeaf(LeafEntries entries, Relation relation, double[] bboxMin, double[] bboxMax,
+                                     BooleanDataNodeVisitor visitor, AtomicBoolean stop) {
+        for (int j = 0; j < entries.size(); j++) {
+            if (relation.matchEntry(entries, j, bboxMin, bboxMax)) {
+                if (null != stop && stop.get()) {
+                    return true;
+                }
+                if (visitor.visit(entries.getDataNodeId(j))) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     public String getMetadataNodeId() {
         return metadataNodeId;
     }
+
+    /**
+     * 查询的空间关系，分别定义了如何判断子树和叶子节点中的元素
+     */
+    private enum Relation {
+        INTERSECTS {
+            @Override
+            boolean matchChild(BranchNode node, int i, double[] min, double[] max) {
+                return node.intersects(i, min, max);
+            }
+
+            @Override
+            boolean matchEntry(LeafEntries entries, int j, double[] min, double[] max) {
+                return entries.intersects(j, min, max);
+            }
+        },
+        CONTAINS {
+            //元素包含bbox，则其所在的各层子树的mbr也必然包含bbox
+            @Override
+            boolean matchChild(BranchNode node, int i, double[] min, double[] max) {
+                return node.contains(i, min, max);
+            }
+
+            @Override
+            boolean matchEntry(LeafEntries entries, int j, double[] min, double[] max) {
+                return entries.contains(j, min, max);
+            }
+        },
+        WITHIN {
+            //子树的mbr只要与bbox相交，其中就可能有在bbox内的元素
+            @Override
+            boolean matchChild(BranchNode node, int i, double[] min, double[] max) {
+                return node.intersects(i, min, max);
+            }
+
+            @Override
+            boolean matchEntry(LeafEntries entries, int j, double[] min, double[] max) {
+                return entries.within(j, min, max);
+            }
+        };
+
+        abstract boolean matchChild(BranchNode node, int i, double[] min, double[] max);
+
+        abstract boolean matchEntry(LeafEntries entries, int j, double[] min, double[] max);
+    }
 }
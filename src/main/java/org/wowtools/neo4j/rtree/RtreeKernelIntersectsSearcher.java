@@ -0,0 +1,259 @@
+package org.wowtools.neo4j.rtree;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.internal.kernel.api.NodeCursor;
+import org.neo4j.internal.kernel.api.PropertyCursor;
+import org.neo4j.internal.kernel.api.Read;
+import org.neo4j.internal.kernel.api.RelationshipTraversalCursor;
+import org.neo4j.internal.kernel.api.TokenRead;
+import org.neo4j.io.pagecache.context.CursorContext;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+import org.neo4j.storageengine.api.PropertySelection;
+import org.neo4j.storageengine.api.RelationshipSelection;
+import org.neo4j.values.storable.DoubleArray;
+import org.neo4j.values.storable.TextArray;
+import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
+import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.internal.read.ConsistentRead;
+import org.wowtools.neo4j.rtree.internal.read.DedupVisitor;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
+import org.wowtools.neo4j.rtree.metrics.QueryStats;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+import org.wowtools.neo4j.rtree.util.BooleanDataNodeVisitor;
+
+import java.util.Arrays;
+
+/**
+ * 基于neo4j kernel api的相交关系查询器，功能与RtreeIntersectsSearcher相同。
+ * 直接用NodeCursor、RelationshipTraversalCursor、PropertyCursor遍历树，label、关系类型、属性名的token在查询器内只解析一次，
+ * 节点以long型id入栈，不创建Node、Relationship对象，也不做label名称的字符串比较，结果集较大时每个节点的开销明显更低。
+ * 注意kernel api并非neo4j的公开api，升级neo4j版本时可能需要随之调整；事务必须是neo4j内部实现的InternalTransaction。
+ * 此对象非线程安全
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class RtreeKernelIntersectsSearcher {
+
+    private final String name;
+    private final String metadataElementId;
+    private final long metadataNodeId;
+
+    private int leafLabel = TokenRead.NO_TOKEN;
+    private RelationshipSelection rootSelection;
+    private RelationshipSelection childSelection;
+    private int mbrMinKey = TokenRead.NO_TOKEN;
+    private int mbrMaxKey = TokenRead.NO_TOKEN;
+    private int entryMbrsKey = TokenRead.NO_TOKEN;
+    private int entryDataIdsKey = TokenRead.NO_TOKEN;
+    private PropertySelection branchSelection;
+    private PropertySelection entrySelection;
+    private boolean tokensComplete;
+
+    private RtreeKernelIntersectsSearcher(String name, String metadataElementId, long metadataNodeId) {
+        this.name = name;
+        this.metadataElementId = metadataElementId;
+        this.metadataNodeId = metadataNodeId;
+    }
+
+    /**
+     * 获取查询器
+     *
+     * @param tx   事务 此事务需要在外部手动关闭
+     * @param name 索引名
+     * @return RtreeKernelIntersectsSearcher
+     */
+    public static RtreeKernelIntersectsSearcher get(Transaction tx, String name) {
+        Node metadataNode = tx.findNode(Labels.METADATA, "name", name);
+        if (null == metadataNode) {
+            throw new RuntimeException("索引 " + name + " 不存在");
+        }
+        String metadataElementId = metadataNode.getElementId();
+        long metadataNodeId = internalTransaction(tx).elementIdMapper().nodeId(metadataElementId);
+        RtreeKernelIntersectsSearcher searcher = new RtreeKernelIntersectsSearcher(name, metadataElementId, metadataNodeId);
+        searcher.resolveTokens(internalTransaction(tx).kernelTransaction().tokenRead());
+        return searcher;
+    }
+
+    private static InternalTransaction internalTransaction(Transaction tx) {
+        if (!(tx instanceof InternalTransaction)) {
+            throw new RuntimeException("不支持的事务类型 " + tx.getClass().getName());
+        }
+        return (InternalTransaction) tx;
+    }
+
+    /**
+     * 解析token。索引为空或很小时部分token可能尚未创建，此时每次查询重新解析，直到全部token都已创建
+     *
+     * @return 是否可以查询，为false时索引为空
+     */
+    private boolean resolveTokens(TokenRead tokenRead) {
+        if (tokensComplete) {
+            return true;
+        }
+        int rootType = tokenRead.relationshipType(Relationships.RTREE_METADATA_TO_ROOT.name());
+        int childType = tokenRead.relationshipType(Relationships.RTREE_PARENT_TO_CHILD.name());
+        leafLabel = tokenRead.nodeLabel(Labels.RTREE_LEAF.name());
+        mbrMinKey = tokenRead.propertyKey(PropertyNames.mbrMin);
+        mbrMaxKey = tokenRead.propertyKey(PropertyNames.mbrMax);
+        entryMbrsKey = tokenRead.propertyKey(PropertyNames.entryMbrs);
+        entryDataIdsKey = tokenRead.propertyKey(PropertyNames.entryDataIds);
+        if (rootType == TokenRead.NO_TOKEN || leafLabel == TokenRead.NO_TOKEN
+                || mbrMinKey == TokenRead.NO_TOKEN || mbrMaxKey == TokenRead.NO_TOKEN) {
+            return false;
+        }
+        rootSelection = RelationshipSelection.selection(rootType, Direction.OUTGOING);
+        //只有一个叶子节点的树没有RTREE_PARENT_TO_CHILD关系
+        childSelection = childType == TokenRead.NO_TOKEN ? RelationshipSelection.NO_RELATIONSHIPS : RelationshipSelection.selection(childType, Direction.OUTGOING);
+        branchSelection = PropertySelection.selection(mbrMinKey, mbrMaxKey);
+        //旧格式的叶子节点没有entryMbrs、entryDataIds
+        entrySelection = entryMbrsKey == TokenRead.NO_TOKEN || entryDataIdsKey == TokenRead.NO_TOKEN ?
+                null : PropertySelection.selection(entryMbrsKey, entryDataIdsKey);
+        tokensComplete = childType != TokenRead.NO_TOKEN && entryMbrsKey != TokenRead.NO_TOKEN && entryDataIdsKey != TokenRead.NO_TOKEN;
+        return true;
+    }
+
+    /**
+     * 相交查询
+     *
+     * @param bbox    查询的bbox范围
+     * @param tx      事务 此事务需要在外部手动关闭
+     * @param visitor 结果访问器
+     */
+    public void intersects(RectNd bbox, Transaction tx, BooleanDataNodeVisitor visitor) {
+        InternalTransaction internalTransaction = internalTransaction(tx);
+        double[] bboxMin = bbox.getMinXs();
+        double[] bboxMax = bbox.getMaxXs();
+        DedupVisitor dedupVisitor = new DedupVisitor(visitor);
+        ConsistentRead.read(tx, metadataElementId, name, "kernelIntersects", reader -> {
+            dedupVisitor.beginAttempt(reader);
+            return search(internalTransaction, bboxMin, bboxMax, dedupVisitor, reader.getStats());
+        });
+    }
+
+    /**
+     * @return 是否终止了遍历
+     */
+    private boolean search(InternalTransaction tx, double[] bboxMin, double[] bboxMax, BooleanDataNodeVisitor visitor, QueryStats stats) {
+        KernelTransaction ktx = tx.kernelTransaction();
+        if (!resolveTokens(ktx.tokenRead())) {
+            return false;
+        }
+        Read read = ktx.dataRead();
+        CursorContext cursorContext = ktx.cursorContext();
+        try (NodeCursor nodeCursor = ktx.cursors().allocateNodeCursor(cursorContext);
+             RelationshipTraversalCursor relationshipCursor = ktx.cursors().allocateRelationshipTraversalCursor(cursorContext);
+             PropertyCursor propertyCursor = ktx.cursors().allocatePropertyCursor(cursorContext, ktx.memoryTracker())) {
+            long[] stack = new long[64];
+            int top = 0;
+            //根节点
+            read.singleNode(metadataNodeId, nodeCursor);
+            if (!nodeCursor.next()) {
+                return false;
+            }
+            nodeCursor.relationships(relationshipCursor, rootSelection);
+            while (relationshipCursor.next()) {
+                stack[top++] = relationshipCursor.otherNodeReference();
+            }
+            while (top > 0) {
+                long nodeId = stack[--top];
+                read.singleNode(nodeId, nodeCursor);
+                if (!nodeCursor.next()) {
+                    //节点已被并发的提交删除，ConsistentRead校验版本号时会发现并重试
+                    continue;
+                }
+                DoubleArray min = null, max = null;
+                nodeCursor.properties(propertyCursor, branchSelection);
+                while (propertyCursor.next()) {
+                    int key = propertyCursor.propertyKey();
+                    if (key == mbrMinKey) {
+                        min = (DoubleArray) propertyCursor.propertyValue();
+                    } else if (key == mbrMaxKey) {
+                        max = (DoubleArray) propertyCursor.propertyValue();
+                    }
+                }
+                //判断当前节点是否与bbox相交，不相交的叶子节点不读取其元素
+                if (null == min || null == max || !intersects(min, max, bboxMin, bboxMax)) {
+                    continue;
+                }
+                boolean isLeaf = nodeCursor.hasLabel(leafLabel);
+                DoubleArray entryMbrs = null;
+                TextArray entryDataIds = null;
+                if (isLeaf && null != entrySelection) {
+                    nodeCursor.properties(propertyCursor, entrySelection);
+                    while (propertyCursor.next()) {
+                        int key = propertyCursor.propertyKey();
+                        if (key == entryMbrsKey) {
+                            entryMbrs = (DoubleArray) propertyCursor.propertyValue();
+                        } else if (key == entryDataIdsKey) {
+                            entryDataIds = (TextArray) propertyCursor.propertyValue();
+                        }
+                    }
+                }
+                if (!isLeaf) {
+                    stats.incBranchRead(false);
+                    nodeCursor.relationships(relationshipCursor, childSelection);
+                    while (relationshipCursor.next()) {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, top * 2);
+                        }
+                        stack[top++] = relationshipCursor.otherNodeReference();
+                    }
+                } else if (null != entryDataIds) {
+                    stats.incLeafRead(entryDataIds.length());
+                    if (visitLeaf(entryMbrs, entryDataIds, bboxMin, bboxMax, visitor)) {
+                        return true;
+                    }
+                } else {
+                    //旧格式的叶子节点
+                    Node leaf = tx.getNodeByElementId(tx.elementIdMapper().nodeElementId(nodeId));
+                    LeafEntries entries = LeafEntries.read(leaf);
+                    stats.incLeafRead(entries.size());
+                    for (int i = 0; i < entries.size(); i++) {
+                        if (entries.intersects(i, bboxMin, bboxMax)) {
+                            if (visitor.visit(entries.getDataNodeId(i))) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean visitLeaf(DoubleArray entryMbrs, TextArray entryDataIds, double[] bboxMin, double[] bboxMax, BooleanDataNodeVisitor visitor) {
+        int size = entryDataIds.length();
+        if (size == 0) {
+            return false;
+        }
+        int nDim = entryMbrs.length() / size / 2;
+        for (int i = 0; i < size; i++) {
+            int offset = i * nDim * 2;
+            boolean intersects = true;
+            for (int d = 0; d < nDim; d++) {
+                if (entryMbrs.doubleValue(offset + d) > bboxMax[d] || bboxMin[d] > entryMbrs.doubleValue(offset + nDim + d)) {
+                    intersects = false;
+                    break;
+                }
+            }
+            if (intersects && visitor.visit(entryDataIds.stringValue(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean intersects(DoubleArray min, DoubleArray max, double[] bboxMin, double[] bboxMax) {
+        for (int d = 0; d < bboxMin.length; d++) {
+            if (min.doubleValue(d) > bboxMax[d] || bboxMin[d] > max.doubleValue(d)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,17 +1,19 @@
 package org.wowtools.neo4j.rtree;
 
 import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
-import org.wowtools.neo4j.rtree.internal.RtreeLock;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
-import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.internal.nearest.NearestIterator;
+import org.wowtools.neo4j.rtree.internal.read.ConsistentRead;
 import org.wowtools.neo4j.rtree.util.DistanceResult;
 import org.wowtools.neo4j.rtree.util.NearestNeighbour;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 最邻近搜索器
@@ -21,13 +23,13 @@ import java.util.concurrent.locks.Lock;
  */
 public class RtreeNearestSearcher<T extends DistanceResult> {
 
+    private final String name;
     private final String metadataNodeId;
-    private final Lock readLock;
 
 
-    private RtreeNearestSearcher(String metadataNodeId, Lock readLock) {
+    private RtreeNearestSearcher(String name, String metadataNodeId) {
+        this.name = name;
         this.metadataNodeId = metadataNodeId;
-        this.readLock = readLock;
     }
 
 
@@ -44,8 +46,7 @@ public class RtreeNearestSearcher<T extends DistanceResult> {
             throw new RuntimeException("索引 " + name + " 不存在");
         }
         String metadataNodeId = metadataNode.getElementId();
-        Lock readLock = RtreeLock.getUseReadWriteLock(name).readLock();
-        RtreeNearestSearcher searcher = new RtreeNearestSearcher(metadataNodeId, readLock);
+        RtreeNearestSearcher searcher = new RtreeNearestSearcher(name, metadataNodeId);
         return searcher;
     }
 
@@ -58,19 +59,32 @@ public class RtreeNearestSearcher<T extends DistanceResult> {
      * @return RtreeNearestSearcher
      */
     public List<T> nearest(NearestNeighbour<T> nearestNeighbour, Transaction tx) {
-        readLock.lock();
-        try {
-            Node metadataNode = tx.getNodeByElementId(metadataNodeId);
-            Iterator<Relationship> iterator = metadataNode.getRelationships(Relationships.RTREE_METADATA_TO_ROOT).iterator();
-            if (!iterator.hasNext()) {
-                return List.of();
-            }
-            Node root = iterator.next().getEndNode();
-            List<T> res = nearestNeighbour.find(root);
-            return res;
-        } finally {
-            readLock.unlock();
-        }
+        return ConsistentRead.read(tx, metadataNodeId, name, "nearest", nearestNeighbour::find);
+    }
+
+    /**
+     * 增量最邻近查询。按距离由近到远逐个返回结果，每次取下一个结果时才展开必要的树节点，
+     * 调用者可以在得到满意的结果后随时停止，而不必事先确定要查询的条数
+     *
+     * @param nearestNeighbour 最邻近查询函数，最多返回其maxHits个结果，可用不带maxHits的构造方法构造以不限制条数
+     * @param tx               事务 此事务需要在外部手动关闭，且迭代完成前不能关闭
+     * @return 按距离由近到远排列的结果迭代器
+     */
+    public Iterator<T> nearestIterator(NearestNeighbour<T> nearestNeighbour, Transaction tx) {
+        return new NearestIterator<>(nearestNeighbour, tx, metadataNodeId, name);
+    }
+
+    /**
+     * 增量最邻近查询，同nearestIterator，以Stream的形式返回，
+     * 例如 nearestStream(nn, tx).filter(...).findFirst() 查询满足条件的最近的结果
+     *
+     * @param nearestNeighbour 最邻近查询函数，最多返回其maxHits个结果，可用不带maxHits的构造方法构造以不限制条数
+     * @param tx               事务 此事务需要在外部手动关闭，且Stream消费完成前不能关闭
+     * @return 按距离由近到远排列的结果Stream
+     */
+    public Stream<T> nearestStream(NearestNeighbour<T> nearestNeighbour, Transaction tx) {
+        Iterator<T> iterator = nearestIterator(nearestNeighbour, tx);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
 }
@@ -0,0 +1,33 @@
+package org.wowtools.neo4j.rtree;
+
+import org.wowtools.neo4j.rtree.internal.read.BranchCache;
+
+/**
+ * 索引节点缓存开关。
+ * 开启后，查询时读取到的非叶子节点(mbr及子节点信息)会缓存在内存中被各查询事务共享，
+ * 树的上层节点不必每次都从neo4j读取和解码；索引每次提交变更后缓存自动失效。默认不开启
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class RtreeNodeCache {
+
+    /**
+     * 为索引开启缓存
+     *
+     * @param name    索引名
+     * @param maxSize 最多缓存的非叶子节点数，缓存满后不再放入新节点
+     */
+    public static void enable(String name, int maxSize) {
+        BranchCache.enable(name, maxSize);
+    }
+
+    /**
+     * 关闭索引的缓存
+     *
+     * @param name 索引名
+     */
+    public static void disable(String name) {
+        BranchCache.disable(name);
+    }
+}
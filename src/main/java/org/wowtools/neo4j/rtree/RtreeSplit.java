@@ -0,0 +1,20 @@
+package org.wowtools.neo4j.rtree;
+
+/**
+ * 索引的插入和节点分裂策略，新建索引时指定，记录在索引的METADATA节点上
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public enum RtreeSplit {
+    /**
+     * 沿mbr最长的维度按中心点排序后对半分裂，插入快，默认策略
+     */
+    AXIAL,
+    /**
+     * R*-tree策略：叶子节点首次溢出时先将离中心最远的部分元素重新插入，仍溢出时按周长之和最小选择分裂维度、
+     * 按重叠面积最小选择分裂位置；选择子节点时优先使兄弟节点间重叠增量最小。
+     * 插入稍慢，但兄弟节点间重叠更小，查询时需要向下展开的节点更少
+     */
+    RSTAR
+}
@@ -0,0 +1,24 @@
+package org.wowtools.neo4j.rtree.geometry2d;
+
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * geometry空间连接结果访问器，返回true时，终止接下来的遍历
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@FunctionalInterface
+public interface BooleanGeometryDataNodePairVisitor {
+
+    /**
+     * 访问到一对相交的数据节点时触发此方法
+     *
+     * @param nodeIdA    索引A中的数据节点id
+     * @param geometryA  索引A中的数据节点的geometry
+     * @param nodeIdB    索引B中的数据节点id
+     * @param geometryB  索引B中的数据节点的geometry
+     * @return 返回true时，终止接下来的遍历
+     */
+    boolean visit(String nodeIdA, Geometry geometryA, String nodeIdB, Geometry geometryB);
+}
@@ -108,6 +108,67 @@ public class Geometry2dQueryFunction {
         return ProtoFeatureConverter.featureCollection2Proto(featureCollection);
     }
 
+    @UserFunction("nr.g2d.geoContains")
+    @Description("传入索引名(indexName)、一个wkt字符串描述的geometry(wkt)、需要返回的属性(propertyNames)，查询包含geometry的节点，并转为ProtoFeature bytes范围")
+    public byte[] geoContains(@Name("indexName") String indexName,
+                              @Name("wkt") String wkt,
+                              @Name("propertyNames") List<String> propertyNames) {
+        return geoQuery(indexName, wkt, propertyNames, (searcher, geometry, tx, visitor) -> searcher.contains(geometry, tx, visitor));
+    }
+
+    @UserFunction("nr.g2d.geoCovers")
+    @Description("传入索引名(indexName)、一个wkt字符串描述的geometry(wkt)、需要返回的属性(propertyNames)，查询覆盖geometry的节点，并转为ProtoFeature bytes范围")
+    public byte[] geoCovers(@Name("indexName") String indexName,
+                            @Name("wkt") String wkt,
+                            @Name("propertyNames") List<String> propertyNames) {
+        return geoQuery(indexName, wkt, propertyNames, (searcher, geometry, tx, visitor) -> searcher.covers(geometry, tx, visitor));
+    }
+
+    @UserFunction("nr.g2d.geoWithin")
+    @Description("传入索引名(indexName)、一个wkt字符串描述的geometry(wkt)、需要返回的属性(propertyNames)，查询在geometry内的节点，并转为ProtoFeature bytes范围")
+    public byte[] geoWithin(@Name("indexName") String indexName,
+                            @Name("wkt") String wkt,
+                            @Name("propertyNames") List<String> propertyNames) {
+        return geoQuery(indexName, wkt, propertyNames, (searcher, geometry, tx, visitor) -> searcher.within(geometry, tx, visitor));
+    }
+
+    /**
+     * 以wkt描述的geometry进行查询
+     */
+    private interface GeoQuery {
+        void query(Geometry2dRtreeIntersectsSearcher searcher, Geometry geometry, Transaction tx, FeatureVisitor visitor);
+    }
+
+    private byte[] geoQuery(String indexName, String wkt, List<String> propertyNames, GeoQuery geoQuery) {
+        Geometry inputGeometry;
+        try {
+            inputGeometry = new WKTReader().read(wkt);
+        } catch (Exception e) {
+            throw new RuntimeException("解析wkt失败", e);
+        }
+        String[] propertyKeys = new String[propertyNames.size()];
+        propertyNames.toArray(propertyKeys);
+        List<Feature> features;
+        try (Transaction tx = graphDb.beginTx()) {
+            FeatureVisitor visitor = new FeatureVisitor(tx, propertyKeys);
+            Geometry2dRtreeIntersectsSearcher searcher = Geometry2dRtreeIntersectsSearcher.get(tx, indexName);
+            geoQuery.query(searcher, inputGeometry, tx, visitor);
+            features = visitor.features;
+        }
+        FeatureCollection featureCollection = new FeatureCollection();
+        featureCollection.setFeatures(features);
+        return ProtoFeatureConverter.featureCollection2Proto(featureCollection);
+    }
+
+    @UserFunction("nr.g2d.withinDistance")
+    @Description("传入索引名(indexName)、一个wkt字符串描述的geometry(wkt)、距离(distance)、需要返回的属性(propertyNames)，查询与geometry距离不超过distance的节点，并转为ProtoFeature bytes范围")
+    public byte[] withinDistance(@Name("indexName") String indexName,
+                                 @Name("wkt") String wkt,
+                                 @Name("distance") double distance,
+                                 @Name("propertyNames") List<String> propertyNames) {
+        return geoQuery(indexName, wkt, propertyNames, (searcher, geometry, tx, visitor) -> searcher.withinDistance(geometry, distance, tx, visitor));
+    }
+
     @UserFunction("nr.g2d.nearest")
     @Description("传入索引名(indexName)、一个点(x、y)、最大返回条数(n)、需要返回的属性(propertyNames)，查询距离点最近的n条数据，若数据量不足，返回数量可能少于n")
     public byte[] nearest(@Name("indexName") String indexName,
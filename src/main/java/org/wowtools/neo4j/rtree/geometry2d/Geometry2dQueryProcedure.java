@@ -0,0 +1,103 @@
+package org.wowtools.neo4j.rtree.geometry2d;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.procedure.Context;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
+
+import java.util.stream.Stream;
+
+/**
+ * 以存储过程的形式提供查询，与Geometry2dQueryFunction不同，结果随遍历逐行返回，不会在内存中汇总成一个大的结果，
+ * 且可以在cypher中与MATCH等语句组合使用，如
+ * CALL nr.g2d.stream.geoIntersects('index', 'POLYGON(...)', 100) YIELD node MATCH (node)-[:R]->(x) RETURN x
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class Geometry2dQueryProcedure {
+
+    @Context
+    public Transaction tx;
+
+    /**
+     * 存储过程返回的一行结果
+     */
+    public static final class GeometryRecord {
+        /**
+         * 数据节点
+         */
+        public Node node;
+        /**
+         * 与输入点的距离，仅最邻近查询有值
+         */
+        public Double distance;
+        /**
+         * 数据节点的geometry，wkt格式
+         */
+        public String geometry;
+
+        public GeometryRecord(Node node, Double distance, Geometry geometry) {
+            this.node = node;
+            this.distance = distance;
+            this.geometry = geometry.toText();
+        }
+    }
+
+    @Procedure(name = "nr.g2d.stream.bboxIntersects", mode = Mode.READ)
+    @Description("传入索引名(indexName)、bbox范围(xmin、ymin、xmax、ymax)、最大返回条数(limit，小于等于0则不限制)，逐行返回与bbox相交的节点")
+    public Stream<GeometryRecord> bboxIntersects(@Name("indexName") String indexName,
+                                                 @Name("xmin") double xmin,
+                                                 @Name("ymin") double ymin,
+                                                 @Name("xmax") double xmax,
+                                                 @Name("ymax") double ymax,
+                                                 @Name(value = "limit", defaultValue = "0") long limit) {
+        Geometry geometry = Constant.geometryFactory.toGeometry(new Envelope(xmin, xmax, ymin, ymax));
+        return geoIntersects(indexName, geometry, limit);
+    }
+
+    @Procedure(name = "nr.g2d.stream.geoIntersects", mode = Mode.READ)
+    @Description("传入索引名(indexName)、一个wkt字符串描述的geometry(wkt)、最大返回条数(limit，小于等于0则不限制)，逐行返回与geometry相交的节点")
+    public Stream<GeometryRecord> geoIntersects(@Name("indexName") String indexName,
+                                                @Name("wkt") String wkt,
+                                                @Name(value = "limit", defaultValue = "0") long limit) {
+        Geometry inputGeometry;
+        try {
+            inputGeometry = new WKTReader().read(wkt);
+        } catch (Exception e) {
+            throw new RuntimeException("解析wkt失败", e);
+        }
+        return geoIntersects(indexName, inputGeometry, limit);
+    }
+
+    private Stream<GeometryRecord> geoIntersects(String indexName, Geometry geometry, long limit) {
+        Geometry2dRtreeIntersectsSearcher searcher = Geometry2dRtreeIntersectsSearcher.get(tx, indexName);
+        Stream<GeometryResult> stream = searcher.intersectsStream(geometry, tx);
+        if (limit > 0) {
+            stream = stream.limit(limit);
+        }
+        return stream.map(r -> new GeometryRecord(tx.getNodeByElementId(r.getDataNodeId()), null, r.getGeometry()));
+    }
+
+    @Procedure(name = "nr.g2d.stream.nearest", mode = Mode.READ)
+    @Description("传入索引名(indexName)、一个点(x、y)、最大返回条数(limit，小于等于0则不限制)、最大距离(maxDistance，小于0则不限制)，按距离由近到远逐行返回节点")
+    public Stream<GeometryRecord> nearest(@Name("indexName") String indexName,
+                                          @Name("x") double x,
+                                          @Name("y") double y,
+                                          @Name(value = "limit", defaultValue = "0") long limit,
+                                          @Name(value = "maxDistance", defaultValue = "-1") double maxDistance) {
+        int maxHits = limit > 0 ? (int) Math.min(limit, Integer.MAX_VALUE) : Integer.MAX_VALUE;
+        if (maxDistance < 0) {
+            maxDistance = Double.POSITIVE_INFINITY;
+        }
+        Geometry2dRtreeNearestSearcher searcher = Geometry2dRtreeNearestSearcher.get(tx, indexName);
+        return searcher.nearestStream(null, maxHits, maxDistance, x, y, tx)
+                .map(r -> new GeometryRecord(tx.getNodeByElementId(r.getDataNodeId()), r.getDist(), r.getGeometry()));
+    }
+}
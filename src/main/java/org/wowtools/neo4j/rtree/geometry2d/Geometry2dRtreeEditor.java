@@ -8,12 +8,17 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
 import org.wowtools.neo4j.rtree.RtreeEditor;
+import org.wowtools.neo4j.rtree.RtreeSplit;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
 import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
 import org.wowtools.neo4j.rtree.internal.edit.TxCell;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 import org.wowtools.neo4j.rtree.util.VoidDataNodeVisitor;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 /**
  * 二维geometry rtree编辑器，此对象实例化时，会启动一个事务，并在索引上加写锁，所以务必在结束时调用close方法
  *
@@ -67,7 +72,24 @@ public class Geometry2dRtreeEditor implements AutoCloseable {
      */
     public static Geometry2dRtreeEditor create(GraphDatabaseService graphdb, int commitLimit, String name, int mMin, int mMax,
                                                String geometryName) {
-        RtreeEditor rtreeEditor = RtreeEditor.create(graphdb, commitLimit, name, mMin, mMax);
+        return create(graphdb, commitLimit, name, mMin, mMax, geometryName, RtreeSplit.AXIAL);
+    }
+
+    /**
+     * 新建索引
+     *
+     * @param graphdb      neo4j db
+     * @param commitLimit  操作达到多少个顶点时执行提交操作
+     * @param name         索引名
+     * @param mMin         索引中每个节点最小子节点数
+     * @param mMax         索引中每个节点最大子节点数
+     * @param geometryName dataNode中geometry字段名
+     * @param split        索引的插入和节点分裂策略
+     * @return Geometry2dRtreeEditor
+     */
+    public static Geometry2dRtreeEditor create(GraphDatabaseService graphdb, int commitLimit, String name, int mMin, int mMax,
+                                               String geometryName, RtreeSplit split) {
+        RtreeEditor rtreeEditor = RtreeEditor.create(graphdb, commitLimit, name, mMin, mMax, split);
         try {
             String metadataNodeId = rtreeEditor.getrTree().getMetadataNodeId();
             Node metadataNode = rtreeEditor.getTxCell().getTx().getNodeByElementId(metadataNodeId);
@@ -94,7 +116,24 @@ public class Geometry2dRtreeEditor implements AutoCloseable {
      */
     public static Geometry2dRtreeEditor getOrCreate(GraphDatabaseService graphdb, int commitLimit, String name, int mMin, int mMax,
                                                     String geometryName) {
-        RtreeEditor rtreeEditor = RtreeEditor.getOrCreate(graphdb, commitLimit, name, mMin, mMax);
+        return getOrCreate(graphdb, commitLimit, name, mMin, mMax, geometryName, RtreeSplit.AXIAL);
+    }
+
+    /**
+     * 若指定名称的索引存在，获取索引，若不存在，则新建一个
+     *
+     * @param graphdb      neo4j db
+     * @param commitLimit  操作达到多少个顶点时执行提交操作
+     * @param name         索引名
+     * @param mMin         索引中每个节点最小子节点数，如索引已存在则使用现有值，此输入值失效
+     * @param mMax         索引中每个节点最大子节点数，如索引已存在则使用现有值，此输入值失效
+     * @param geometryName dataNode中geometry字段名，如索引已存在则使用现有值，此输入值失效
+     * @param split        索引的插入和节点分裂策略，如索引已存在则使用现有值，此输入值失效
+     * @return RtreeEditor
+     */
+    public static Geometry2dRtreeEditor getOrCreate(GraphDatabaseService graphdb, int commitLimit, String name, int mMin, int mMax,
+                                                    String geometryName, RtreeSplit split) {
+        RtreeEditor rtreeEditor = RtreeEditor.getOrCreate(graphdb, commitLimit, name, mMin, mMax, split);
         try {
             String metadataNodeId = rtreeEditor.getrTree().getMetadataNodeId();
             Node metadataNode = rtreeEditor.getTxCell().getTx().getNodeByElementId(metadataNodeId);
@@ -146,6 +185,9 @@ public class Geometry2dRtreeEditor implements AutoCloseable {
 
     private RectNd getNodeRectNdFromEntityNode(String dataNodeId) {
         Node node = rtreeEditor.getTxCell().getTx().findNode(Labels.RTREE_ENTITY, PropertyNames.entryDataId, dataNodeId);
+        if (null == node) {
+            return null;
+        }
         RectNd rectNd = new RectNd((double[])node.getProperty(PropertyNames.entryMin),(double[]) node.getProperty(PropertyNames.entryMax));
         return rectNd;
     }
@@ -165,25 +207,89 @@ public class Geometry2dRtreeEditor implements AutoCloseable {
     }
 
     /**
-     * 从索引中移除数据，注意不会删除数据节点，如需删除或其它操作应在自身业务代码中实现
+     * 批量向索引中添加数据，索引为空时一次性构建出整棵树，详见 RtreeEditor.bulkLoad
+     *
+     * @param dataNodeIds 数据节点neo4j id
+     * @see RtreeEditor#bulkLoad(Iterator)
+     */
+    public void bulkLoad(Iterator<String> dataNodeIds) {
+        rtreeEditor.bulkLoad(new Iterator<>() {
+            private RectNd next = fetch();
+
+            private RectNd fetch() {
+                while (dataNodeIds.hasNext()) {
+                    String dataNodeId = dataNodeIds.next();
+                    RectNd rectNd = getNodeRectNdFromDataNode(dataNodeId);
+                    if (null != rectNd) {
+                        rectNd.setDataNodeId(dataNodeId);
+                        return rectNd;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return null != next;
+            }
+
+            @Override
+            public RectNd next() {
+                if (null == next) {
+                    throw new NoSuchElementException();
+                }
+                RectNd res = next;
+                next = fetch();
+                return res;
+            }
+        });
+    }
+
+    /**
+     * 数据是否已在索引中
+     *
+     * @param dataNodeId 数据节点neo4j id
+     * @return 是否已在索引中
+     */
+    public boolean isIndexed(String dataNodeId) {
+        return null != rtreeEditor.getTxCell().getTx().findNode(Labels.RTREE_ENTITY, PropertyNames.entryDataId, dataNodeId);
+    }
+
+    /**
+     * 从索引中移除数据，注意不会删除数据节点，如需删除或其它操作应在自身业务代码中实现。
+     * 按索引中记录的bbox移除，所以数据节点已被删除或geometry已被修改时也能正确移除，数据不在索引中时不做处理
      *
      * @param dataNodeId 被移除的数据节点neo4j id
      */
     public void remove(String dataNodeId) {
-        RectNd rectNd = getNodeRectNdFromDataNode(dataNodeId);
+        RectNd rectNd = getNodeRectNdFromEntityNode(dataNodeId);
+        if (null == rectNd) {
+            return;
+        }
         rectNd.setDataNodeId(dataNodeId);
         rtreeEditor.remove(rectNd);
     }
 
     /**
-     * 修改现有数据
+     * 修改现有数据，数据不在索引中时添加，数据节点不存在或没有geometry时移除，bbox未变化时不做处理
      *
      * @param dataNodeId  数据节点neo4j id
      */
     public void update(String dataNodeId) {
         RectNd oldRectNd = getNodeRectNdFromEntityNode(dataNodeId);
+        if (null == oldRectNd) {
+            add(dataNodeId);
+            return;
+        }
         oldRectNd.setDataNodeId(dataNodeId);
         RectNd newRectNd = getNodeRectNdFromDataNode(dataNodeId);
+        if (null == newRectNd) {
+            rtreeEditor.remove(oldRectNd);
+            return;
+        }
+        if (Arrays.equals(oldRectNd.getMinXs(), newRectNd.getMinXs()) && Arrays.equals(oldRectNd.getMaxXs(), newRectNd.getMaxXs())) {
+            return;
+        }
         newRectNd.setDataNodeId(dataNodeId);
         rtreeEditor.update(oldRectNd, newRectNd);
     }
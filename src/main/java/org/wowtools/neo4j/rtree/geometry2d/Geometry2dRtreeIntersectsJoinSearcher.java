@@ -0,0 +1,120 @@
+package org.wowtools.neo4j.rtree.geometry2d;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.io.WKBReader;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.RtreeIntersectsJoinSearcher;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 二维geometry 两个索引间的相交连接查询器，先由RtreeIntersectsJoinSearcher同步遍历两棵树得到bbox相交的数据节点对，再判断geometry是否相交
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class Geometry2dRtreeIntersectsJoinSearcher {
+
+    /**
+     * 缓存的geometry数，一个数据节点通常会与另一个索引中相邻的若干数据节点组成候选对，缓存避免重复解析
+     */
+    private static final int geometryCacheSize = 1024;
+
+    private final String geometryNameA;
+    private final String geometryNameB;
+    private final RtreeIntersectsJoinSearcher rtreeIntersectsJoinSearcher;
+
+    private Geometry2dRtreeIntersectsJoinSearcher(String geometryNameA, String geometryNameB, RtreeIntersectsJoinSearcher rtreeIntersectsJoinSearcher) {
+        this.geometryNameA = geometryNameA;
+        this.geometryNameB = geometryNameB;
+        this.rtreeIntersectsJoinSearcher = rtreeIntersectsJoinSearcher;
+    }
+
+    /**
+     * 获取查询器
+     *
+     * @param tx    事务 此事务需要在外部手动关闭
+     * @param nameA 索引A的索引名
+     * @param nameB 索引B的索引名
+     * @return Geometry2dRtreeIntersectsJoinSearcher
+     */
+    public static Geometry2dRtreeIntersectsJoinSearcher get(Transaction tx, String nameA, String nameB) {
+        RtreeIntersectsJoinSearcher rtreeIntersectsJoinSearcher = RtreeIntersectsJoinSearcher.get(tx, nameA, nameB);
+        String geometryNameA = (String) tx.getNodeByElementId(rtreeIntersectsJoinSearcher.getMetadataNodeIdA()).getProperty(Constant.geometryNameKey);
+        String geometryNameB = (String) tx.getNodeByElementId(rtreeIntersectsJoinSearcher.getMetadataNodeIdB()).getProperty(Constant.geometryNameKey);
+        return new Geometry2dRtreeIntersectsJoinSearcher(geometryNameA, geometryNameB, rtreeIntersectsJoinSearcher);
+    }
+
+    /**
+     * 相交连接查询，每对geometry相交的数据节点访问一次
+     *
+     * @param tx      事务 此事务需要在外部手动关闭
+     * @param visitor 结果访问器
+     */
+    public void join(Transaction tx, BooleanGeometryDataNodePairVisitor visitor) {
+        //A侧的geometry会与多个B侧的geometry比较，预处理后缓存
+        Map<String, PreparedGeometry> cacheA = newCache();
+        Map<String, Geometry> cacheB = newCache();
+        WKBReader wkbReader = new WKBReader();
+        rtreeIntersectsJoinSearcher.join(tx, (nodeIdA, nodeIdB) -> {
+            PreparedGeometry geometryA = cacheA.get(nodeIdA);
+            if (null == geometryA) {
+                Geometry geometry = readGeometry(tx, wkbReader, nodeIdA, geometryNameA);
+                if (null == geometry) {
+                    return false;
+                }
+                geometryA = PreparedGeometryFactory.prepare(geometry);
+                cacheA.put(nodeIdA, geometryA);
+            }
+            Geometry geometryB = cacheB.get(nodeIdB);
+            if (null == geometryB) {
+                geometryB = readGeometry(tx, wkbReader, nodeIdB, geometryNameB);
+                if (null == geometryB) {
+                    return false;
+                }
+                cacheB.put(nodeIdB, geometryB);
+            }
+            if (geometryA.intersects(geometryB)) {
+                return visitor.visit(nodeIdA, geometryA.getGeometry(), nodeIdB, geometryB);
+            }
+            return false;
+        });
+    }
+
+    private static Geometry readGeometry(Transaction tx, WKBReader wkbReader, String nodeId, String geometryName) {
+        try {
+            Node node = null;
+            try {
+                node = tx.getNodeByElementId(nodeId);
+            } catch (NotFoundException e) {
+            }
+            if (null == node) {
+                return null;
+            }
+            byte[] wkb = (byte[]) node.getProperty(geometryName, null);
+            if (null == wkb) {
+                return null;
+            }
+            Geometry geometry = wkbReader.read(wkb);
+            RtreeMetrics.geometryParsed();
+            return geometry;
+        } catch (Exception e) {
+            throw new RuntimeException("解析node的geometry数据出错 ,节点id " + nodeId + " ,字段名" + geometryName, e);
+        }
+    }
+
+    private static <T> Map<String, T> newCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > geometryCacheSize;
+            }
+        };
+    }
+}
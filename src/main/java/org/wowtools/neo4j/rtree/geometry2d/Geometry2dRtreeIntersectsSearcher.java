@@ -1,15 +1,23 @@
 package org.wowtools.neo4j.rtree.geometry2d;
 
+import org.locationtech.jts.algorithm.locate.IndexedPointInAreaLocator;
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.operation.predicate.RectangleIntersects;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.Transaction;
 import org.wowtools.neo4j.rtree.RtreeIntersectsSearcher;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 import org.wowtools.neo4j.rtree.util.BooleanDataNodeVisitor;
 
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
 /**
  * 二维geometry 相交关系查询器
  *
@@ -77,28 +85,116 @@ public class Geometry2dRtreeIntersectsSearcher {
         rtreeIntersectsSearcher.intersects(bbox, tx, geoIntersects);
     }
 
-    private static final class GeometryBooleanDataNodeVisitor implements BooleanDataNodeVisitor {
-        private final Geometry geometry;
+    /**
+     * 增量相交查询，迭代时才继续遍历树和解析geometry，不会一次性把所有结果读入内存，
+     * 例如 intersectsStream(geometry, tx).limit(100) 只遍历到第100条结果
+     *
+     * @param geometry 检查是否与此geometry相交
+     * @param tx       事务 此事务需要在外部手动关闭，且Stream消费完成前不能关闭
+     * @return 与geometry相交的数据
+     */
+    public Stream<GeometryResult> intersectsStream(Geometry geometry, Transaction tx) {
+        RectNd bbox = GeometryBbox.getBbox(geometry).toRect2d();
+        GeometryBooleanDataNodeVisitor geoIntersects = new GeometryBooleanDataNodeVisitor(geometry, tx, null, geometryName);
+        return rtreeIntersectsSearcher.intersectsStream(bbox, tx)
+                .map(nodeId -> {
+                    Geometry nodeGeometry = geoIntersects.readMatched(nodeId);
+                    return null == nodeGeometry ? null : new GeometryResult(nodeId, nodeGeometry);
+                })
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * 包含查询，查询包含geometry的数据。只会进入mbr包含geometry的bbox的子树，再用contains精确判断
+     *
+     * @param geometry 查询的geometry
+     * @param tx       事务 此事务需要在外部手动关闭
+     * @param visitor  结果访问器
+     */
+    public void contains(Geometry geometry, Transaction tx, BooleanGeometryDataNodeVisitor visitor) {
+        RectNd bbox = GeometryBbox.getBbox(geometry).toRect2d();
+        PredicateDataNodeVisitor geoContains = new PredicateDataNodeVisitor(g -> g.contains(geometry), tx, visitor, geometryName);
+        rtreeIntersectsSearcher.contains(bbox, tx, geoContains);
+    }
+
+    /**
+     * 覆盖查询，查询覆盖geometry的数据，与contains的区别是geometry在数据边界上时也算覆盖
+     *
+     * @param geometry 查询的geometry
+     * @param tx       事务 此事务需要在外部手动关闭
+     * @param visitor  结果访问器
+     */
+    public void covers(Geometry geometry, Transaction tx, BooleanGeometryDataNodeVisitor visitor) {
+        RectNd bbox = GeometryBbox.getBbox(geometry).toRect2d();
+        PredicateDataNodeVisitor geoCovers = new PredicateDataNodeVisitor(g -> g.covers(geometry), tx, visitor, geometryName);
+        rtreeIntersectsSearcher.contains(bbox, tx, geoCovers);
+    }
+
+    /**
+     * 被包含查询，查询在geometry内的数据。只判断bbox在geometry的bbox内的数据，geometry预处理一次后用于所有候选数据的精确判断
+     *
+     * @param geometry 查询的geometry
+     * @param tx       事务 此事务需要在外部手动关闭
+     * @param visitor  结果访问器
+     */
+    public void within(Geometry geometry, Transaction tx, BooleanGeometryDataNodeVisitor visitor) {
+        RectNd bbox = GeometryBbox.getBbox(geometry).toRect2d();
+        PreparedGeometry preparedGeometry = PreparedGeometryFactory.prepare(geometry);
+        PredicateDataNodeVisitor geoWithin = new PredicateDataNodeVisitor(preparedGeometry::contains, tx, visitor, geometryName);
+        rtreeIntersectsSearcher.within(bbox, tx, geoWithin);
+    }
+
+    /**
+     * 距离查询，查询与geometry的距离不超过distance的数据。
+     * 以geometry的bbox向外扩展distance后的范围在树中筛选，再用isWithinDistance判断，不需要对geometry做buffer
+     *
+     * @param geometry 查询的geometry
+     * @param distance 距离
+     * @param tx       事务 此事务需要在外部手动关闭
+     * @param visitor  结果访问器
+     */
+    public void withinDistance(Geometry geometry, double distance, Transaction tx, BooleanGeometryDataNodeVisitor visitor) {
+        if (distance < 0) {
+            throw new RuntimeException("distance不能小于0: " + distance);
+        }
+        Envelope envelope = new Envelope(geometry.getEnvelopeInternal());
+        envelope.expandBy(distance);
+        RectNd bbox = new RectNd(new double[]{envelope.getMinX(), envelope.getMinY()}, new double[]{envelope.getMaxX(), envelope.getMaxY()});
+        WithinDistanceDataNodeVisitor geoWithinDistance = new WithinDistanceDataNodeVisitor(geometry, distance, tx, visitor, geometryName);
+        rtreeIntersectsSearcher.intersects(bbox, tx, geoWithinDistance);
+    }
+
+    /**
+     * 读取数据节点的geometry并判断是否满足条件的遍历器
+     */
+    private static abstract class GeometryDataNodeVisitor implements BooleanDataNodeVisitor {
         private final Transaction tx;
         private final BooleanGeometryDataNodeVisitor visitor;
         private final WKBReader wkbReader = new WKBReader();
         private final String geometryName;
-        private final boolean isRectangle;
-        private final boolean isGeometryCollection;
 
-        public GeometryBooleanDataNodeVisitor(Geometry geometry, Transaction tx, BooleanGeometryDataNodeVisitor visitor, String geometryName) {
-            this.geometry = geometry;
+        GeometryDataNodeVisitor(Transaction tx, BooleanGeometryDataNodeVisitor visitor, String geometryName) {
             this.tx = tx;
             this.visitor = visitor;
             this.geometryName = geometryName;
-            isRectangle = geometry.isRectangle();
-
-            isGeometryCollection = geometry instanceof GeometryCollection;
-
         }
 
         @Override
         public boolean visit(String nodeId) {
+            Geometry nodeGeometry = readMatched(nodeId);
+            if (null != nodeGeometry) {
+                return visitor.visit(nodeId, nodeGeometry);
+            }
+            return false;
+        }
+
+        /**
+         * 读取数据节点的geometry并判断是否满足查询条件
+         *
+         * @param nodeId 数据节点id
+         * @return 满足条件时返回geometry，否则返回null
+         */
+        Geometry readMatched(String nodeId) {
             Geometry nodeGeometry;
             try {
                 Node node = null;
@@ -107,20 +203,92 @@ public class Geometry2dRtreeIntersectsSearcher {
                 } catch (NotFoundException e) {
                 }
                 if (null == node) {
-                    return false;
+                    return null;
                 }
                 byte[] wkb = (byte[]) node.getProperty(geometryName,null);
                 if (null == wkb) {
-                    return false;
+                    return null;
                 }
                 nodeGeometry = wkbReader.read(wkb);
+                RtreeMetrics.geometryParsed();
             } catch (Exception e) {
                 throw new RuntimeException("解析node的geometry数据出错 ,节点id " + nodeId + " ,字段名" + geometryName, e);
             }
-            if (intersects(nodeGeometry)) {
-                return visitor.visit(nodeId, nodeGeometry);
+            return match(nodeGeometry) ? nodeGeometry : null;
+        }
+
+        /**
+         * @param g 数据节点的geometry
+         * @return 是否满足查询条件
+         */
+        protected abstract boolean match(Geometry g);
+    }
+
+    private static final class PredicateDataNodeVisitor extends GeometryDataNodeVisitor {
+        private final Predicate<Geometry> predicate;
+
+        PredicateDataNodeVisitor(Predicate<Geometry> predicate, Transaction tx, BooleanGeometryDataNodeVisitor visitor, String geometryName) {
+            super(tx, visitor, geometryName);
+            this.predicate = predicate;
+        }
+
+        @Override
+        protected boolean match(Geometry g) {
+            return predicate.test(g);
+        }
+    }
+
+    private static final class WithinDistanceDataNodeVisitor extends GeometryDataNodeVisitor {
+        private final Geometry geometry;
+        private final double distance;
+
+        WithinDistanceDataNodeVisitor(Geometry geometry, double distance, Transaction tx, BooleanGeometryDataNodeVisitor visitor, String geometryName) {
+            super(tx, visitor, geometryName);
+            this.geometry = geometry;
+            this.distance = distance;
+        }
+
+        @Override
+        protected boolean match(Geometry g) {
+            return geometry.isWithinDistance(g, distance);
+        }
+    }
+
+    private static final class GeometryBooleanDataNodeVisitor extends GeometryDataNodeVisitor {
+        private final Geometry geometry;
+        private final boolean isRectangle;
+        /**
+         * 查询geometry预处理后的对象，每次查询只构建一次，所有候选数据复用。若查询geometry是混合类型的GeometryCollection，则每个子对象各预处理一个
+         */
+        private final PreparedGeometry[] preparedGeometries;
+        /**
+         * 查询geometry是面时，用于快速判断点是否在面内
+         */
+        private final IndexedPointInAreaLocator pointLocator;
+
+        public GeometryBooleanDataNodeVisitor(Geometry geometry, Transaction tx, BooleanGeometryDataNodeVisitor visitor, String geometryName) {
+            super(tx, visitor, geometryName);
+            this.geometry = geometry;
+            isRectangle = geometry.isRectangle();
+            if (isRectangle) {
+                preparedGeometries = null;
+                pointLocator = null;
+                return;
             }
-            return false;
+            if (isMixedCollection(geometry)) {
+                preparedGeometries = new PreparedGeometry[geometry.getNumGeometries()];
+                for (int i = 0; i < preparedGeometries.length; i++) {
+                    preparedGeometries[i] = PreparedGeometryFactory.prepare(geometry.getGeometryN(i));
+                }
+            } else {
+                preparedGeometries = new PreparedGeometry[]{PreparedGeometryFactory.prepare(geometry)};
+            }
+            pointLocator = geometry instanceof Polygonal ? new IndexedPointInAreaLocator(geometry) : null;
+        }
+
+        @Override
+        protected boolean match(Geometry g) {
+            return intersects(g);
         }
 
         /**
@@ -140,18 +308,36 @@ public class Geometry2dRtreeIntersectsSearcher {
             if (g.isRectangle()) {
                 return RectangleIntersects.intersects((Polygon) g, geometry);
             }
-            if (isGeometryCollection || g instanceof GeometryCollection) {
-                for (int i = 0; i < geometry.getNumGeometries(); i++) {
-                    for (int j = 0; j < g.getNumGeometries(); j++) {
-                        if (geometry.getGeometryN(i).intersects(g.getGeometryN(j))) {
-                            return true;
-                        }
+            // point in area
+            if (null != pointLocator && g instanceof Point && !g.isEmpty()) {
+                return pointLocator.locate(g.getCoordinate()) != Location.EXTERIOR;
+            }
+            if (isMixedCollection(g)) {
+                for (int j = 0; j < g.getNumGeometries(); j++) {
+                    if (preparedIntersects(g.getGeometryN(j))) {
+                        return true;
                     }
                 }
                 return false;
             }
             // general case
-            return geometry.relate(g).isIntersects();
+            return preparedIntersects(g);
+        }
+
+        private boolean preparedIntersects(Geometry g) {
+            for (PreparedGeometry preparedGeometry : preparedGeometries) {
+                if (preparedGeometry.intersects(g)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * MultiPoint、MultiLineString、MultiPolygon可以直接参与相交判断，混合类型的GeometryCollection需要拆开判断
+         */
+        private static boolean isMixedCollection(Geometry g) {
+            return g.getClass() == GeometryCollection.class;
         }
     }
 }
@@ -0,0 +1,230 @@
+package org.wowtools.neo4j.rtree.geometry2d;
+
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListener;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二维geometry rtree自动维护器，绑定(标签,geometry字段,索引名)，监听事务提交，
+ * 将带有该标签的数据节点的新增、geometry修改、删除以及标签的增删自动同步到索引中，业务代码无需再调用Geometry2dRtreeEditor。
+ * <p>
+ * 提交线程只记录发生变化的数据节点id，由后台线程定期将积累的id合并后在一个编辑器会话中写入索引，
+ * 同一节点在两次写入之间的多次变化只按其最新状态处理一次，所以索引的更新相对于数据的提交有延迟(最多约一个flushInterval)，
+ * 需要立即可见时调用flush方法。
+ * <p>
+ * 使用结束时务必调用close方法
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@Slf4j
+public class Geometry2dRtreeMaintainer implements TransactionEventListener<Set<String>>, AutoCloseable {
+
+    private final DatabaseManagementService managementService;
+    private final String databaseName;
+    private final GraphDatabaseService graphdb;
+    private final Label label;
+    private final String geometryName;
+    private final String indexName;
+    private final int commitLimit;
+    private final ScheduledExecutorService executor;
+    /**
+     * 保证同一时刻只有一个线程在写入索引
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * 待写入索引的数据节点id
+     */
+    private Set<String> dirtyIds = new LinkedHashSet<>();
+
+    private volatile boolean closed;
+
+    private Geometry2dRtreeMaintainer(DatabaseManagementService managementService, String databaseName, Label label,
+                                      String geometryName, String indexName, int commitLimit) {
+        this.managementService = managementService;
+        this.databaseName = databaseName;
+        this.graphdb = managementService.database(databaseName);
+        this.label = label;
+        this.geometryName = geometryName;
+        this.indexName = indexName;
+        this.commitLimit = commitLimit;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Geometry2dRtreeMaintainer-" + indexName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 注册自动维护器，索引须已存在，注册前已有的数据节点不会被自动加入索引，需自行用Geometry2dRtreeEditor.bulkLoad等方法加入
+     *
+     * @param managementService neo4j DatabaseManagementService
+     * @param databaseName      数据库名
+     * @param label             数据节点的标签
+     * @param geometryName      数据节点中geometry字段名，应与索引的geometry字段名一致
+     * @param indexName         索引名
+     * @param commitLimit       写入索引时操作达到多少个顶点时执行提交操作
+     * @param flushInterval     两次写入索引的间隔，毫秒
+     * @return Geometry2dRtreeMaintainer
+     */
+    public static Geometry2dRtreeMaintainer register(DatabaseManagementService managementService, String databaseName, Label label,
+                                                     String geometryName, String indexName, int commitLimit, long flushInterval) {
+        Geometry2dRtreeMaintainer maintainer = new Geometry2dRtreeMaintainer(managementService, databaseName, label,
+                geometryName, indexName, commitLimit);
+        managementService.registerTransactionEventListener(databaseName, maintainer);
+        maintainer.executor.scheduleWithFixedDelay(maintainer::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        return maintainer;
+    }
+
+    /**
+     * 提交前在事务内找出需要同步的数据节点，此时节点仍可读取
+     */
+    @Override
+    public Set<String> beforeCommit(TransactionData data, Transaction transaction, GraphDatabaseService databaseService) {
+        Set<String> ids = new HashSet<>();
+        //标签的增删，被删除节点的标签也在removedLabels中
+        for (LabelEntry entry : data.assignedLabels()) {
+            if (entry.label().name().equals(label.name())) {
+                ids.add(entry.node().getElementId());
+            }
+        }
+        for (LabelEntry entry : data.removedLabels()) {
+            if (entry.label().name().equals(label.name())) {
+                ids.add(entry.node().getElementId());
+            }
+        }
+        //geometry的新增、修改、删除
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            collectGeometryChange(data, entry, ids);
+        }
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            collectGeometryChange(data, entry, ids);
+        }
+        return ids.isEmpty() ? null : ids;
+    }
+
+    private void collectGeometryChange(TransactionData data, PropertyEntry<Node> entry, Set<String> ids) {
+        if (!entry.key().equals(geometryName)) {
+            return;
+        }
+        Node node = entry.entity();
+        //被删除的节点已通过removedLabels记录
+        if (!data.isDeleted(node) && node.hasLabel(label)) {
+            ids.add(node.getElementId());
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, Set<String> ids, GraphDatabaseService databaseService) {
+        if (null == ids) {
+            return;
+        }
+        int size;
+        synchronized (this) {
+            dirtyIds.addAll(ids);
+            size = dirtyIds.size();
+        }
+        //积累的变化较多时不必等到下一个周期
+        if (size >= commitLimit && !closed) {
+            executor.execute(this::flushQuietly);
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, Set<String> ids, GraphDatabaseService databaseService) {
+    }
+
+    /**
+     * 立即将已提交的变化写入索引
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            Set<String> ids;
+            synchronized (this) {
+                if (dirtyIds.isEmpty()) {
+                    return;
+                }
+                ids = dirtyIds;
+                dirtyIds = new LinkedHashSet<>();
+            }
+            try {
+                write(ids);
+            } catch (Exception e) {
+                //未写入的id放回，下次重试，索引的编辑是幂等的，已写入的部分重复处理无影响
+                synchronized (this) {
+                    ids.addAll(dirtyIds);
+                    dirtyIds = ids;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("索引 {} 自动维护失败，将在下次重试", indexName, e);
+        }
+    }
+
+    private void write(Set<String> ids) {
+        try (Geometry2dRtreeEditor editor = Geometry2dRtreeEditor.get(graphdb, commitLimit, indexName)) {
+            for (String id : ids) {
+                if (isIndexable(editor, id)) {
+                    editor.update(id);
+                } else {
+                    editor.remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按数据节点的最新状态判断其是否应在索引中
+     */
+    private boolean isIndexable(Geometry2dRtreeEditor editor, String dataNodeId) {
+        Node node;
+        try {
+            node = editor.getTxCell().getTx().getNodeByElementId(dataNodeId);
+        } catch (NotFoundException e) {
+            return false;
+        }
+        return node.hasLabel(label) && node.hasProperty(geometryName);
+    }
+
+    /**
+     * 注销监听，并将剩余的变化写入索引
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        managementService.unregisterTransactionEventListener(databaseName, this);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
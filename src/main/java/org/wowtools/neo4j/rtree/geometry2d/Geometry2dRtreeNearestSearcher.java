@@ -10,6 +10,7 @@ import org.wowtools.neo4j.rtree.util.DistanceResultNodeFilter;
 import org.wowtools.neo4j.rtree.util.NearestNeighbour;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 二维geometry 最邻近搜索器
@@ -56,6 +57,42 @@ public class Geometry2dRtreeNearestSearcher {
      * @return GeometryDistanceResult list，包含了geometry、与输入点的距离、nodeId
      */
     public List<GeometryDistanceResult> nearest(DistanceResultNodeFilter filter, int maxHits, double x, double y, Transaction tx) {
+        return nearest(filter, maxHits, Double.POSITIVE_INFINITY, x, y, tx);
+    }
+
+    /**
+     * 最邻近查询。查询距离输入坐标 x y 的距离不超过maxDistance的最近的几个geometry。
+     * 只有按索引中存储的bbox算出的最小距离足够近的geometry才会被读取和解析，
+     * 不过滤时还会用bbox的MINMAXDIST估计第maxHits近距离的上界，提前排除更远的节点
+     *
+     * @param filter      过滤器，不满足条件的dataNode会被丢弃 ,为空则不进行过滤
+     * @param maxHits     最大返回条数
+     * @param maxDistance 最大距离，距离超过此值的geometry不会返回
+     * @param x           x
+     * @param y           y
+     * @param tx          事务 此事务需要在外部手动关闭
+     * @return GeometryDistanceResult list，包含了geometry、与输入点的距离、nodeId
+     */
+    public List<GeometryDistanceResult> nearest(DistanceResultNodeFilter filter, int maxHits, double maxDistance, double x, double y, Transaction tx) {
+        return rtreeNearestSearcher.nearest(newNearestNeighbour(filter, maxHits, maxDistance, x, y, tx), tx);
+    }
+
+    /**
+     * 增量最邻近查询，按距离由近到远逐个返回结果，取值时才继续展开树节点和解析geometry
+     *
+     * @param filter      过滤器，不满足条件的dataNode会被丢弃 ,为空则不进行过滤
+     * @param maxHits     最大返回条数，不限制时传Integer.MAX_VALUE
+     * @param maxDistance 最大距离，距离超过此值的geometry不会返回
+     * @param x           x
+     * @param y           y
+     * @param tx          事务 此事务需要在外部手动关闭，且Stream消费完成前不能关闭
+     * @return 按距离由近到远排列的GeometryDistanceResult Stream
+     */
+    public Stream<GeometryDistanceResult> nearestStream(DistanceResultNodeFilter filter, int maxHits, double maxDistance, double x, double y, Transaction tx) {
+        return rtreeNearestSearcher.nearestStream(newNearestNeighbour(filter, maxHits, maxDistance, x, y, tx), tx);
+    }
+
+    private NearestNeighbour<GeometryDistanceResult> newNearestNeighbour(DistanceResultNodeFilter filter, int maxHits, double maxDistance, double x, double y, Transaction tx) {
         PointNd pointNd = new PointNd(new double[]{x, y});
         WKBReader wkbReader = new WKBReader();
         if (null == filter) {
@@ -66,7 +103,14 @@ public class Geometry2dRtreeNearestSearcher {
             public GeometryDistanceResult createDistanceResult(PointNd pointNd, String dataNodeId) {
                 return GeometryDistanceResult.newInstance(tx, geometryName, wkbReader, pointNd, dataNodeId);
             }
+
+            @Override
+            public boolean isDistanceBoundedByMbr() {
+                //索引中的bbox是geometry的外包矩形，到geometry的距离不超过bbox的MINMAXDIST
+                return true;
+            }
         };
-        return rtreeNearestSearcher.nearest(nearestNeighbour, tx);
+        nearestNeighbour.setMaxDistance(maxDistance);
+        return nearestNeighbour;
     }
 }
@@ -7,6 +7,7 @@ import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKBReader;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
 import org.wowtools.neo4j.rtree.pojo.PointNd;
 import org.wowtools.neo4j.rtree.util.DistanceResult;
 
@@ -29,6 +30,7 @@ public class GeometryDistanceResult extends DistanceResult {
         Geometry geometry;
         try {
             geometry = wkbReader.read(wkb);
+            RtreeMetrics.geometryParsed();
         } catch (ParseException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,28 @@
+package org.wowtools.neo4j.rtree.geometry2d;
+
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * 查询结果，包含数据节点id与其geometry
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class GeometryResult {
+
+    private final String dataNodeId;
+    private final Geometry geometry;
+
+    public GeometryResult(String dataNodeId, Geometry geometry) {
+        this.dataNodeId = dataNodeId;
+        this.geometry = geometry;
+    }
+
+    public String getDataNodeId() {
+        return dataNodeId;
+    }
+
+    public Geometry getGeometry() {
+        return geometry;
+    }
+}
@@ -0,0 +1,62 @@
+package org.wowtools.neo4j.rtree.internal;
+
+import org.neo4j.graphdb.Transaction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 索引的版本号，用于无锁读和判断内存中缓存的节点是否过期。
+ * 提交事务前版本号加一变为奇数，提交后再加一变为偶数；
+ * 查询开始和结束时版本号相同且为偶数，说明查询期间没有提交，读到的是一棵完整的树
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class IndexVersion {
+    private static final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private static AtomicLong getVersion(String indexName) {
+        return versions.computeIfAbsent(indexName, k -> new AtomicLong());
+    }
+
+    /**
+     * @param indexName 索引名
+     * @return 索引当前版本号
+     */
+    public static long get(String indexName) {
+        return getVersion(indexName).get();
+    }
+
+    /**
+     * @param version 版本号
+     * @return 是否没有正在进行的提交
+     */
+    public static boolean isStable(long version) {
+        return (version & 1) == 0;
+    }
+
+    /**
+     * 提交修改了索引的事务，提交前后各将版本号加一
+     *
+     * @param indexName 索引名
+     * @param tx        事务
+     */
+    public static void commit(String indexName, Transaction tx) {
+        Lock lock = RtreeLock.getCommitLock(indexName).writeLock();
+        RtreeLock.lock(lock, indexName, "commit");
+        try {
+            AtomicLong version = getVersion(indexName);
+            version.incrementAndGet();
+            try {
+                tx.commit();
+            } finally {
+                version.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,31 +1,73 @@
 package org.wowtools.neo4j.rtree.internal;
 
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
+
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * 索引的锁，保证读写安全
+ * 索引的锁，保证读写安全。
+ * 查询不加锁，通过IndexVersion校验读取期间索引是否有提交，有则重试；
+ * 编辑器之间用写锁互斥；提交锁只在事务提交的瞬间加写锁，多次重试仍失败的查询会加读锁完成查询
  *
  * @author liuyu
  * @date 2021/12/24
  */
 public class RtreeLock {
-    private static final Map<String, ReadWriteLock> useReadWriteLocks = new HashMap<>();
+    private static final Map<String, Lock> writeLocks = new HashMap<>();
+    private static final Map<String, ReadWriteLock> commitLocks = new HashMap<>();
     private static final Object createIndexLock = new Object();
 
-    public static ReadWriteLock getUseReadWriteLock(String indexName) {
-        synchronized (useReadWriteLocks) {
-            ReadWriteLock lock = useReadWriteLocks.get(indexName);
+    /**
+     * @param indexName 索引名
+     * @return 写锁，同一时刻一个索引只能有一个编辑器
+     */
+    public static Lock getWriteLock(String indexName) {
+        synchronized (writeLocks) {
+            Lock lock = writeLocks.get(indexName);
+            if (null == lock) {
+                lock = new ReentrantLock();
+                writeLocks.put(indexName, lock);
+            }
+            return lock;
+        }
+    }
+
+    /**
+     * @param indexName 索引名
+     * @return 提交锁，提交事务时加写锁，查询降级为悲观读时加读锁
+     */
+    public static ReadWriteLock getCommitLock(String indexName) {
+        synchronized (commitLocks) {
+            ReadWriteLock lock = commitLocks.get(indexName);
             if (null == lock) {
                 lock = new ReentrantReadWriteLock();
-                useReadWriteLocks.put(indexName, lock);
+                commitLocks.put(indexName, lock);
             }
             return lock;
         }
     }
 
+    /**
+     * 加锁，发生等待时将等待时间报告给RtreeMetrics
+     *
+     * @param lock      锁
+     * @param indexName 索引名
+     * @param lockName  锁名
+     */
+    public static void lock(Lock lock, String indexName, String lockName) {
+        if (lock.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        RtreeMetrics.lockWaited(indexName, lockName, System.nanoTime() - start);
+    }
+
     public static Object getCreateIndexLock() {
         return createIndexLock;
     }
@@ -30,6 +30,11 @@ public class PropertyNames {
     public static final String size = "size";
 
 
+    /**
+     * 非叶子节点的子树中的元素总数
+     */
+    public static final String entryCount = "entryCount";
+
     /**
      * 叶子节点中的元素真实数据节点id
      */
@@ -43,6 +48,16 @@ public class PropertyNames {
      */
     public static final String entryMin = "entryMin";
 
+    /**
+     * 叶子节点中所有元素的bbox，紧凑存储为一个double[]，每个元素依次占 2*维度 位，先min后max
+     */
+    public static final String entryMbrs = "entryMbrs";
+
+    /**
+     * 叶子节点中所有元素的真实数据节点id，紧凑存储为一个String[]，与entryMbrs中的元素顺序一致
+     */
+    public static final String entryDataIds = "entryDataIds";
+
     /**
      * 边上的数组序号，用于数据节点和叶子节点上的属性匹配
      */
@@ -0,0 +1,418 @@
+package org.wowtools.neo4j.rtree.internal.edit;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
+import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 批量构建树，用Sort-Tile-Recursive(STR)算法对元素排序分组，自底向上一次性写入满载的叶子节点和非叶子节点，
+ * 相比逐条add，节点更少且兄弟节点间重叠更小。
+ * 元素过多无法一次读入内存时，改为外部排序：分段按希尔伯特曲线排序后写入临时文件，再归并各段流式打包节点。
+ * 写入过程中按TxCell的commitLimit分批提交，构建出的子树在挂到根节点之前与索引无关联
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class BulkLoader {
+
+    private final TxCell txCell;
+    private final int mMax;
+    /**
+     * 已写入节点的子树中的元素总数
+     */
+    private final Map<String, Integer> entryCounts = new HashMap<>();
+
+    public BulkLoader(TxCell txCell) {
+        this.txCell = txCell;
+        this.mMax = txCell.getmMax();
+    }
+
+    /**
+     * 构建树
+     *
+     * @param entries 元素，不能为空
+     * @return 构建出的树的根节点id
+     */
+    public String load(List<RectNd> entries) {
+        return load(entries, 0);
+    }
+
+    /**
+     * 构建指定层数的树，用于替换树中的子树，使替换后所有叶子节点的深度不变。
+     * STR构建出的树层数较少时，在顶部补充只有一个子节点的非叶子节点
+     *
+     * @param entries 元素，不能为空
+     * @param height  树的层数(含叶子节点层)，不能小于height(entries.size(), nDim, mMax)；不大于0时不限制
+     * @return 构建出的树的根节点id
+     */
+    public String load(List<RectNd> entries, int height) {
+        int nDim = entries.get(0).getNDim();
+        if (height > 0 && height(entries.size(), nDim, mMax) > height) {
+            throw new RuntimeException("元素数 " + entries.size() + " 超出了 " + height + " 层树的容量");
+        }
+        //叶子节点
+        List<RectNd> level = new ArrayList<>();
+        for (List<RectNd> group : partition(entries, nDim)) {
+            level.add(writeLeaf(group));
+        }
+        int levelNum = 1;
+        //非叶子节点，直到只剩一个根节点
+        while (level.size() > 1) {
+            List<RectNd> upper = new ArrayList<>();
+            for (List<RectNd> group : partition(level, nDim)) {
+                upper.add(writeBranch(group));
+            }
+            level = upper;
+            levelNum++;
+        }
+        for (; levelNum < height; levelNum++) {
+            level = List.of(writeBranch(level));
+        }
+        return level.get(0).getDataNodeId();
+    }
+
+    /**
+     * 流式构建树，内存中最多保留runSize个元素。
+     * 元素数不超过runSize时与load(List)相同，在内存中用STR构建；
+     * 否则先把元素写入临时文件并统计中心点范围，再每runSize个元素按希尔伯特曲线排序后写入一个临时文件，
+     * 最后归并各文件，按排序后的顺序每mMax个元素打包为一个叶子节点、每mMax个节点打包为一个上层节点，
+     * 内存中只保留每层尚未打包的节点，所有叶子节点深度相同
+     *
+     * @param iterator 元素
+     * @param runSize  内存中最多保留的元素数
+     * @return 构建出的树的根节点id，没有元素时返回null
+     */
+    public String load(Iterator<RectNd> iterator, int runSize) {
+        List<RectNd> head = new ArrayList<>();
+        while (iterator.hasNext() && head.size() < runSize) {
+            head.add(iterator.next());
+        }
+        if (head.isEmpty()) {
+            return null;
+        }
+        if (!iterator.hasNext()) {
+            return load(head);
+        }
+        Path dir = null;
+        List<Path> runs = new ArrayList<>();
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            dir = Files.createTempDirectory("neo4j-rtree-bulk");
+            int nDim = head.get(0).getNDim();
+            double[] min = new double[nDim];
+            double[] max = new double[nDim];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            //全部元素写入临时文件，同时统计中心点范围
+            Path all = dir.resolve("all");
+            long n = 0;
+            try (DataOutputStream out = output(all)) {
+                for (RectNd rect : head) {
+                    HilbertOrder.bound(rect, min, max);
+                    writeRect(out, rect);
+                    n++;
+                }
+                head = null;
+                while (iterator.hasNext()) {
+                    RectNd rect = iterator.next();
+                    HilbertOrder.bound(rect, min, max);
+                    writeRect(out, rect);
+                    n++;
+                }
+            }
+            //分段排序
+            int bits = HilbertOrder.bits(nDim);
+            try (DataInputStream in = input(all)) {
+                for (long read = 0; read < n; read += runSize) {
+                    int size = (int) Math.min(runSize, n - read);
+                    RectNd[] rects = new RectNd[size];
+                    long[] keys = new long[size];
+                    Integer[] order = new Integer[size];
+                    for (int i = 0; i < size; i++) {
+                        rects[i] = readRect(in, nDim);
+                        keys[i] = HilbertOrder.key(rects[i], min, max, bits);
+                        order[i] = i;
+                    }
+                    Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+                    Path run = dir.resolve("run" + runs.size());
+                    runs.add(run);
+                    try (DataOutputStream out = output(run)) {
+                        out.writeLong(size);
+                        for (int i : order) {
+                            out.writeLong(keys[i]);
+                            writeRect(out, rects[i]);
+                        }
+                    }
+                }
+            }
+            Files.delete(all);
+            //归并并逐层打包
+            PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator.comparingLong(r -> r.key));
+            for (Path run : runs) {
+                RunReader reader = new RunReader(input(run), nDim);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            List<List<RectNd>> pending = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                pack(pending, 0, reader.rect);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            return finishPack(pending);
+        } catch (IOException e) {
+            throw new RuntimeException("批量构建读写临时文件异常", e);
+        } finally {
+            for (RunReader reader : readers) {
+                try {
+                    reader.in.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (null != dir) {
+                try {
+                    for (Path run : runs) {
+                        Files.deleteIfExists(run);
+                    }
+                    Files.deleteIfExists(dir.resolve("all"));
+                    Files.deleteIfExists(dir);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 把节点或元素放入第level层(叶子节点的元素为第0层)，凑满mMax个时打包为一个节点放入上一层
+     */
+    private void pack(List<List<RectNd>> pending, int level, RectNd rect) {
+        if (pending.size() == level) {
+            pending.add(new ArrayList<>(mMax));
+        }
+        List<RectNd> group = pending.get(level);
+        group.add(rect);
+        if (group.size() == mMax) {
+            RectNd node = level == 0 ? writeLeaf(group) : writeBranch(group);
+            group.clear();
+            pack(pending, level + 1, node);
+        }
+    }
+
+    /**
+     * 自底向上打包各层剩余的节点，直到最上层只剩一个节点作为根节点
+     */
+    private String finishPack(List<List<RectNd>> pending) {
+        for (int level = 0; ; level++) {
+            List<RectNd> group = pending.get(level);
+            if (level > 0 && level == pending.size() - 1 && group.size() == 1) {
+                return group.get(0).getDataNodeId();
+            }
+            if (!group.isEmpty()) {
+                RectNd node = level == 0 ? writeLeaf(group) : writeBranch(group);
+                group.clear();
+                pack(pending, level + 1, node);
+            }
+        }
+    }
+
+    /**
+     * 已排序临时文件的读取游标
+     */
+    private static final class RunReader {
+        private final DataInputStream in;
+        private final int nDim;
+        private long remaining;
+        private long key;
+        private RectNd rect;
+
+        private RunReader(DataInputStream in, int nDim) throws IOException {
+            this.in = in;
+            this.nDim = nDim;
+            this.remaining = in.readLong();
+        }
+
+        private boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            key = in.readLong();
+            rect = readRect(in, nDim);
+            return true;
+        }
+    }
+
+    private static DataOutputStream output(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+    }
+
+    private static DataInputStream input(Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+    }
+
+    private static void writeRect(DataOutputStream out, RectNd rect) throws IOException {
+        for (double x : rect.getMinXs()) {
+            out.writeDouble(x);
+        }
+        for (double x : rect.getMaxXs()) {
+            out.writeDouble(x);
+        }
+        out.writeUTF(rect.getDataNodeId());
+    }
+
+    private static RectNd readRect(DataInputStream in, int nDim) throws IOException {
+        double[] min = new double[nDim];
+        double[] max = new double[nDim];
+        for (int d = 0; d < nDim; d++) {
+            min[d] = in.readDouble();
+        }
+        for (int d = 0; d < nDim; d++) {
+            max[d] = in.readDouble();
+        }
+        RectNd rect = new RectNd(min, max);
+        rect.setDataNodeId(in.readUTF());
+        return rect;
+    }
+
+    /**
+     * 计算STR构建出的树的层数(含叶子节点层)，不写入任何节点
+     *
+     * @param entryNum 元素数
+     * @param nDim     维度
+     * @param mMax     节点最大子节点数
+     * @return 层数
+     */
+    public static int height(int entryNum, int nDim, int mMax) {
+        int height = 1;
+        int n = groupNum(entryNum, 0, nDim, mMax);
+        while (n > 1) {
+            n = groupNum(n, 0, nDim, mMax);
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * 与tile相同的切分方式下，n个矩形被分成的组数
+     */
+    private static int groupNum(int n, int dim, int nDim, int mMax) {
+        if (dim == nDim - 1) {
+            return (n + mMax - 1) / mMax;
+        }
+        int pageNum = (n + mMax - 1) / mMax;
+        int slices = (int) Math.ceil(Math.pow(pageNum, 1.0 / (nDim - dim)));
+        int sliceSize = mMax * ((pageNum + slices - 1) / slices);
+        int res = 0;
+        for (int i = 0; i < n; i += sliceSize) {
+            res += groupNum(Math.min(sliceSize, n - i), dim + 1, nDim, mMax);
+        }
+        return res;
+    }
+
+    /**
+     * STR分组，每组不超过mMax个
+     */
+    private List<List<RectNd>> partition(List<RectNd> rects, int nDim) {
+        List<List<RectNd>> groups = new ArrayList<>((rects.size() + mMax - 1) / mMax);
+        tile(new ArrayList<>(rects), 0, nDim, groups);
+        return groups;
+    }
+
+    private void tile(List<RectNd> rects, int dim, int nDim, List<List<RectNd>> groups) {
+        rects.sort(Comparator.comparingDouble(r -> r.getMinXs()[dim] + r.getMaxXs()[dim]));
+        int n = rects.size();
+        if (dim == nDim - 1) {
+            for (int i = 0; i < n; i += mMax) {
+                groups.add(rects.subList(i, Math.min(i + mMax, n)));
+            }
+            return;
+        }
+        //在当前维度上切成slices片，每片在下一维度上继续切分
+        int pageNum = (n + mMax - 1) / mMax;
+        int slices = (int) Math.ceil(Math.pow(pageNum, 1.0 / (nDim - dim)));
+        int sliceSize = mMax * ((pageNum + slices - 1) / slices);
+        for (int i = 0; i < n; i += sliceSize) {
+            tile(new ArrayList<>(rects.subList(i, Math.min(i + sliceSize, n))), dim + 1, nDim, groups);
+        }
+    }
+
+    private RectNd writeLeaf(List<RectNd> group) {
+        Transaction tx = txCell.getTx();
+        Node leaf = tx.createNode(Labels.RTREE_LEAF);
+        RectNd[] entries = new RectNd[group.size()];
+        group.toArray(entries);
+        RectNd mbr = entries[0];
+        for (int i = 0; i < entries.length; i++) {
+            RectNd entry = entries[i];
+            mbr = mbr.getMbr(entry);
+            Node entityNode = tx.createNode(Labels.RTREE_ENTITY);
+            entityNode.setProperty(PropertyNames.entryDataId, entry.getDataNodeId());
+            entityNode.setProperty(PropertyNames.entryMax, entry.getMaxXs());
+            entityNode.setProperty(PropertyNames.entryMin, entry.getMinXs());
+            Relationship relationship = leaf.createRelationshipTo(entityNode, Relationships.RTREE_LEAF_TO_ENTITY);
+            relationship.setProperty(PropertyNames.index, i);
+        }
+        leaf.setProperty(PropertyNames.size, entries.length);
+        leaf.setProperty(PropertyNames.mbrMin, mbr.getMinXs());
+        leaf.setProperty(PropertyNames.mbrMax, mbr.getMaxXs());
+        LeafEntries.write(leaf, entries);
+        entryCounts.put(leaf.getElementId(), entries.length);
+        return written(leaf, mbr, entries.length + 1);
+    }
+
+    private RectNd writeBranch(List<RectNd> group) {
+        Transaction tx = txCell.getTx();
+        Node branch = tx.createNode(Labels.RTREE_BRANCH);
+        RectNd mbr = group.get(0);
+        int entryCount = 0;
+        for (RectNd child : group) {
+            mbr = mbr.getMbr(child);
+            branch.createRelationshipTo(tx.getNodeByElementId(child.getDataNodeId()), Relationships.RTREE_PARENT_TO_CHILD);
+            entryCount += entryCounts.remove(child.getDataNodeId());
+        }
+        branch.setProperty(PropertyNames.size, group.size());
+        branch.setProperty(PropertyNames.entryCount, entryCount);
+        entryCounts.put(branch.getElementId(), entryCount);
+        branch.setProperty(PropertyNames.mbrMin, mbr.getMinXs());
+        branch.setProperty(PropertyNames.mbrMax, mbr.getMaxXs());
+        return written(branch, mbr, 1);
+    }
+
+    /**
+     * 记录已写入的节点，并按commitLimit提交
+     *
+     * @return 节点的mbr，借用dataNodeId字段记录节点id，供上一层构建使用
+     */
+    private RectNd written(Node node, RectNd mbr, int changeNum) {
+        RectNd res = new RectNd(mbr.getMin(), mbr.getMax());
+        res.setDataNodeId(node.getElementId());
+        txCell.addChange(changeNum);
+        txCell.limitCommit();
+        return res;
+    }
+}
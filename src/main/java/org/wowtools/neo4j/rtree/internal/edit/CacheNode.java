@@ -7,6 +7,7 @@ import org.neo4j.graphdb.ResourceIterable;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
 import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
 import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
 import org.wowtools.neo4j.rtree.pojo.PointNd;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 
@@ -39,6 +40,8 @@ public class CacheNode {
     private org.wowtools.neo4j.rtree.internal.edit.Node[] children;
 
     private RectNd[] entry;
+    private boolean entryChanged;//元素是否发生过变化，commit时统一写入
+    private boolean legacyEntry;//元素是否是从旧格式读取的，commit时清理旧格式属性
 
     private final int initSize;
     private int size;
@@ -72,7 +75,12 @@ public class CacheNode {
             }
         }
 
-        if (null != entry) {
+        if (entryChanged) {
+            //元素以紧凑格式写入叶子节点
+            LeafEntries.write(node, entry);
+            if (legacyEntry) {
+                LeafEntries.removeLegacy(node, txCell.getmMax());
+            }
             //处理树的数据节点
             ResourceIterable<Relationship> relationships = node.getRelationships(Direction.OUTGOING, Relationships.RTREE_LEAF_TO_ENTITY);
             Map<Integer, Relationship> relationshipMap = new HashMap<>(entry.length);
@@ -98,9 +106,9 @@ public class CacheNode {
                     } else {
                         entityNode = relationship.getEndNode();
                     }
-                    entityNode.setProperty(PropertyNames.entryDataId, properties.get(PropertyNames.entryDataId + i));
-                    entityNode.setProperty(PropertyNames.entryMax, properties.get(PropertyNames.entryMax + i));
-                    entityNode.setProperty(PropertyNames.entryMin, properties.get(PropertyNames.entryMin + i));
+                    entityNode.setProperty(PropertyNames.entryDataId, rectNd.getDataNodeId());
+                    entityNode.setProperty(PropertyNames.entryMax, rectNd.getMaxXs());
+                    entityNode.setProperty(PropertyNames.entryMin, rectNd.getMinXs());
                 }
             }
             relationshipMap.forEach((i, relationship) -> {
@@ -116,6 +124,8 @@ public class CacheNode {
         mbr = null;
         children = null;
         entry = null;
+        entryChanged = false;
+        legacyEntry = false;
         node = null;
     }
 
@@ -136,37 +146,6 @@ public class CacheNode {
         }
     }
 
-    private Map<String, Object> getProperties(List<String> keys) {
-        HashMap<String, Object> res = new HashMap<>(keys.size());
-        //读缓存
-        LinkedList<String> notInCacheKeys = new LinkedList<>();
-        for (String key : keys) {
-            Object p = properties.get(key);
-            if (empty == p) {
-                continue;
-            } else if (null == p) {
-                notInCacheKeys.add(key);
-            } else {
-                res.put(key, p);
-            }
-        }
-        //不在缓存中的查图库
-        if (!notInCacheKeys.isEmpty()) {
-            String[] queryKeys = new String[notInCacheKeys.size()];
-            notInCacheKeys.toArray(queryKeys);
-            Map<String, Object> np = _node().getProperties(queryKeys);
-            np.forEach((k, v) -> {
-                if (null == v) {
-                    properties.put(k, empty);
-                } else {
-                    properties.put(k, v);
-                    res.put(k, v);
-                }
-            });
-        }
-        return res;
-    }
-
     public void setProperty(String key, Object value) {
         changedKey.add(key);
         if (null == value) {
@@ -235,11 +214,8 @@ public class CacheNode {
             j++;
         }
         size--;
-        org.wowtools.neo4j.rtree.internal.edit.Node old = children[size];
-        if (null != old) {
-            txCell.setNodeParent(old.getNeoNodeId(), null);
-            children[size] = null;
-        }
+        //末位的节点已前移到size-1位置，仍挂在本节点下，只清空末位，不能断开其父子关系
+        children[size] = null;
 
     }
 
@@ -267,41 +243,20 @@ public class CacheNode {
     public RectNd[] getEntry() {
         if (null == entry) {
             int mMax = txCell.getmMax();
-            List<String> keys = new ArrayList<>(mMax * 3);
-            for (int i = 0; i < mMax; i++) {
-                keys.add(PropertyNames.entryMin + i);
-                keys.add(PropertyNames.entryMax + i);
-                keys.add(PropertyNames.entryDataId + i);
-            }
-            Map<String, Object> properties = getProperties(keys);
             entry = new RectNd[mMax];
-            for (int i = 0; i < mMax; i++) {
-                double[] eMinI = (double[]) properties.get(PropertyNames.entryMin + i);
-                if (null == eMinI) {
-                    continue;
-                }
-                double[] eMaxI = (double[]) properties.get(PropertyNames.entryMax + i);
-                RectNd e = new RectNd(new PointNd(eMinI), new PointNd(eMaxI));
-                e.setDataNodeId((String) properties.get(PropertyNames.entryDataId + i));
-                entry[i] = e;
-
+            LeafEntries leafEntries = LeafEntries.read(_node());
+            for (int i = 0; i < leafEntries.size(); i++) {
+                entry[i] = leafEntries.getRectNd(i);
             }
+            legacyEntry = leafEntries.isLegacy();
         }
         return entry;
     }
 
     public void setEntryAtI(int i, RectNd ei) {
         entry = getEntry();
-        if (null == ei) {
-            setProperty(PropertyNames.entryMin + i, null);
-            setProperty(PropertyNames.entryMax + i, null);
-            setProperty(PropertyNames.entryDataId + i, null);
-        } else {
-            setProperty(PropertyNames.entryMin + i, ei.getMinXs());
-            setProperty(PropertyNames.entryMax + i, ei.getMaxXs());
-            setProperty(PropertyNames.entryDataId + i, ei.getDataNodeId());
-        }
         entry[i] = ei;
+        entryChanged = true;
     }
 
 
@@ -343,6 +298,21 @@ public class CacheNode {
         return size;
     }
 
+    /**
+     * @return 非叶子节点的子树中的元素总数，旧版本的索引没有记录时返回-1
+     */
+    public int getEntryCount() {
+        Object entryCount = getProperty(PropertyNames.entryCount);
+        return null == entryCount ? -1 : (int) entryCount;
+    }
+
+    /**
+     * @param entryCount 非叶子节点的子树中的元素总数，小于0表示未知，删除记录
+     */
+    public void setEntryCount(int entryCount) {
+        setProperty(PropertyNames.entryCount, entryCount < 0 ? null : entryCount);
+    }
+
     public void setSize(int size) {
         this.size = size;
     }
@@ -0,0 +1,147 @@
+package org.wowtools.neo4j.rtree.internal.edit;
+
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 按元素中心点在希尔伯特曲线上的位置排序，使空间上相邻的元素在排序后也相邻，
+ * 批量写入时相邻的元素大多落在同一个叶子节点中，减少节点的反复读写
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class HilbertOrder {
+
+    private HilbertOrder() {
+    }
+
+    /**
+     * 排序
+     *
+     * @param items  待排序的元素
+     * @param rectOf 获取元素的bbox
+     * @param <T>    元素类型
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sort(List<T> items, Function<T, RectNd> rectOf) {
+        int n = items.size();
+        if (n < 2) {
+            return;
+        }
+        int nDim = rectOf.apply(items.get(0)).getNDim();
+        int bits = bits(nDim);
+        double[] min = new double[nDim];
+        double[] max = new double[nDim];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            bound(rectOf.apply(items.get(i)), min, max);
+        }
+        long[] keys = new long[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = key(rectOf.apply(items.get(i)), min, max, bits);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+        Object[] sorted = new Object[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = items.get(order[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            items.set(i, (T) sorted[i]);
+        }
+    }
+
+    /**
+     * 每个维度可用的位数，保证总位数不超过62，序号为正数
+     */
+    static int bits(int nDim) {
+        return Math.min(62 / nDim, 31);
+    }
+
+    /**
+     * 把矩形的中心点扩展进中心点范围
+     *
+     * @param rect 矩形
+     * @param min  各维度中心点坐标的最小值，会被修改
+     * @param max  各维度中心点坐标的最大值，会被修改
+     */
+    static void bound(RectNd rect, double[] min, double[] max) {
+        for (int d = 0; d < min.length; d++) {
+            double center = (rect.getMinXs()[d] + rect.getMaxXs()[d]) / 2;
+            min[d] = Math.min(min[d], center);
+            max[d] = Math.max(max[d], center);
+        }
+    }
+
+    /**
+     * 计算矩形中心点在希尔伯特曲线上的序号
+     *
+     * @param rect 矩形
+     * @param min  各维度中心点坐标的最小值
+     * @param max  各维度中心点坐标的最大值
+     * @param bits 每个维度的位数
+     * @return 序号
+     */
+    static long key(RectNd rect, double[] min, double[] max, int bits) {
+        long cells = (1L << bits) - 1;
+        long[] xs = new long[min.length];
+        for (int d = 0; d < min.length; d++) {
+            double center = (rect.getMinXs()[d] + rect.getMaxXs()[d]) / 2;
+            double range = max[d] - min[d];
+            xs[d] = range > 0 ? (long) ((center - min[d]) / range * cells) : 0;
+        }
+        return key(xs, bits);
+    }
+
+    /**
+     * 计算坐标在希尔伯特曲线上的序号(Skilling算法)
+     *
+     * @param xs   各维度的整数坐标，会被修改
+     * @param bits 每个维度的位数
+     * @return 序号
+     */
+    static long key(long[] xs, int bits) {
+        int n = xs.length;
+        long m = 1L << (bits - 1);
+        //逆向变换
+        for (long q = m; q > 1; q >>= 1) {
+            long p = q - 1;
+            for (int i = 0; i < n; i++) {
+                if ((xs[i] & q) != 0) {
+                    xs[0] ^= p;
+                } else {
+                    long t = (xs[0] ^ xs[i]) & p;
+                    xs[0] ^= t;
+                    xs[i] ^= t;
+                }
+            }
+        }
+        //格雷编码
+        for (int i = 1; i < n; i++) {
+            xs[i] ^= xs[i - 1];
+        }
+        long t = 0;
+        for (long q = m; q > 1; q >>= 1) {
+            if ((xs[n - 1] & q) != 0) {
+                t ^= q - 1;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            xs[i] ^= t;
+        }
+        //各维度的位交错拼接
+        long key = 0;
+        for (int b = bits - 1; b >= 0; b--) {
+            for (int i = 0; i < n; i++) {
+                key = (key << 1) | ((xs[i] >> b) & 1);
+            }
+        }
+        return key;
+    }
+}
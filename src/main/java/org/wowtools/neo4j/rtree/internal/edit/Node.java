@@ -22,6 +22,7 @@ package org.wowtools.neo4j.rtree.internal.edit;
 
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -46,6 +47,20 @@ public interface Node {
      */
     Node add(RectNd t);
 
+    /**
+     * 批量添加，默认逐个add
+     *
+     * @param ts - values to add to index
+     * @return 添加后占据此节点位置的节点(叶子节点分裂后会变为非叶子节点)
+     */
+    default Node addAll(List<RectNd> ts) {
+        Node n = this;
+        for (RectNd t : ts) {
+            n = n.add(t);
+        }
+        return n;
+    }
+
     /**
      * Remove t from the index
      *
@@ -119,7 +134,7 @@ public interface Node {
     /**
      * The number of entries in the subtree
      *
-     * @return int - entry count
+     * @return int - entry count, -1 if unknown (branch of an index built by an older version)
      */
     int totalSize();
 
@@ -20,9 +20,12 @@ package org.wowtools.neo4j.rtree.internal.edit;
  * #L%
  */
 
+import org.wowtools.neo4j.rtree.RtreeSplit;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -61,6 +64,7 @@ public final class NodeOfBranch implements Node {
     NodeOfBranch(final RectBuilder builder, final int mMin, final int mMax, TxCell txCell) {
         cacheNode = txCell.newNode(Labels.RTREE_BRANCH);
         cacheNode.setSize(0);
+        cacheNode.setEntryCount(0);
 
         this.txCell = txCell;
         this.mMin = mMin;
@@ -75,7 +79,9 @@ public final class NodeOfBranch implements Node {
      * @return position of the added node
      */
     protected int addChild(final Node n) {
-        return cacheNode.addChild(n);
+        int i = cacheNode.addChild(n);
+        changeEntryCount(0, n.totalSize());
+        return i;
     }
 
     @Override
@@ -102,8 +108,10 @@ public final class NodeOfBranch implements Node {
         if (size < mMin) {
             for (int i = 0; i < size; i++) {
                 if (child[i].getBound().contains(tRect)) {
+                    int oldCount = child[i].totalSize();
                     cacheNode.setChildAtI(i, child[i].add(t));
                     cacheNode.setMbr(child[i].getBound());
+                    changeEntryCount(oldCount, child[i].totalSize());
                     return this;
                 }
             }
@@ -118,17 +126,56 @@ public final class NodeOfBranch implements Node {
         } else {
             final int bestLeaf = chooseLeaf(t, tRect);
 
+            int oldCount = child[bestLeaf].totalSize();
             cacheNode.setChildAtI(bestLeaf, child[bestLeaf].add(t));
 
             RectNd mbr = cacheNode.getMbr();
             RectNd r = child[bestLeaf].getBound();
             mbr = mbr.getMbr(r);
             cacheNode.setMbr(mbr);
+            changeEntryCount(oldCount, child[bestLeaf].totalSize());
 
             return this;
         }
     }
 
+    /**
+     * 批量添加，按添加前子节点的bbox为每个元素选择子节点，同一子节点的元素一起向下添加，
+     * 每个节点只经过一次，mbr和元素总数也只更新一次
+     *
+     * @param ts 元素，最好已按空间位置排序
+     * @return this
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Node addAll(final List<RectNd> ts) {
+        int size = cacheNode.getSize();
+        if (size < mMin) {
+            return Node.super.addAll(ts);
+        }
+        Node[] child = cacheNode.getChildren();
+        List<RectNd>[] groups = new List[size];
+        for (RectNd t : ts) {
+            int i = chooseLeaf(t, builder.getBBox(t));
+            if (null == groups[i]) {
+                groups[i] = new ArrayList<>();
+            }
+            groups[i].add(t);
+        }
+        RectNd mbr = cacheNode.getMbr();
+        for (int i = 0; i < size; i++) {
+            if (null == groups[i]) {
+                continue;
+            }
+            int oldCount = child[i].totalSize();
+            cacheNode.setChildAtI(i, child[i].addAll(groups[i]));
+            mbr = mbr.getMbr(child[i].getBound());
+            changeEntryCount(oldCount, child[i].totalSize());
+        }
+        cacheNode.setMbr(mbr);
+        return this;
+    }
+
     @Override
     public Node remove(final RectNd t) {
         final RectNd tRect = builder.getBBox(t);
@@ -136,7 +183,9 @@ public final class NodeOfBranch implements Node {
         Node[] child = cacheNode.getChildren();
         for (int i = 0; i < size; i++) {
             if (child[i].getBound().intersects(tRect)) {
+                int oldCount = child[i].totalSize();
                 cacheNode.setChildAtI(i, child[i].remove(t));
+                changeEntryCount(oldCount, null == child[i] ? 0 : child[i].totalSize());
                 if (child[i] == null) {
 //                    System.arraycopy(child, i + 1, child, i, size - i - 1);
                     //把所有child的位置上移一位
@@ -242,21 +291,36 @@ public final class NodeOfBranch implements Node {
         return cacheNode.getSize();
     }
 
+    /**
+     * @return 子树中的元素总数，旧版本的索引没有记录时返回-1，可用RtreeEditor.backfillEntryCount补齐
+     */
     @Override
     public int totalSize() {
-        int s = 0;
-        int size = cacheNode.getSize();
-        Node[] child = cacheNode.getChildren();
+        return cacheNode.getEntryCount();
+    }
 
-        for (int i = 0; i < size; i++) {
-            s += child[i].totalSize();
+    /**
+     * 某个子节点的元素总数由oldCount变为newCount后，按差值更新本节点的元素总数，不需要重新累加全部子节点。
+     * 本节点或子节点的元素总数未知(-1，旧版本的索引)时，本节点的元素总数也视为未知，不做记录
+     */
+    private void changeEntryCount(int oldCount, int newCount) {
+        int s = cacheNode.getEntryCount();
+        if (s < 0 || oldCount == newCount) {
+            return;
+        }
+        if (oldCount < 0 || newCount < 0) {
+            cacheNode.setEntryCount(-1);
+        } else {
+            cacheNode.setEntryCount(s + newCount - oldCount);
         }
-        return s;
     }
 
     private int chooseLeaf(final RectNd t, final RectNd tRect) {
         int size = cacheNode.getSize();
         Node[] child = cacheNode.getChildren();
+        if (size > 0 && txCell.getSplit() == RtreeSplit.RSTAR && allChildrenLeaf(child, size)) {
+            return chooseLeafByOverlap(child, size, tRect);
+        }
         if (size > 0) {
             int bestNode = 0;
             RectNd childMbr = child[0].getBound().getMbr(tRect);
@@ -285,6 +349,7 @@ public final class NodeOfBranch implements Node {
             final Node n = NodeOfLeaf.create(builder, mMin, mMax, txCell);
             n.add(t);
             cacheNode.setChildAtI(size, n);
+            changeEntryCount(0, n.totalSize());
             size = size + 1;
             cacheNode.setSize(size);
 
@@ -300,6 +365,53 @@ public final class NodeOfBranch implements Node {
         }
     }
 
+    private static boolean allChildrenLeaf(Node[] child, int size) {
+        for (int i = 0; i < size; i++) {
+            if (!child[i].isLeaf()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * R*: 子节点都是叶子节点时，选择加入元素后与兄弟节点重叠面积增量最小的子节点，其次面积增量最小，其次面积最小
+     */
+    private static int chooseLeafByOverlap(Node[] child, int size, RectNd tRect) {
+        int bestNode = 0;
+        double leastOverlap = Double.POSITIVE_INFINITY;
+        double leastEnlargement = Double.POSITIVE_INFINITY;
+        double leastCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            RectNd bound = child[i].getBound();
+            RectNd enlarged = bound.getMbr(tRect);
+            double overlap = 0;
+            for (int j = 0; j < size; j++) {
+                if (j == i) {
+                    continue;
+                }
+                RectNd other = child[j].getBound();
+                overlap += NodeOfRStarSplitLeaf.overlap(enlarged, other) - NodeOfRStarSplitLeaf.overlap(bound, other);
+            }
+            double cost = bound.cost();
+            double enlargement = enlarged.cost() - cost;
+            if (overlap < leastOverlap && !RTree.isEqual(overlap, leastOverlap)) {
+                leastOverlap = overlap;
+                leastEnlargement = enlargement;
+                leastCost = cost;
+                bestNode = i;
+            } else if (RTree.isEqual(overlap, leastOverlap)) {
+                if (enlargement < leastEnlargement
+                        || (RTree.isEqual(enlargement, leastEnlargement) && cost < leastCost)) {
+                    leastEnlargement = enlargement;
+                    leastCost = cost;
+                    bestNode = i;
+                }
+            }
+        }
+        return bestNode;
+    }
+
     /**
      * Return child nodes of this branch.
      *
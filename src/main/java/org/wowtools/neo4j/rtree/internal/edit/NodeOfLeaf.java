@@ -20,6 +20,7 @@ package org.wowtools.neo4j.rtree.internal.edit;
  * #L%
  */
 
+import org.wowtools.neo4j.rtree.RtreeSplit;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 
@@ -243,6 +244,9 @@ abstract class NodeOfLeaf implements Node {
     }
 
     static Node create(final RectBuilder builder, final int mMin, final int M, TxCell txCell) {
+        if (txCell.getSplit() == RtreeSplit.RSTAR) {
+            return new NodeOfRStarSplitLeaf(builder, mMin, M, txCell);
+        }
         return new NodeOfAxialSplitLeaf(builder, mMin, M, txCell);
     }
 
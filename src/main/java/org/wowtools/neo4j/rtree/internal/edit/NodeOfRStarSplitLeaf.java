@@ -0,0 +1,201 @@
+package org.wowtools.neo4j.rtree.internal.edit;
+
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * R*-tree策略的叶子节点。
+ * 溢出时，若本次插入尚未做过重新插入，则将离节点中心最远的30%元素移出，交给RTree重新插入(forced reinsert)；
+ * 否则分裂：对每个维度分别按元素min和max排序，取所有合法分组的周长之和最小的维度，
+ * 再在该维度上取两组mbr重叠面积最小(其次面积之和最小)的分组
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class NodeOfRStarSplitLeaf extends NodeOfLeaf {
+
+    /**
+     * 重新插入的元素占比
+     */
+    private static final double reinsertRatio = 0.3;
+
+    public static NodeOfRStarSplitLeaf getFromNeo(RectBuilder builder, String neoId, TxCell txCell) {
+        return new NodeOfRStarSplitLeaf(builder, txCell.getTx().getNodeByElementId(neoId), txCell);
+    }
+
+    private NodeOfRStarSplitLeaf(final RectBuilder builder, org.neo4j.graphdb.Node cacheNode, TxCell txCell) {
+        super(builder, cacheNode, txCell);
+    }
+
+    NodeOfRStarSplitLeaf(final RectBuilder builder, final int mMin, final int mMax, TxCell txCell) {
+        super(builder, mMin, mMax, txCell);
+    }
+
+    @Override
+    protected Node split(final RectNd t) {
+        int size = cacheNode.getSize();
+        RectNd[] entry = cacheNode.getEntry();
+        RectNd[] all = Arrays.copyOf(entry, size + 1);
+        all[size] = t;
+        if (txCell.startReinsert()) {
+            return reinsert(all);
+        }
+
+        //每组至少m个元素
+        final int n = all.length;
+        final int m = Math.max(1, Math.min(mMin, n / 2));
+        final int nD = t.getNDim();
+
+        //选择分裂维度：所有分组两组mbr周长之和的总和最小
+        int bestAxis = 0;
+        double bestMargin = Double.POSITIVE_INFINITY;
+        for (int d = 0; d < nD; d++) {
+            double margin = 0;
+            for (Comparator<RectNd> comparator : comparators(d)) {
+                Arrays.sort(all, comparator);
+                RectNd[] lower = prefixMbrs(all);
+                RectNd[] upper = suffixMbrs(all);
+                for (int k = m; k <= n - m; k++) {
+                    margin += lower[k - 1].perimeter() + upper[k].perimeter();
+                }
+            }
+            if (margin < bestMargin) {
+                bestMargin = margin;
+                bestAxis = d;
+            }
+        }
+
+        //在分裂维度上选择分组：重叠面积最小，其次面积之和最小
+        RectNd[] best = null;
+        int bestK = -1;
+        double bestOverlap = Double.POSITIVE_INFINITY;
+        double bestArea = Double.POSITIVE_INFINITY;
+        for (Comparator<RectNd> comparator : comparators(bestAxis)) {
+            RectNd[] sorted = all.clone();
+            Arrays.sort(sorted, comparator);
+            RectNd[] lower = prefixMbrs(sorted);
+            RectNd[] upper = suffixMbrs(sorted);
+            for (int k = m; k <= n - m; k++) {
+                double overlap = overlap(lower[k - 1], upper[k]);
+                double area = lower[k - 1].cost() + upper[k].cost();
+                if (overlap < bestOverlap || (RTree.isEqual(overlap, bestOverlap) && area < bestArea)) {
+                    bestOverlap = overlap;
+                    bestArea = area;
+                    best = sorted;
+                    bestK = k;
+                }
+            }
+        }
+
+        final NodeOfBranch pNode = new NodeOfBranch(builder, mMin, mMax, txCell);
+        final Node l1Node = create(builder, mMin, mMax, txCell);
+        final Node l2Node = create(builder, mMin, mMax, txCell);
+        for (int i = 0; i < bestK; i++) {
+            l1Node.add(best[i]);
+        }
+        for (int i = bestK; i < n; i++) {
+            l2Node.add(best[i]);
+        }
+        pNode.addChild(l1Node);
+        pNode.addChild(l2Node);
+        return pNode;
+    }
+
+    /**
+     * 将离中心最远的元素移出本节点，交给RTree重新插入
+     */
+    private Node reinsert(RectNd[] all) {
+        RectNd mbr = all[0];
+        for (int i = 1; i < all.length; i++) {
+            mbr = mbr.getMbr(all[i]);
+        }
+        double[] center = mbr.getCentroid().getXs();
+        Arrays.sort(all, Comparator.comparingDouble(r -> -centerDistance(r, center)));
+        int p = Math.max(1, (int) (mMax * reinsertRatio));
+        for (int i = 0; i < p; i++) {
+            txCell.addReinsert(all[i]);
+        }
+        int keep = all.length - p;
+        RectNd keptMbr = null;
+        for (int i = 0; i < mMax; i++) {
+            RectNd e = i < keep ? all[p + i] : null;
+            cacheNode.setEntryAtI(i, e);
+            if (null != e) {
+                keptMbr = null == keptMbr ? e : keptMbr.getMbr(e);
+            }
+        }
+        cacheNode.setSize(keep);
+        cacheNode.setMbr(keptMbr);
+        return this;
+    }
+
+    private static double centerDistance(RectNd r, double[] center) {
+        double[] c = r.getCentroid().getXs();
+        double d = 0;
+        for (int i = 0; i < c.length; i++) {
+            double dx = c[i] - center[i];
+            d += dx * dx;
+        }
+        return d;
+    }
+
+    private static Comparator<RectNd>[] comparators(int d) {
+        @SuppressWarnings("unchecked")
+        Comparator<RectNd>[] comparators = new Comparator[]{
+                Comparator.<RectNd>comparingDouble(r -> r.getMinXs()[d]).thenComparingDouble(r -> r.getMaxXs()[d]),
+                Comparator.<RectNd>comparingDouble(r -> r.getMaxXs()[d]).thenComparingDouble(r -> r.getMinXs()[d])
+        };
+        return comparators;
+    }
+
+    /**
+     * @return 第i位为sorted[0..i]的mbr
+     */
+    private static RectNd[] prefixMbrs(RectNd[] sorted) {
+        RectNd[] res = new RectNd[sorted.length];
+        res[0] = sorted[0];
+        for (int i = 1; i < sorted.length; i++) {
+            res[i] = res[i - 1].getMbr(sorted[i]);
+        }
+        return res;
+    }
+
+    /**
+     * @return 第i位为sorted[i..n-1]的mbr
+     */
+    private static RectNd[] suffixMbrs(RectNd[] sorted) {
+        int n = sorted.length;
+        RectNd[] res = new RectNd[n];
+        res[n - 1] = sorted[n - 1];
+        for (int i = n - 2; i >= 0; i--) {
+            res[i] = res[i + 1].getMbr(sorted[i]);
+        }
+        return res;
+    }
+
+    /**
+     * 两个矩形的重叠面积
+     */
+    static double overlap(RectNd r1, RectNd r2) {
+        double[] min1 = r1.getMinXs();
+        double[] max1 = r1.getMaxXs();
+        double[] min2 = r2.getMinXs();
+        double[] max2 = r2.getMaxXs();
+        double res = 1;
+        for (int d = 0; d < min1.length; d++) {
+            double len = Math.min(max1[d], max2[d]) - Math.max(min1[d], min2[d]);
+            if (len <= 0) {
+                return 0;
+            }
+            res *= len;
+        }
+        return res;
+    }
+
+    @Override
+    public String getNeoNodeId() {
+        return cacheNode.getNode().getElementId();
+    }
+}
@@ -24,12 +24,16 @@ import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterable;
 import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.RtreeSplit;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
 import org.wowtools.neo4j.rtree.internal.define.Relationships;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
 
@@ -120,6 +124,46 @@ public final class RTree implements SpatialSearch {
 
     @Override
     public void add(final RectNd t) {
+        if (txCell.getSplit() != RtreeSplit.RSTAR) {
+            addOne(t);
+            return;
+        }
+        //R*: 插入过程中叶子节点首次溢出时会移出部分元素，插入完成后逐个重新插入，重新插入时溢出只分裂
+        txCell.beginInsert();
+        addOne(t);
+        RectNd reinsert;
+        while (null != (reinsert = txCell.pollReinsert())) {
+            addOne(reinsert);
+        }
+    }
+
+    /**
+     * 批量添加，同一子树的元素一起向下添加，只经过一次从根节点到叶子节点的路径。
+     * R*策略因需要重新插入，逐个添加
+     *
+     * @param ts 元素，最好已按空间位置排序
+     */
+    public void addAll(final List<RectNd> ts) {
+        if (ts.isEmpty()) {
+            return;
+        }
+        if (txCell.getSplit() == RtreeSplit.RSTAR) {
+            for (RectNd t : ts) {
+                add(t);
+            }
+            return;
+        }
+        int from = 0;
+        if ("".equals(rootNodeId)) {
+            addOne(ts.get(0));
+            from = 1;
+        }
+        Node root = txCell.getNodeFromNeo4j(rootNodeId);
+        root = root.addAll(ts.subList(from, ts.size()));
+        setRoot(root.getNeoNodeId());
+    }
+
+    private void addOne(final RectNd t) {
         Node root;
         if (!"".equals(rootNodeId)) {
             root = txCell.getNodeFromNeo4j(rootNodeId);
@@ -128,19 +172,30 @@ public final class RTree implements SpatialSearch {
             root = NodeOfLeaf.create(builder, mMin, mMax, txCell);
             root.add(t);
         }
-        String newRootId = root.getNeoNodeId();
-        if (!Objects.equals(rootNodeId, newRootId)) {
-            //root节点变化，修改metadata节点指向
-            rootNodeId = newRootId;
-            Transaction tx = txCell.getTx();
-            org.neo4j.graphdb.Node metadataNode = tx.getNodeByElementId(metadataNodeId);
-            ResourceIterable<Relationship> relationships = metadataNode.getRelationships(Relationships.RTREE_METADATA_TO_ROOT);
-            for (Relationship relationship : relationships) {
-                relationship.delete();
-            }
-            relationships.close();
-            metadataNode.createRelationshipTo(tx.getNodeByElementId(rootNodeId), Relationships.RTREE_METADATA_TO_ROOT);
+        setRoot(root.getNeoNodeId());
+    }
+
+    /**
+     * 将树的根节点设置为指定节点，并修改metadata节点指向
+     *
+     * @param newRootId 新的根节点id
+     */
+    public void setRoot(String newRootId) {
+        if (Objects.equals(rootNodeId, newRootId)) {
+            return;
+        }
+        if (!"".equals(rootNodeId)) {
+            txCell.markDetached(rootNodeId);
         }
+        rootNodeId = newRootId;
+        Transaction tx = txCell.getTx();
+        org.neo4j.graphdb.Node metadataNode = tx.getNodeByElementId(metadataNodeId);
+        ResourceIterable<Relationship> relationships = metadataNode.getRelationships(Relationships.RTREE_METADATA_TO_ROOT);
+        for (Relationship relationship : relationships) {
+            relationship.delete();
+        }
+        relationships.close();
+        metadataNode.createRelationshipTo(tx.getNodeByElementId(rootNodeId), Relationships.RTREE_METADATA_TO_ROOT);
     }
 
     @Override
@@ -162,10 +217,31 @@ public final class RTree implements SpatialSearch {
     @Override
     public int getEntryCount() {
         Node root = txCell.getNodeFromNeo4j(rootNodeId);
-        if (root != null) {
-            return root.totalSize();
+        if (root == null) {
+            return 0;
         }
-        return 0;
+        int count = root.totalSize();
+        if (count >= 0) {
+            return count;
+        }
+        //旧版本的索引没有记录元素总数，直接读取neo4j节点统计，不把节点载入缓存，也不写入记录
+        count = 0;
+        ArrayDeque<org.neo4j.graphdb.Node> stack = new ArrayDeque<>();
+        stack.push(txCell.getTx().getNodeByElementId(rootNodeId));
+        do {
+            org.neo4j.graphdb.Node node = stack.pop();
+            Object entryCount = node.getProperty(node.hasLabel(Labels.RTREE_LEAF) ? PropertyNames.size : PropertyNames.entryCount, null);
+            if (null != entryCount) {
+                count += (int) entryCount;
+                continue;
+            }
+            ResourceIterable<Relationship> relationships = node.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD);
+            for (Relationship relationship : relationships) {
+                stack.push(relationship.getEndNode());
+            }
+            relationships.close();
+        } while (!stack.isEmpty());
+        return count;
     }
 
     /**
@@ -222,18 +298,4 @@ public final class RTree implements SpatialSearch {
     public String getRootNodeId() {
         return rootNodeId;
     }
-
-    /**
-     * Different methods for splitting nodes in an RTree.
-     * <p>
-     * AXIAL has been shown to give good performance for many general spatial problems,
-     *
-     * <p>
-     * Created by ewhite on 10/28/15.
-     */
-    public enum Split {
-        AXIAL,
-//        LINEAR,
-//        QUADRATIC,
-    }
 }
@@ -20,6 +20,8 @@ package org.wowtools.neo4j.rtree.internal.edit;
  * #L%
  */
 
+import org.wowtools.neo4j.rtree.RtreeSplit;
+
 /**
  * Create instances of SpatialSearch implementations
  * <p>
@@ -29,7 +31,7 @@ public class SpatialSearches {
 
     private static final int DEFAULT_MIN_M = 2;
     private static final int DEFAULT_MAX_M = 8;
-    public static final RTree.Split DEFAULT_SPLIT_TYPE = RTree.Split.AXIAL;
+    public static final RtreeSplit DEFAULT_SPLIT_TYPE = RtreeSplit.AXIAL;
 
     private SpatialSearches() {
     }
@@ -1,8 +1,11 @@
 package org.wowtools.neo4j.rtree.internal.edit;
 
 import org.neo4j.graphdb.*;
+import org.wowtools.neo4j.rtree.RtreeSplit;
+import org.wowtools.neo4j.rtree.internal.IndexVersion;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
 import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 
 import java.util.*;
@@ -22,15 +25,32 @@ public class TxCell {
     private final int mMin;
     private final int mMax;
     private final TxBuilder txBuilder;
+    private final String indexName;
+    private RtreeSplit split = RtreeSplit.AXIAL;
 
     private int num;
 
+    /**
+     * 本次插入是否还可以做重新插入(RSTAR)
+     */
+    private boolean reinsertAllowed;
+
+    /**
+     * 待重新插入的元素(RSTAR)
+     */
+    private final ArrayDeque<RectNd> reinsertQueue = new ArrayDeque<>();
+
     private final RectBuilder builder = new RectNd.Builder();
 
     private final Map<String, CacheNode> cacheNodeMap = new HashMap<>();
 
     private final Map<String, String> nodeParentMap = new HashMap<>();
 
+    /**
+     * 可能已脱离树的节点：被替换或移出父节点的子节点(分裂、合并、删空时)、被替换的根节点，提交时检查并删除
+     */
+    private final Set<String> detachedNodeIds = new LinkedHashSet<>();
+
     public CacheNode getNode(String nodeId) {
         CacheNode cacheNode = cacheNodeMap.get(nodeId);
         if (null != cacheNode) {
@@ -67,6 +87,20 @@ public class TxCell {
 
     public void setNodeParent(String nodeId, String parentNodeId) {
         nodeParentMap.put(nodeId, parentNodeId);
+        if (null == parentNodeId) {
+            detachedNodeIds.add(nodeId);
+        } else {
+            detachedNodeIds.remove(nodeId);
+        }
+    }
+
+    /**
+     * 标记节点可能已脱离树(例如被替换的根节点)，提交时若其既没有父节点也不是根节点，则连同其子节点一起删除
+     *
+     * @param nodeId 节点id
+     */
+    public void markDetached(String nodeId) {
+        detachedNodeIds.add(nodeId);
     }
 
     public org.wowtools.neo4j.rtree.internal.edit.Node getNodeFromNeo4j(String nid) {
@@ -75,20 +109,31 @@ public class TxCell {
         if (labelName.equals(Labels.RTREE_BRANCH.name())) {
             return NodeOfBranch.getFromNeo(getBuilder(), nid, this);
         } else if (labelName.equals(Labels.RTREE_LEAF.name())) {
+            if (split == RtreeSplit.RSTAR) {
+                return NodeOfRStarSplitLeaf.getFromNeo(getBuilder(), nid, this);
+            }
             return NodeOfAxialSplitLeaf.getFromNeo(getBuilder(), nid, this);
         } else {
             throw new RuntimeException("未知标签 " + labelName);
         }
     }
 
-    public TxCell(int limit, int mMin, int mMax, TxBuilder txBuilder) {
+    public TxCell(int limit, int mMin, int mMax, TxBuilder txBuilder, String indexName) {
         this.limit = limit;
         this.mMin = mMin;
         this.mMax = mMax;
         this.txBuilder = txBuilder;
+        this.indexName = indexName;
         newTx();
     }
 
+    /**
+     * @return 操作达到多少个顶点时执行提交操作
+     */
+    public int getLimit() {
+        return limit;
+    }
+
     public RectBuilder getBuilder() {
         return builder;
     }
@@ -119,6 +164,8 @@ public class TxCell {
     }
 
     public void commit() {
+        long start = System.nanoTime();
+        int changeNum = num;
         //各cacheNode属性提交
         cacheNodeMap.forEach((nid, cacheNode) -> {
             cacheNode.commit();
@@ -138,7 +185,7 @@ public class TxCell {
                     if (hasRelationship) {
                         relationship.delete();
                     } else {
-                        if (parentNid.equals(relationship.getElementId())) {
+                        if (parentNid.equals(relationship.getStartNode().getElementId())) {
                             hasRelationship = true;
                         } else {
                             relationship.delete();
@@ -151,8 +198,8 @@ public class TxCell {
                 }
             }
         });
-        neoGc();//gc
-        tx.commit();//提交neo4j事务
+        deleteDetached();
+        IndexVersion.commit(indexName, tx);//提交neo4j事务，并使查询中的读取和缓存的节点失效
         //清理内存中的对象
         num = 0;
         cacheNodeMap.forEach((nid, cacheNode) -> {
@@ -160,99 +207,127 @@ public class TxCell {
         });
         cacheNodeMap.clear();
         nodeParentMap.clear();
+        detachedNodeIds.clear();
+        RtreeMetrics.commitFinished(indexName, changeNum, System.nanoTime() - start);
     }
 
     /**
-     * 做一次“gc”操作，把cacheNodeMap中没有引用的node及其子节点从数据库删除掉
+     * 删除本事务中脱离了树的节点及其下的子节点、数据节点。
+     * 只检查编辑过程中记录下来的可能脱离树的节点，提交时最终仍没有父节点、也不是根节点的才删除，不需要遍历整棵树
      */
-    private void neoGc() {
-        Set<String> connedIds = new HashSet<>();
-        cacheNodeMap.forEach((id, n) -> {
-            if (connedIds.contains(id)) {
-                return;
-            }
+    private void deleteDetached() {
+        long start = System.nanoTime();
+        long[] counter = new long[2];//遍历的节点数、删除的节点数
+        for (String id : detachedNodeIds) {
+            counter[0]++;
             org.neo4j.graphdb.Node node;
             try {
                 node = tx.getNodeByElementId(id);
             } catch (NotFoundException e) {
-                //node已在前面的遍历中被删除，跳过
-                return;
+                //node已随前面的节点被删除，跳过
+                continue;
             }
-            org.neo4j.graphdb.Node thisRoot = node;
-            ArrayDeque<org.neo4j.graphdb.Node> stack = new ArrayDeque<>();
-            List<org.neo4j.graphdb.Node> nodes = new LinkedList<>();
-            stack.push(node);
-            boolean findRoot = false;
-            do {
-                try {
-                    node = stack.pop();
-                } catch (NotFoundException e) {
-                    continue;
-                }
-                nodes.add(node);
-                //检查是否有关系 RTREE_METADATA_TO_ROOT
-                ResourceIterable<Relationship> relationships = node.getRelationships(Direction.INCOMING, Relationships.RTREE_METADATA_TO_ROOT);
-                Iterator<Relationship> iterator = relationships.iterator();
-                if (iterator.hasNext()) {
-                    findRoot = true;
-                    break;
-                }
-                relationships.close();
-                //将父节点丢进栈继续
-                relationships = node.getRelationships(Direction.INCOMING, Relationships.RTREE_PARENT_TO_CHILD);
-                for (Relationship relationship : relationships) {
-                    org.neo4j.graphdb.Node parent = relationship.getStartNode();
-                    thisRoot = parent;
-                    stack.push(parent);
-                }
-                relationships.close();
-            } while (!stack.isEmpty());
-            //未找到根节点，则删除所有本次遍历过的设备
-            if (!findRoot) {
-                stack = new ArrayDeque<>();
-                stack.push(thisRoot);
-                do {
-                    try {
-                        node = stack.pop();
-                    } catch (NotFoundException e) {
-                        continue;
-                    }
-                    //遍历子节点
-                    //如果子节点是叶子节点，还要遍历删掉数据节点
-                    if (node.hasLabel(Labels.RTREE_LEAF)) {
-                        ResourceIterable<Relationship> relationships = node.getRelationships(Direction.OUTGOING, Relationships.RTREE_LEAF_TO_ENTITY);
-                        for (Relationship relationship : relationships){
-                            relationship.getEndNode().delete();
-                            relationship.delete();
-                        }
-                    }
-                    ResourceIterable<Relationship> relationships = node.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD);
-                    for (Relationship relationship : relationships) {
-                        org.neo4j.graphdb.Node parent = relationship.getStartNode();
-                        thisRoot = parent;
-                        stack.push(parent);
-                    }
-                    relationships.close();
-                    //删除父节点及关系
-                    relationships = node.getRelationships();
-                    for (Relationship r : relationships) {
-                        r.delete();
-                    }
-                    relationships.close();
-                    node.delete();
-                } while (!stack.isEmpty());
-            }else {
-                for (org.neo4j.graphdb.Node node1 : nodes) {
-                    connedIds.add(node1.getElementId());
+            if (isAttached(node)) {
+                continue;
+            }
+            deleteSubtree(node, counter);
+        }
+        RtreeMetrics.gcFinished(indexName, counter[0], counter[1], System.nanoTime() - start);
+    }
+
+    /**
+     * 删除一个已脱离树的节点，以及其下同样没有其它父节点的子节点、叶子节点上的数据节点
+     *
+     * @param node    已脱离树的节点
+     * @param counter 累加遍历的节点数、删除的节点数
+     */
+    public static void deleteSubtree(org.neo4j.graphdb.Node node, long[] counter) {
+        ArrayDeque<org.neo4j.graphdb.Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        do {
+            node = stack.pop();
+            ResourceIterable<Relationship> relationships = node.getRelationships(Direction.OUTGOING);
+            for (Relationship relationship : relationships) {
+                org.neo4j.graphdb.Node end = relationship.getEndNode();
+                boolean toEntity = relationship.isType(Relationships.RTREE_LEAF_TO_ENTITY);
+                relationship.delete();
+                if (toEntity) {
+                    end.delete();
+                    counter[1]++;
+                } else if (!isAttached(end)) {
+                    counter[0]++;
+                    stack.push(end);
                 }
             }
-        });
+            relationships.close();
+            node.delete();
+            counter[1]++;
+        } while (!stack.isEmpty());
     }
 
+    /**
+     * @param node 树节点
+     * @return 是否有父节点或是根节点
+     */
+    public static boolean isAttached(org.neo4j.graphdb.Node node) {
+        return node.hasRelationship(Direction.INCOMING, Relationships.RTREE_PARENT_TO_CHILD, Relationships.RTREE_METADATA_TO_ROOT);
+    }
     public void close() {
         tx.close();
     }
 
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public RtreeSplit getSplit() {
+        return split;
+    }
+
+    /**
+     * 设置索引的分裂策略，须在编辑前设置
+     *
+     * @param split 分裂策略
+     */
+    public void setSplit(RtreeSplit split) {
+        this.split = split;
+    }
+
+    /**
+     * 开始插入一个元素，允许做一次重新插入
+     */
+    public void beginInsert() {
+        reinsertAllowed = true;
+    }
+
+    /**
+     * 叶子节点溢出时调用，若本次插入还没有做过重新插入则返回true，之后的溢出只能分裂
+     *
+     * @return 是否可以重新插入
+     */
+    public boolean startReinsert() {
+        if (reinsertAllowed) {
+            reinsertAllowed = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param t 从叶子节点移出、待重新插入的元素
+     */
+    public void addReinsert(RectNd t) {
+        reinsertQueue.add(t);
+    }
+
+    /**
+     * @return 下一个待重新插入的元素，没有则返回null
+     */
+    public RectNd pollReinsert() {
+        reinsertAllowed = false;
+        return reinsertQueue.poll();
+    }
+
     public int getmMin() {
         return mMin;
     }
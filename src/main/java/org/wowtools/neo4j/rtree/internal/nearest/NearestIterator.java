@@ -0,0 +1,104 @@
+package org.wowtools.neo4j.rtree.internal.nearest;
+
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.internal.read.ConsistentRead;
+import org.wowtools.neo4j.rtree.internal.read.TreeReader;
+import org.wowtools.neo4j.rtree.util.DistanceResult;
+import org.wowtools.neo4j.rtree.util.NearestNeighbour;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 按距离由近到远逐个返回查询结果的迭代器，每次取下一个结果时才展开必要的树节点。
+ * 每次取值都通过ConsistentRead读取，两次取值之间索引若有提交，则从根节点重新搜索，
+ * 并跳过距离比上一个结果更近的结果，以及与上一个结果距离相同且已返回过的结果，保证距离不减；
+ * 只记录与上一个结果距离相同的已返回结果，不记录全部历史，所以期间被修改到更远位置的数据可能再返回一次
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class NearestIterator<T extends DistanceResult> implements Iterator<T> {
+
+    private final Transaction tx;
+    private final String metadataNodeId;
+    private final String indexName;
+    private final NearestQueue<T> queue;
+    private final int maxHits;
+    /**
+     * 距离等于lastDist的已返回结果
+     */
+    private final Set<String> returned = new HashSet<>();
+    private long version = -1;
+    private double lastDist = Double.NEGATIVE_INFINITY;
+    private int hits;
+    private T next;
+    private boolean end;
+
+    /**
+     * @param nearestNeighbour 查询条件，最多返回其maxHits个结果
+     * @param tx               事务 迭代完成前不能关闭
+     * @param metadataNodeId   索引METADATA节点id
+     * @param indexName        索引名
+     */
+    public NearestIterator(NearestNeighbour<T> nearestNeighbour, Transaction tx, String metadataNodeId, String indexName) {
+        this.tx = tx;
+        this.metadataNodeId = metadataNodeId;
+        this.indexName = indexName;
+        this.queue = new NearestQueue<>(nearestNeighbour);
+        this.maxHits = nearestNeighbour.getMaxHits();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (null != next) {
+            return true;
+        }
+        if (end) {
+            return false;
+        }
+        if (hits >= maxHits) {
+            end = true;
+            return false;
+        }
+        next = ConsistentRead.read(tx, metadataNodeId, indexName, "nearestIterator", this::poll);
+        if (null == next) {
+            end = true;
+            return false;
+        }
+        hits++;
+        if (next.getDist() != lastDist) {
+            returned.clear();
+            lastDist = next.getDist();
+        }
+        returned.add(next.getDataNodeId());
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T res = next;
+        next = null;
+        return res;
+    }
+
+    private T poll(TreeReader reader) {
+        if (reader.getVersion() != version) {
+            //首次读取或上次读取后索引有提交，重新搜索
+            version = reader.getVersion();
+            queue.start(reader);
+        }
+        T dr;
+        while (null != (dr = queue.poll(reader))) {
+            if (dr.getDist() > lastDist || (dr.getDist() == lastDist && !returned.contains(dr.getDataNodeId()))) {
+                return dr;
+            }
+        }
+        return null;
+    }
+}
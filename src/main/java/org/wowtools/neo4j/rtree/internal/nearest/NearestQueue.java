@@ -0,0 +1,144 @@
+package org.wowtools.neo4j.rtree.internal.nearest;
+
+import org.wowtools.neo4j.rtree.internal.read.BranchNode;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
+import org.wowtools.neo4j.rtree.internal.read.TreeReader;
+import org.wowtools.neo4j.rtree.pojo.PointNd;
+import org.wowtools.neo4j.rtree.util.DistanceResult;
+import org.wowtools.neo4j.rtree.util.DistanceResultNodeFilter;
+import org.wowtools.neo4j.rtree.util.NearestNeighbour;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * 增量最邻近搜索(best-first)。
+ * 树节点与已算出距离的查询结果放在同一个优先队列中，树节点以其mbr与目标点的最小距离排序，
+ * 由于元素到目标点的距离不会小于其所在节点mbr的最小距离，队首为查询结果时它就是剩余元素中最近的，
+ * 因此每次poll只展开必要的节点，调用者可以在任意时刻停止。
+ * 叶子节点中的元素先以叶子节点上存储的元素bbox的最小距离入队，到达队首时才调用createDistanceResult
+ * 读取数据节点并计算真实距离，避免为不会被返回的元素读取数据节点(例如解析geometry)。
+ * 距离以元素bbox为界且不过滤时，用已知元素bbox的MINMAXDIST中第maxHits小的值作为第maxHits近距离的上界，
+ * 最小距离超过上界或maxDistance的节点和元素不入队
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class NearestQueue<T extends DistanceResult> {
+
+    private final NearestNeighbour<T> nearestNeighbour;
+    private final PointNd pointNd;
+    private final DistanceResultNodeFilter filter;
+    private final PriorityQueue<QueueItem> queue = new PriorityQueue<>(20);
+    private final double maxDistance;
+    /**
+     * 用于估计上界的元素个数，为0时不估计
+     */
+    private final int boundHits;
+    /**
+     * 已知元素中最小的boundHits个MINMAXDIST，大顶堆
+     */
+    private final PriorityQueue<Double> upperBounds;
+
+    public NearestQueue(NearestNeighbour<T> nearestNeighbour) {
+        this.nearestNeighbour = nearestNeighbour;
+        this.pointNd = nearestNeighbour.getPointNd();
+        this.filter = nearestNeighbour.getFilter();
+        this.maxDistance = nearestNeighbour.getMaxDistance();
+        int maxHits = nearestNeighbour.getMaxHits();
+        if (nearestNeighbour.isDistanceBoundedByMbr() && filter == NearestNeighbour.alwaysTrue
+                && maxHits > 0 && maxHits < Integer.MAX_VALUE) {
+            boundHits = maxHits;
+            upperBounds = new PriorityQueue<>(maxHits, Comparator.reverseOrder());
+        } else {
+            boundHits = 0;
+            upperBounds = null;
+        }
+    }
+
+    /**
+     * @return 结果距离的上界，最小距离超过它的节点和元素不可能成为结果
+     */
+    private double bound() {
+        if (null == upperBounds || upperBounds.size() < boundHits) {
+            return maxDistance;
+        }
+        return Math.min(maxDistance, upperBounds.peek());
+    }
+
+    /**
+     * 清空队列，从根节点开始搜索
+     *
+     * @param reader 树节点读取器
+     */
+    public void start(TreeReader reader) {
+        queue.clear();
+        if (null != upperBounds) {
+            upperBounds.clear();
+        }
+        expandBranch(reader.getRoot());
+    }
+
+    /**
+     * 取出下一个最近的查询结果
+     *
+     * @param reader 树节点读取器
+     * @return 查询结果，没有更多结果时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public T poll(TreeReader reader) {
+        QueueItem item;
+        while (null != (item = queue.poll())) {
+            if (item.getMinDist() > bound()) {
+                //队列有序，剩余的都超出上界
+                queue.clear();
+                return null;
+            }
+            if (null != item.getResult()) {
+                return (T) item.getResult();
+            }
+            if (item.isEntry()) {
+                T dr = nearestNeighbour.createDistanceResult(pointNd, item.getNodeId());
+                if (filter.accept(dr)) {
+                    queue.add(new QueueItem(dr));
+                }
+            } else if (item.isLeaf()) {
+                expandLeaf(reader.getLeaf(item.getNodeId()));
+            } else {
+                expandBranch(reader.getBranch(item.getNodeId()));
+            }
+        }
+        return null;
+    }
+
+    //访问索引上的非叶子节点
+    private void expandBranch(BranchNode node) {
+        double bound = bound();
+        for (int i = 0; i < node.size(); i++) {
+            double minDist = Math.sqrt(node.minDist(i, pointNd));
+            if (minDist <= bound) {
+                queue.add(new QueueItem(minDist, node.getChildId(i), node.isChildLeaf(i)));
+            }
+        }
+    }
+
+    //访问索引上的叶子节点
+    private void expandLeaf(LeafEntries entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            double minDist = Math.sqrt(entries.minDist(i, pointNd));
+            if (minDist > bound()) {
+                continue;
+            }
+            queue.add(new QueueItem(minDist, entries.getDataNodeId(i)));
+            if (null != upperBounds) {
+                double upperBound = Math.sqrt(entries.minMaxDist(i, pointNd));
+                if (upperBounds.size() < boundHits) {
+                    upperBounds.add(upperBound);
+                } else if (upperBound < upperBounds.peek()) {
+                    upperBounds.poll();
+                    upperBounds.add(upperBound);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.wowtools.neo4j.rtree.internal.nearest;
+
+import org.wowtools.neo4j.rtree.util.DistanceResult;
+
+/**
+ * 最邻近搜索优先队列中的元素，可以是树节点、叶子节点中的元素或已算出距离的查询结果。
+ * 树节点和元素入队时即算好其mbr与目标点的最小距离，比较时不必再读取节点属性
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class QueueItem implements Comparable<QueueItem> {
+    private final double minDist;
+    private final String nodeId;
+    private final boolean leaf;
+    private final boolean entry;
+    private final DistanceResult result;
+
+    /**
+     * 树节点
+     *
+     * @param minDist 节点mbr与目标点的最小距离
+     * @param nodeId  节点id
+     * @param leaf    是否叶子节点
+     */
+    public QueueItem(double minDist, String nodeId, boolean leaf) {
+        this.minDist = minDist;
+        this.nodeId = nodeId;
+        this.leaf = leaf;
+        this.entry = false;
+        this.result = null;
+    }
+
+    /**
+     * 叶子节点中的元素，出队时才计算其真实距离
+     *
+     * @param minDist    元素bbox与目标点的最小距离
+     * @param dataNodeId 元素的数据节点id
+     */
+    public QueueItem(double minDist, String dataNodeId) {
+        this.minDist = minDist;
+        this.nodeId = dataNodeId;
+        this.leaf = false;
+        this.entry = true;
+        this.result = null;
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param result 查询结果
+     */
+    public QueueItem(DistanceResult result) {
+        this.minDist = result.getDist();
+        this.nodeId = null;
+        this.leaf = false;
+        this.entry = false;
+        this.result = result;
+    }
+
+    @Override
+    public int compareTo(QueueItem o) {
+        int c = Double.compare(minDist, o.minDist);
+        if (c != 0) {
+            return c;
+        }
+        //距离相同时查询结果优先出队，其次是元素，不必再展开节点
+        return Integer.compare(rank(), o.rank());
+    }
+
+    private int rank() {
+        if (null != result) {
+            return 0;
+        }
+        return entry ? 1 : 2;
+    }
+
+    public double getMinDist() {
+        return minDist;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isLeaf() {
+        return leaf;
+    }
+
+    /**
+     * @return 是否是叶子节点中的元素，是则nodeId为元素的数据节点id
+     */
+    public boolean isEntry() {
+        return entry;
+    }
+
+    /**
+     * @return 查询结果，树节点和元素返回null
+     */
+    public DistanceResult getResult() {
+        return result;
+    }
+}
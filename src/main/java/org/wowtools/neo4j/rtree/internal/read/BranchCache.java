@@ -0,0 +1,98 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个索引的非叶子节点缓存，以节点id为key缓存解码后的BranchNode。
+ * 缓存满后不再放入新节点，由于每次查询都从根节点向下遍历，先放入缓存的通常是树的上层节点；
+ * 索引版本号变化后，旧版本的节点全部失效
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class BranchCache {
+
+    private static final Map<String, BranchCache> caches = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+    private final Map<String, BranchNode> nodes = new ConcurrentHashMap<>();
+    private volatile long version = -1;
+
+    private BranchCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 为索引开启缓存，若已开启，则以新的maxSize重建
+     *
+     * @param indexName 索引名
+     * @param maxSize   最多缓存的节点数
+     */
+    public static void enable(String indexName, int maxSize) {
+        caches.put(indexName, new BranchCache(maxSize));
+    }
+
+    /**
+     * 关闭索引的缓存
+     *
+     * @param indexName 索引名
+     */
+    public static void disable(String indexName) {
+        caches.remove(indexName);
+    }
+
+    /**
+     * @param indexName 索引名
+     * @return 索引的缓存，未开启时返回null
+     */
+    public static BranchCache get(String indexName) {
+        return caches.get(indexName);
+    }
+
+    /**
+     * 获取缓存的节点
+     *
+     * @param nodeId  节点id
+     * @param version 当前索引版本号
+     * @return 节点，不存在或已过期返回null
+     */
+    public BranchNode get(String nodeId, long version) {
+        BranchNode node = nodes.get(nodeId);
+        if (null != node && node.getVersion() == version) {
+            return node;
+        }
+        return null;
+    }
+
+    /**
+     * 放入节点
+     *
+     * @param nodeId 节点id
+     * @param node   节点
+     */
+    public void put(String nodeId, BranchNode node) {
+        long v = node.getVersion();
+        if (v > version) {
+            synchronized (this) {
+                if (v > version) {
+                    nodes.clear();
+                    version = v;
+                }
+            }
+        }
+        if (v != version) {
+            return;
+        }
+        if (nodes.size() < maxSize || nodes.containsKey(nodeId)) {
+            nodes.put(nodeId, node);
+        }
+    }
+
+    /**
+     * @return 当前缓存的节点数
+     */
+    public int size() {
+        return nodes.size();
+    }
+}
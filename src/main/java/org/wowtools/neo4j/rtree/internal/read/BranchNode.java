@@ -0,0 +1,227 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
+import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.internal.nearest.MinDist;
+import org.wowtools.neo4j.rtree.pojo.PointNd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 解码后的非叶子节点，记录了子节点的id、是否为叶子节点、子节点的mbr以及子节点中的元素总数，
+ * 遍历时只需读取本节点即可判断要进入哪些子节点，可被RtreeNodeCache缓存。
+ * 索引的METADATA节点也以此结构读取，其唯一的子节点为根节点
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class BranchNode {
+
+    private final long version;
+    private final String[] childIds;
+    private final boolean[] childLeafs;
+    private final double[] childMbrs;
+    private final int[] childEntryCounts;
+    private final int nDim;
+
+    private BranchNode(long version, String[] childIds, boolean[] childLeafs, double[] childMbrs, int[] childEntryCounts, int nDim) {
+        this.version = version;
+        this.childIds = childIds;
+        this.childLeafs = childLeafs;
+        this.childMbrs = childMbrs;
+        this.childEntryCounts = childEntryCounts;
+        this.nDim = nDim;
+    }
+
+    /**
+     * 从neo4j读取非叶子节点或METADATA节点
+     *
+     * @param node    非叶子节点或METADATA节点
+     * @param version 读取时的索引版本号
+     * @return BranchNode
+     */
+    public static BranchNode read(Node node, long version) {
+        RelationshipType relationshipType = node.hasLabel(Labels.METADATA) ? Relationships.RTREE_METADATA_TO_ROOT : Relationships.RTREE_PARENT_TO_CHILD;
+        List<Node> children = new ArrayList<>();
+        for (Relationship relationship : node.getRelationships(Direction.OUTGOING, relationshipType)) {
+            children.add(relationship.getEndNode());
+        }
+        int size = children.size();
+        String[] childIds = new String[size];
+        boolean[] childLeafs = new boolean[size];
+        int[] childEntryCounts = new int[size];
+        double[] childMbrs = null;
+        int nDim = 0;
+        for (int i = 0; i < size; i++) {
+            Node child = children.get(i);
+            Map<String, Object> properties = child.getProperties(PropertyNames.mbrMin, PropertyNames.mbrMax, PropertyNames.size, PropertyNames.entryCount);
+            double[] min = (double[]) properties.get(PropertyNames.mbrMin);
+            double[] max = (double[]) properties.get(PropertyNames.mbrMax);
+            if (null == childMbrs) {
+                nDim = min.length;
+                childMbrs = new double[size * nDim * 2];
+            }
+            System.arraycopy(min, 0, childMbrs, i * nDim * 2, nDim);
+            System.arraycopy(max, 0, childMbrs, i * nDim * 2 + nDim, nDim);
+            childIds[i] = child.getElementId();
+            childLeafs[i] = child.hasLabel(Labels.RTREE_LEAF);
+            //叶子节点的元素数即size，非叶子节点记录了子树中的元素总数，旧版本的索引没有记录时为-1
+            Object entryCount = properties.get(childLeafs[i] ? PropertyNames.size : PropertyNames.entryCount);
+            childEntryCounts[i] = null == entryCount ? -1 : (int) entryCount;
+        }
+        return new BranchNode(version, childIds, childLeafs, childMbrs, childEntryCounts, nDim);
+    }
+
+    /**
+     * 第i个子节点的mbr是否与输入的bbox相交
+     *
+     * @param i   子节点序号
+     * @param min 输入bbox的min
+     * @param max 输入bbox的max
+     * @return 是否相交
+     */
+    public boolean intersects(int i, double[] min, double[] max) {
+        int offset = i * nDim * 2;
+        for (int d = 0; d < nDim; d++) {
+            if (childMbrs[offset + d] > max[d] || min[d] > childMbrs[offset + nDim + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 第i个子节点的mbr是否包含输入的bbox
+     *
+     * @param i   子节点序号
+     * @param min 输入bbox的min
+     * @param max 输入bbox的max
+     * @return 是否包含
+     */
+    public boolean contains(int i, double[] min, double[] max) {
+        int offset = i * nDim * 2;
+        for (int d = 0; d < nDim; d++) {
+            if (childMbrs[offset + d] > min[d] || max[d] > childMbrs[offset + nDim + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 第i个子节点的mbr是否在输入的bbox内
+     *
+     * @param i   子节点序号
+     * @param min 输入bbox的min
+     * @param max 输入bbox的max
+     * @return 是否在bbox内
+     */
+    public boolean within(int i, double[] min, double[] max) {
+        int offset = i * nDim * 2;
+        for (int d = 0; d < nDim; d++) {
+            if (min[d] > childMbrs[offset + d] || childMbrs[offset + nDim + d] > max[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 第i个子节点的mbr与点的最小距离的平方
+     *
+     * @param i       子节点序号
+     * @param pointNd 点
+     * @return 最小距离的平方
+     */
+    public double minDist(int i, PointNd pointNd) {
+        return MinDist.get(getChildMin(i), getChildMax(i), pointNd);
+    }
+
+    /**
+     * @param i 子节点序号
+     * @return 第i个子节点mbr的min
+     */
+    public double[] getChildMin(int i) {
+        double[] min = new double[nDim];
+        System.arraycopy(childMbrs, i * nDim * 2, min, 0, nDim);
+        return min;
+    }
+
+    /**
+     * @param i 子节点序号
+     * @return 第i个子节点mbr的max
+     */
+    public double[] getChildMax(int i) {
+        double[] max = new double[nDim];
+        System.arraycopy(childMbrs, i * nDim * 2 + nDim, max, 0, nDim);
+        return max;
+    }
+
+    /**
+     * 第i个子节点的mbr与输入的bbox相交部分占子节点mbr的比例，按各维度上相交长度的比例之积计算
+     *
+     * @param i   子节点序号
+     * @param min 输入bbox的min
+     * @param max 输入bbox的max
+     * @return 比例，不相交时为0
+     */
+    public double overlapRatio(int i, double[] min, double[] max) {
+        int offset = i * nDim * 2;
+        double ratio = 1;
+        for (int d = 0; d < nDim; d++) {
+            double childMin = childMbrs[offset + d];
+            double childMax = childMbrs[offset + nDim + d];
+            double overlap = Math.min(childMax, max[d]) - Math.max(childMin, min[d]);
+            if (overlap < 0) {
+                return 0;
+            }
+            double range = childMax - childMin;
+            if (range > 0) {
+                ratio *= overlap / range;
+            }
+        }
+        return ratio;
+    }
+
+    /**
+     * @param i 子节点序号
+     * @return 第i个子节点中的元素总数，旧版本的索引没有记录时返回-1
+     */
+    public int getChildEntryCount(int i) {
+        return childEntryCounts[i];
+    }
+
+    /**
+     * @param i 子节点序号
+     * @return 第i个子节点的id
+     */
+    public String getChildId(int i) {
+        return childIds[i];
+    }
+
+    /**
+     * @param i 子节点序号
+     * @return 第i个子节点是否为叶子节点
+     */
+    public boolean isChildLeaf(int i) {
+        return childLeafs[i];
+    }
+
+    public int size() {
+        return childIds.length;
+    }
+
+    /**
+     * @return 读取时的索引版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,188 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.internal.RtreeLock;
+import org.wowtools.neo4j.rtree.metrics.QueryStats;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
+
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 无锁读。
+ * neo4j的读事务是read committed的，遍历树的过程中若编辑器提交了修改，可能读到新旧两棵树混合的状态，
+ * 所以先乐观地不加锁读取，结束时校验索引版本号，期间有提交(或读到了已被删除的节点)则重试；
+ * 连续失败数次后加提交锁的读锁再读一次，此时只会阻塞编辑器的提交，不会阻塞整个编辑过程。
+ * 读取过程中调用过TreeReader.lockCommit的，读取结束后释放提交锁。
+ * 同时读取两个索引时，两个索引的提交锁总是按索引名的顺序获取，避免相反方向的两个读取与编辑器的提交互相等待。
+ * 读取结束后将统计信息报告给RtreeMetrics
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class ConsistentRead {
+
+    /**
+     * 乐观读的最大次数
+     */
+    private static final int optimisticTimes = 3;
+
+    private ConsistentRead() {
+    }
+
+    /**
+     * 读取
+     *
+     * @param tx             事务
+     * @param metadataNodeId 索引METADATA节点id
+     * @param indexName      索引名
+     * @param queryType      查询类型，用于统计
+     * @param attempt        读取过程，可能被执行多次
+     * @param <T>            读取结果类型
+     * @return 读取结果
+     */
+    public static <T> T read(Transaction tx, String metadataNodeId, String indexName, String queryType, Function<TreeReader, T> attempt) {
+        QueryStats stats = new QueryStats(indexName, queryType);
+        long start = System.nanoTime();
+        try {
+            return read(tx, metadataNodeId, indexName, stats, attempt);
+        } finally {
+            stats.setElapsedNanos(System.nanoTime() - start);
+            RtreeMetrics.queryFinished(stats);
+        }
+    }
+
+    private static <T> T read(Transaction tx, String metadataNodeId, String indexName, QueryStats stats, Function<TreeReader, T> attempt) {
+        for (int i = 0; i < optimisticTimes; i++) {
+            TreeReader reader = new TreeReader(tx, metadataNodeId, indexName, stats);
+            if (!reader.isStable()) {
+                //正在提交
+                Thread.yield();
+                continue;
+            }
+            stats.incAttempts();
+            T res;
+            boolean valid;
+            try {
+                res = attempt.apply(reader);
+                //在释放提交锁之前校验
+                valid = reader.isValid();
+            } catch (NotFoundException e) {
+                if (reader.isValid()) {
+                    throw e;
+                }
+                continue;
+            } finally {
+                reader.unlockCommit();
+            }
+            if (valid) {
+                return res;
+            }
+        }
+        Lock lock = RtreeLock.getCommitLock(indexName).readLock();
+        RtreeLock.lock(lock, indexName, "commitRead");
+        TreeReader reader = new TreeReader(tx, metadataNodeId, indexName, stats, lock);
+        try {
+            stats.incAttempts();
+            return attempt.apply(reader);
+        } finally {
+            reader.unlockCommit();
+        }
+    }
+
+    /**
+     * 同时读取两个索引，例如连接查询
+     *
+     * @param tx              事务
+     * @param metadataNodeIdA 索引A的METADATA节点id
+     * @param indexNameA      索引A的索引名
+     * @param metadataNodeIdB 索引B的METADATA节点id
+     * @param indexNameB      索引B的索引名
+     * @param queryType       查询类型，用于统计
+     * @param attempt         读取过程，可能被执行多次，需要向访问器交出结果时先调用lockCommit(readerA, readerB)
+     * @param <T>             读取结果类型
+     * @return 读取结果
+     */
+    public static <T> T read(Transaction tx, String metadataNodeIdA, String indexNameA, String metadataNodeIdB, String indexNameB,
+                             String queryType, BiFunction<TreeReader, TreeReader, T> attempt) {
+        QueryStats statsA = new QueryStats(indexNameA, queryType);
+        QueryStats statsB = new QueryStats(indexNameB, queryType);
+        long start = System.nanoTime();
+        try {
+            return read(tx, metadataNodeIdA, indexNameA, statsA, metadataNodeIdB, indexNameB, statsB, attempt);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            statsA.setElapsedNanos(elapsed);
+            statsB.setElapsedNanos(elapsed);
+            RtreeMetrics.queryFinished(statsA);
+            RtreeMetrics.queryFinished(statsB);
+        }
+    }
+
+    private static <T> T read(Transaction tx, String metadataNodeIdA, String indexNameA, QueryStats statsA,
+                              String metadataNodeIdB, String indexNameB, QueryStats statsB,
+                              BiFunction<TreeReader, TreeReader, T> attempt) {
+        for (int i = 0; i < optimisticTimes; i++) {
+            TreeReader readerA = new TreeReader(tx, metadataNodeIdA, indexNameA, statsA);
+            TreeReader readerB = new TreeReader(tx, metadataNodeIdB, indexNameB, statsB);
+            if (!readerA.isStable() || !readerB.isStable()) {
+                Thread.yield();
+                continue;
+            }
+            statsA.incAttempts();
+            statsB.incAttempts();
+            T res;
+            boolean valid;
+            try {
+                res = attempt.apply(readerA, readerB);
+                valid = readerA.isValid() && readerB.isValid();
+            } catch (NotFoundException e) {
+                if (readerA.isValid() && readerB.isValid()) {
+                    throw e;
+                }
+                continue;
+            } finally {
+                readerA.unlockCommit();
+                readerB.unlockCommit();
+            }
+            if (valid) {
+                return res;
+            }
+        }
+        Lock lockA = RtreeLock.getCommitLock(indexNameA).readLock();
+        Lock lockB = RtreeLock.getCommitLock(indexNameB).readLock();
+        if (indexNameA.compareTo(indexNameB) <= 0) {
+            RtreeLock.lock(lockA, indexNameA, "commitRead");
+            RtreeLock.lock(lockB, indexNameB, "commitRead");
+        } else {
+            RtreeLock.lock(lockB, indexNameB, "commitRead");
+            RtreeLock.lock(lockA, indexNameA, "commitRead");
+        }
+        TreeReader readerA = new TreeReader(tx, metadataNodeIdA, indexNameA, statsA, lockA);
+        TreeReader readerB = new TreeReader(tx, metadataNodeIdB, indexNameB, statsB, lockB);
+        try {
+            statsA.incAttempts();
+            statsB.incAttempts();
+            return attempt.apply(readerA, readerB);
+        } finally {
+            readerA.unlockCommit();
+            readerB.unlockCommit();
+        }
+    }
+
+    /**
+     * 按索引名的顺序对两个TreeReader调用lockCommit
+     *
+     * @param readerA TreeReader
+     * @param readerB TreeReader
+     * @return 两个索引在读取期间是否都没有提交过，为false时应放弃本次读取
+     */
+    public static boolean lockCommit(TreeReader readerA, TreeReader readerB) {
+        if (readerA.getIndexName().compareTo(readerB.getIndexName()) <= 0) {
+            return readerA.lockCommit() && readerB.lockCommit();
+        }
+        return readerB.lockCommit() && readerA.lockCommit();
+    }
+}
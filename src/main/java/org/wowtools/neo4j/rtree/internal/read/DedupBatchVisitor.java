@@ -0,0 +1,41 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import org.wowtools.neo4j.rtree.util.BooleanBatchDataNodeVisitor;
+
+/**
+ * 批量查询版本的DedupVisitor，第一次把结果交给访问器之前加提交锁的读锁并校验索引版本号，
+ * 保证ConsistentRead重试时每个(查询序号,数据节点)只被访问一次，且不需要记录访问过的结果
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class DedupBatchVisitor implements BooleanBatchDataNodeVisitor {
+
+    private final BooleanBatchDataNodeVisitor visitor;
+    private TreeReader reader;
+
+    /**
+     * @param visitor 被包装的访问器
+     */
+    public DedupBatchVisitor(BooleanBatchDataNodeVisitor visitor) {
+        this.visitor = visitor;
+    }
+
+    /**
+     * 开始一次读取
+     *
+     * @param reader 本次读取的TreeReader
+     */
+    public void beginAttempt(TreeReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean visit(int queryIndex, String nodeId) {
+        if (!reader.lockCommit()) {
+            //放弃本次读取
+            return true;
+        }
+        return visitor.visit(queryIndex, nodeId);
+    }
+}
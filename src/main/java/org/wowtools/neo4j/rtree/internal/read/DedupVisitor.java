@@ -0,0 +1,43 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import org.wowtools.neo4j.rtree.util.BooleanDataNodeVisitor;
+
+/**
+ * 保证ConsistentRead重试时每个数据节点只被访问一次，且不需要记录访问过的数据节点：
+ * 第一次把结果交给访问器之前，先用TreeReader.lockCommit加提交锁的读锁并校验索引版本号，
+ * 期间索引有提交则放弃本次读取(此时还没有交出任何结果)，否则之后索引不会再有提交，本次读取不会再重试。
+ * 没有结果的查询不会加锁；有结果的查询会阻塞编辑器的提交直到查询结束，所以访问器中不能提交同一索引的修改
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class DedupVisitor implements BooleanDataNodeVisitor {
+
+    private final BooleanDataNodeVisitor visitor;
+    private TreeReader reader;
+
+    /**
+     * @param visitor 被包装的访问器
+     */
+    public DedupVisitor(BooleanDataNodeVisitor visitor) {
+        this.visitor = visitor;
+    }
+
+    /**
+     * 开始一次读取
+     *
+     * @param reader 本次读取的TreeReader
+     */
+    public void beginAttempt(TreeReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean visit(String nodeId) {
+        if (!reader.lockCommit()) {
+            //放弃本次读取
+            return true;
+        }
+        return visitor.visit(nodeId);
+    }
+}
@@ -0,0 +1,236 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 可中断、可恢复的相交查询遍历。
+ * 结果按(元素bbox第0维的min, 数据节点id)由小到大返回：树节点以其mbr第0维的min排序，与元素放在同一个优先队列中，
+ * 队首为元素时它就是剩余结果中最小的。因此只需记录最后返回的结果的位置，就可以在任意时刻从根节点重新开始并跳过位置不大于它的结果，
+ * mbr第0维的max小于该位置的子树不必展开。
+ * 位置可编码为字符串交给调用者，下一页在新的事务中继续读取；期间索引有提交或数据库重启时游标仍然有效，
+ * 未被修改的数据恰好返回一次，期间被修改的数据可能被跳过或在新的位置再返回一次。
+ * 游标记录了索引METADATA节点的id，用于其它索引时会被拒绝
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class IntersectsCursor {
+
+    private static final int formatVersion = 3;
+
+    private final String metadataNodeId;
+    private final double[] bboxMin;
+    private final double[] bboxMax;
+    private final PriorityQueue<Item> queue = new PriorityQueue<>();
+    /**
+     * 队列是从哪个版本的索引中展开的，与读取时的版本不同则从根节点重新展开
+     */
+    private long version = -1;
+    private boolean hasLast;
+    private double lastKey;
+    private String lastId;
+
+    private IntersectsCursor(String metadataNodeId, double[] bboxMin, double[] bboxMax) {
+        this.metadataNodeId = metadataNodeId;
+        this.bboxMin = bboxMin;
+        this.bboxMax = bboxMax;
+    }
+
+    /**
+     * 从头开始遍历
+     *
+     * @param reader  TreeReader
+     * @param bboxMin 查询bbox的min
+     * @param bboxMax 查询bbox的max
+     * @return IntersectsCursor
+     */
+    public static IntersectsCursor start(TreeReader reader, double[] bboxMin, double[] bboxMax) {
+        return new IntersectsCursor(reader.getMetadataNodeId(), bboxMin, bboxMax);
+    }
+
+    /**
+     * 从编码的游标继续遍历
+     *
+     * @param reader  TreeReader
+     * @param bboxMin 查询bbox的min，必须与游标创建时一致
+     * @param bboxMax 查询bbox的max，必须与游标创建时一致
+     * @param encoded 编码后的游标
+     * @return IntersectsCursor
+     */
+    public static IntersectsCursor resume(TreeReader reader, double[] bboxMin, double[] bboxMax, String encoded) {
+        IntersectsCursor cursor;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(encoded)))) {
+            if (in.readInt() != formatVersion) {
+                throw new RuntimeException("不支持的游标格式");
+            }
+            cursor = new IntersectsCursor(in.readUTF(), readDoubles(in), readDoubles(in));
+            cursor.hasLast = in.readBoolean();
+            if (cursor.hasLast) {
+                cursor.lastKey = in.readDouble();
+                cursor.lastId = in.readUTF();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("游标解析失败 " + encoded, e);
+        }
+        if (!Arrays.equals(cursor.bboxMin, bboxMin) || !Arrays.equals(cursor.bboxMax, bboxMax)) {
+            throw new RuntimeException("游标与查询范围不匹配");
+        }
+        if (!cursor.metadataNodeId.equals(reader.getMetadataNodeId())) {
+            throw new RuntimeException("游标不属于索引 " + reader.getIndexName());
+        }
+        return cursor;
+    }
+
+    /**
+     * 继续遍历，读取至多pageSize个结果。
+     * 上次读取后索引有提交(或本对象是新解码的)时，从根节点重新展开，跳过已返回过的位置
+     *
+     * @param reader   TreeReader
+     * @param pageSize 最多读取的结果数
+     * @param res      结果
+     * @return 是否还有未遍历的节点
+     */
+    public boolean next(TreeReader reader, int pageSize, List<String> res) {
+        if (reader.getVersion() != version) {
+            version = reader.getVersion();
+            queue.clear();
+            expand(reader.getRoot());
+        }
+        while (res.size() < pageSize) {
+            Item item = queue.poll();
+            if (null == item) {
+                return false;
+            }
+            if (null != item.dataNodeId) {
+                res.add(item.dataNodeId);
+                hasLast = true;
+                lastKey = item.key;
+                lastId = item.dataNodeId;
+            } else if (item.leaf) {
+                expandLeaf(reader.getLeaf(item.nodeId));
+            } else {
+                expand(reader.getBranch(item.nodeId));
+            }
+        }
+        return !queue.isEmpty();
+    }
+
+    /**
+     * 复制最后返回的结果的位置，不复制队列，读取失败重试时用于回退
+     *
+     * @return 位置相同的IntersectsCursor，下次读取时从根节点重新展开
+     */
+    public IntersectsCursor copyPosition() {
+        IntersectsCursor copy = new IntersectsCursor(metadataNodeId, bboxMin, bboxMax);
+        copy.hasLast = hasLast;
+        copy.lastKey = lastKey;
+        copy.lastId = lastId;
+        return copy;
+    }
+
+    private void expand(BranchNode node) {
+        for (int i = 0; i < node.size(); i++) {
+            if (!node.intersects(i, bboxMin, bboxMax)) {
+                continue;
+            }
+            //子树中元素的位置都小于最后返回的位置
+            if (hasLast && Double.compare(node.getChildMax(i)[0], lastKey) < 0) {
+                continue;
+            }
+            queue.add(new Item(node.getChildMin(i)[0], node.getChildId(i), node.isChildLeaf(i), null));
+        }
+    }
+
+    private void expandLeaf(LeafEntries entries) {
+        for (int j = 0; j < entries.size(); j++) {
+            if (!entries.intersects(j, bboxMin, bboxMax)) {
+                continue;
+            }
+            double key = entries.getMin(j)[0];
+            String dataNodeId = entries.getDataNodeId(j);
+            if (hasLast) {
+                int c = Double.compare(key, lastKey);
+                if (c < 0 || (c == 0 && dataNodeId.compareTo(lastId) <= 0)) {
+                    continue;
+                }
+            }
+            queue.add(new Item(key, null, false, dataNodeId));
+        }
+    }
+
+    /**
+     * @return 编码后的游标
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(formatVersion);
+            out.writeUTF(metadataNodeId);
+            writeDoubles(out, bboxMin);
+            writeDoubles(out, bboxMax);
+            out.writeBoolean(hasLast);
+            if (hasLast) {
+                out.writeDouble(lastKey);
+                out.writeUTF(lastId);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readDoubles(DataInputStream in) throws IOException {
+        double[] values = new double[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    /**
+     * 队列中的树节点或元素，按key排序，key相同时树节点在前，以保证展开后同一key的元素仍能按id排序
+     */
+    private static final class Item implements Comparable<Item> {
+        private final double key;
+        private final String nodeId;
+        private final boolean leaf;
+        private final String dataNodeId;
+
+        private Item(double key, String nodeId, boolean leaf, String dataNodeId) {
+            this.key = key;
+            this.nodeId = nodeId;
+            this.leaf = leaf;
+            this.dataNodeId = dataNodeId;
+        }
+
+        @Override
+        public int compareTo(Item o) {
+            int c = Double.compare(key, o.key);
+            if (c != 0) {
+                return c;
+            }
+            if (null == dataNodeId) {
+                return null == o.dataNodeId ? 0 : -1;
+            }
+            if (null == o.dataNodeId) {
+                return 1;
+            }
+            return dataNodeId.compareTo(o.dataNodeId);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import org.neo4j.graphdb.Transaction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 逐个返回与bbox相交的数据节点id的迭代器，取值时才继续向下遍历树，不会一次性把所有结果读入内存。
+ * 遍历由IntersectsCursor完成，每批取值都通过ConsistentRead读取，两批取值之间索引若有提交，
+ * 则从根节点重新展开并跳过位置不大于上一个结果的元素，不需要记录已返回过的结果
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class IntersectsIterator implements Iterator<String> {
+
+    /**
+     * 每次读取最多预取的结果数
+     */
+    private static final int batchSize = 256;
+
+    private final Transaction tx;
+    private final String metadataNodeId;
+    private final String indexName;
+    private final double[] bboxMin;
+    private final double[] bboxMax;
+    private final ArrayDeque<String> buffer = new ArrayDeque<>();
+    private IntersectsCursor cursor;
+    private boolean end;
+
+    /**
+     * @param bboxMin        查询bbox的min
+     * @param bboxMax        查询bbox的max
+     * @param tx             事务 迭代完成前不能关闭
+     * @param metadataNodeId 索引METADATA节点id
+     * @param indexName      索引名
+     */
+    public IntersectsIterator(double[] bboxMin, double[] bboxMax, Transaction tx, String metadataNodeId, String indexName) {
+        this.bboxMin = bboxMin;
+        this.bboxMax = bboxMax;
+        this.tx = tx;
+        this.metadataNodeId = metadataNodeId;
+        this.indexName = indexName;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!buffer.isEmpty()) {
+            return true;
+        }
+        if (end) {
+            return false;
+        }
+        //失败重试时从本批开始前的位置重新读取
+        IntersectsCursor mark = null == cursor ? null : cursor.copyPosition();
+        List<String> batch = new ArrayList<>(batchSize);
+        boolean[] retry = new boolean[1];
+        boolean more = ConsistentRead.read(tx, metadataNodeId, indexName, "intersectsIterator", reader -> {
+            if (retry[0]) {
+                batch.clear();
+                cursor = null == mark ? null : mark.copyPosition();
+            }
+            retry[0] = true;
+            if (null == cursor) {
+                cursor = IntersectsCursor.start(reader, bboxMin, bboxMax);
+            }
+            return cursor.next(reader, batchSize, batch);
+        });
+        end = !more;
+        buffer.addAll(batch);
+        return !buffer.isEmpty();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.poll();
+    }
+}
@@ -0,0 +1,292 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import org.neo4j.graphdb.Node;
+import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
+import org.wowtools.neo4j.rtree.pojo.PointNd;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.Map;
+
+/**
+ * 叶子节点中的元素
+ * 元素以紧凑格式存储在叶子节点的两个属性上：entryMbrs(double[]，每个元素依次占 2*维度 位，先min后max)和entryDataIds(String[])，
+ * 读取一个叶子节点只需读两个属性。
+ * 旧版本的索引以entryMin{i}、entryMax{i}、entryDataId{i}逐个存储，读取时兼容，编辑或迁移时转为紧凑格式
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class LeafEntries {
+
+    private static final LeafEntries empty = new LeafEntries(0, 0, new double[0], new String[0], false);
+
+    private final int size;
+    private final int nDim;
+    private final double[] mbrs;
+    private final String[] dataIds;
+    private final boolean legacy;
+
+    private LeafEntries(int size, int nDim, double[] mbrs, String[] dataIds, boolean legacy) {
+        this.size = size;
+        this.nDim = nDim;
+        this.mbrs = mbrs;
+        this.dataIds = dataIds;
+        this.legacy = legacy;
+    }
+
+    /**
+     * 从叶子节点读取元素
+     *
+     * @param leaf 叶子节点
+     * @return LeafEntries
+     */
+    public static LeafEntries read(Node leaf) {
+        Map<String, Object> properties = leaf.getProperties(PropertyNames.size, PropertyNames.entryMbrs, PropertyNames.entryDataIds);
+        String[] dataIds = (String[]) properties.get(PropertyNames.entryDataIds);
+        if (null != dataIds) {
+            int size = dataIds.length;
+            if (size == 0) {
+                return empty;
+            }
+            double[] mbrs = (double[]) properties.get(PropertyNames.entryMbrs);
+            return new LeafEntries(size, mbrs.length / size / 2, mbrs, dataIds, false);
+        }
+        Object size = properties.get(PropertyNames.size);
+        if (null == size || (int) size == 0) {
+            return empty;
+        }
+        return readLegacy(leaf, (int) size);
+    }
+
+    private static LeafEntries readLegacy(Node leaf, int size) {
+        String[] keys = new String[size * 3];
+        for (int i = 0; i < size; i++) {
+            keys[i * 3] = PropertyNames.entryMin + i;
+            keys[i * 3 + 1] = PropertyNames.entryMax + i;
+            keys[i * 3 + 2] = PropertyNames.entryDataId + i;
+        }
+        Map<String, Object> properties = leaf.getProperties(keys);
+        int nDim = ((double[]) properties.get(PropertyNames.entryMin + 0)).length;
+        double[] mbrs = new double[size * nDim * 2];
+        String[] dataIds = new String[size];
+        for (int i = 0; i < size; i++) {
+            double[] min = (double[]) properties.get(PropertyNames.entryMin + i);
+            double[] max = (double[]) properties.get(PropertyNames.entryMax + i);
+            System.arraycopy(min, 0, mbrs, i * nDim * 2, nDim);
+            System.arraycopy(max, 0, mbrs, i * nDim * 2 + nDim, nDim);
+            dataIds[i] = (String) properties.get(PropertyNames.entryDataId + i);
+        }
+        return new LeafEntries(size, nDim, mbrs, dataIds, true);
+    }
+
+    /**
+     * 以紧凑格式将元素写入叶子节点
+     *
+     * @param leaf    叶子节点
+     * @param entries 元素，跳过其中的null
+     */
+    public static void write(Node leaf, RectNd[] entries) {
+        int size = 0;
+        int nDim = 0;
+        for (RectNd entry : entries) {
+            if (null != entry) {
+                size++;
+                nDim = entry.getNDim();
+            }
+        }
+        double[] mbrs = new double[size * nDim * 2];
+        String[] dataIds = new String[size];
+        int i = 0;
+        for (RectNd entry : entries) {
+            if (null == entry) {
+                continue;
+            }
+            System.arraycopy(entry.getMinXs(), 0, mbrs, i * nDim * 2, nDim);
+            System.arraycopy(entry.getMaxXs(), 0, mbrs, i * nDim * 2 + nDim, nDim);
+            dataIds[i] = entry.getDataNodeId();
+            i++;
+        }
+        leaf.setProperty(PropertyNames.entryMbrs, mbrs);
+        leaf.setProperty(PropertyNames.entryDataIds, dataIds);
+    }
+
+    /**
+     * 移除叶子节点上旧格式的元素属性
+     *
+     * @param leaf 叶子节点
+     * @param mMax 索引中每个节点最大子节点数
+     */
+    public static void removeLegacy(Node leaf, int mMax) {
+        for (int i = 0; i < mMax; i++) {
+            leaf.removeProperty(PropertyNames.entryMin + i);
+            leaf.removeProperty(PropertyNames.entryMax + i);
+            leaf.removeProperty(PropertyNames.entryDataId + i);
+        }
+    }
+
+    /**
+     * 第i个元素的bbox是否与输入的bbox相交
+     *
+     * @param i   元素序号
+     * @param min 输入bbox的min
+     * @param max 输入bbox的max
+     * @return 是否相交
+     */
+    public boolean intersects(int i, double[] min, double[] max) {
+        int offset = i * nDim * 2;
+        for (int d = 0; d < nDim; d++) {
+            if (mbrs[offset + d] > max[d] || min[d] > mbrs[offset + nDim + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 第i个元素的bbox是否包含输入的bbox
+     *
+     * @param i   元素序号
+     * @param min 输入bbox的min
+     * @param max 输入bbox的max
+     * @return 是否包含
+     */
+    public boolean contains(int i, double[] min, double[] max) {
+        int offset = i * nDim * 2;
+        for (int d = 0; d < nDim; d++) {
+            if (mbrs[offset + d] > min[d] || max[d] > mbrs[offset + nDim + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 第i个元素的bbox是否在输入的bbox内
+     *
+     * @param i   元素序号
+     * @param min 输入bbox的min
+     * @param max 输入bbox的max
+     * @return 是否在bbox内
+     */
+    public boolean within(int i, double[] min, double[] max) {
+        int offset = i * nDim * 2;
+        for (int d = 0; d < nDim; d++) {
+            if (min[d] > mbrs[offset + d] || mbrs[offset + nDim + d] > max[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 第i个元素的bbox与点的最小距离的平方
+     *
+     * @param i       元素序号
+     * @param pointNd 点
+     * @return 最小距离的平方
+     */
+    public double minDist(int i, PointNd pointNd) {
+        double[] xs = pointNd.getXs();
+        int offset = i * nDim * 2;
+        double res = 0;
+        for (int d = 0; d < nDim; d++) {
+            double x = xs[d];
+            double min = mbrs[offset + d];
+            double max = mbrs[offset + nDim + d];
+            double dr;
+            if (x < min) {
+                dr = min - x;
+            } else if (x > max) {
+                dr = x - max;
+            } else {
+                continue;
+            }
+            res += dr * dr;
+        }
+        return res;
+    }
+
+    /**
+     * 第i个元素的bbox与点的MINMAXDIST的平方，即bbox的每个面都与其中的几何对象接触时，点到几何对象距离的上界
+     *
+     * @param i       元素序号
+     * @param pointNd 点
+     * @return MINMAXDIST的平方
+     */
+    public double minMaxDist(int i, PointNd pointNd) {
+        double[] xs = pointNd.getXs();
+        int offset = i * nDim * 2;
+        //各维度上到较远一侧的距离平方之和
+        double farSum = 0;
+        for (int d = 0; d < nDim; d++) {
+            double x = xs[d];
+            double min = mbrs[offset + d];
+            double max = mbrs[offset + nDim + d];
+            double far = x >= (min + max) / 2 ? x - min : max - x;
+            farSum += far * far;
+        }
+        double res = Double.POSITIVE_INFINITY;
+        for (int d = 0; d < nDim; d++) {
+            double x = xs[d];
+            double min = mbrs[offset + d];
+            double max = mbrs[offset + nDim + d];
+            double far = x >= (min + max) / 2 ? x - min : max - x;
+            double near = x <= (min + max) / 2 ? x - min : max - x;
+            res = Math.min(res, farSum - far * far + near * near);
+        }
+        return res;
+    }
+
+    /**
+     * @param i 元素序号
+     * @return 第i个元素bbox的min
+     */
+    public double[] getMin(int i) {
+        double[] min = new double[nDim];
+        System.arraycopy(mbrs, i * nDim * 2, min, 0, nDim);
+        return min;
+    }
+
+    /**
+     * @param i 元素序号
+     * @return 第i个元素bbox的max
+     */
+    public double[] getMax(int i) {
+        double[] max = new double[nDim];
+        System.arraycopy(mbrs, i * nDim * 2 + nDim, max, 0, nDim);
+        return max;
+    }
+
+    /**
+     * @param i 元素序号
+     * @return 第i个元素，包含bbox和数据节点id
+     */
+    public RectNd getRectNd(int i) {
+        RectNd rectNd = new RectNd(getMin(i), getMax(i));
+        rectNd.setDataNodeId(dataIds[i]);
+        return rectNd;
+    }
+
+    /**
+     * @param i 元素序号
+     * @return 第i个元素的数据节点id
+     */
+    public String getDataNodeId(int i) {
+        return dataIds[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNDim() {
+        return nDim;
+    }
+
+    /**
+     * @return 是否是从旧格式读取的
+     */
+    public boolean isLegacy() {
+        return legacy;
+    }
+}
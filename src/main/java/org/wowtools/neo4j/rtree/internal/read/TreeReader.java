@@ -0,0 +1,158 @@
+package org.wowtools.neo4j.rtree.internal.read;
+
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.internal.IndexVersion;
+import org.wowtools.neo4j.rtree.internal.RtreeLock;
+import org.wowtools.neo4j.rtree.metrics.QueryStats;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 查询时读取树节点，索引开启了缓存时非叶子节点优先从缓存读取，叶子节点总是从neo4j读取。
+ * 构造时记录索引版本号，读取结束后用isValid校验期间索引是否有提交；读取的节点数计入QueryStats。
+ * 需要向访问器交出结果时先用lockCommit加提交锁的读锁，之后索引不会再有提交，读取一定有效
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class TreeReader {
+
+    private final Transaction tx;
+    private final String metadataNodeId;
+    private final BranchCache cache;
+    private final String indexName;
+    private final long version;
+    private final QueryStats stats;
+    private Lock commitLock;
+    private boolean lockedValid;
+
+    /**
+     * @param tx             事务
+     * @param metadataNodeId 索引METADATA节点id
+     * @param indexName      索引名
+     * @param stats          查询统计信息
+     */
+    public TreeReader(Transaction tx, String metadataNodeId, String indexName, QueryStats stats) {
+        this.tx = tx;
+        this.stats = stats;
+        this.metadataNodeId = metadataNodeId;
+        this.indexName = indexName;
+        this.cache = BranchCache.get(indexName);
+        this.version = IndexVersion.get(indexName);
+    }
+
+    /**
+     * @param tx             事务
+     * @param metadataNodeId 索引METADATA节点id
+     * @param indexName      索引名
+     * @param stats          查询统计信息
+     * @param commitLock     调用方已持有的提交锁的读锁，由unlockCommit释放
+     */
+    TreeReader(Transaction tx, String metadataNodeId, String indexName, QueryStats stats, Lock commitLock) {
+        this(tx, metadataNodeId, indexName, stats);
+        this.commitLock = commitLock;
+        this.lockedValid = true;
+    }
+
+    /**
+     * @return METADATA节点，其子节点为根节点，索引为空时size为0
+     */
+    public BranchNode getRoot() {
+        return getBranch(metadataNodeId);
+    }
+
+    /**
+     * @param nodeId 非叶子节点id
+     * @return 非叶子节点
+     */
+    public BranchNode getBranch(String nodeId) {
+        if (null == cache || !IndexVersion.isStable(version)) {
+            stats.incBranchRead(false);
+            return BranchNode.read(tx.getNodeByElementId(nodeId), version);
+        }
+        BranchNode node = cache.get(nodeId, version);
+        if (null == node) {
+            stats.incBranchRead(false);
+            node = BranchNode.read(tx.getNodeByElementId(nodeId), version);
+            cache.put(nodeId, node);
+        } else {
+            stats.incBranchRead(true);
+        }
+        return node;
+    }
+
+    /**
+     * @param nodeId 叶子节点id
+     * @return 叶子节点中的元素
+     */
+    public LeafEntries getLeaf(String nodeId) {
+        LeafEntries entries = LeafEntries.read(tx.getNodeByElementId(nodeId));
+        stats.incLeafRead(entries.size());
+        return entries;
+    }
+
+    /**
+     * @return 构造时索引是否没有正在进行的提交
+     */
+    public boolean isStable() {
+        return IndexVersion.isStable(version);
+    }
+
+    /**
+     * @return 构造后到现在索引是否没有提交过，为true时读到的是一棵完整的树
+     */
+    public boolean isValid() {
+        return IndexVersion.isStable(version) && IndexVersion.get(indexName) == version;
+    }
+
+    /**
+     * 加提交锁的读锁，之后直到unlockCommit索引不会再有提交。只能在执行读取的线程中调用
+     *
+     * @return 构造后到加锁时索引是否没有提交过，为false时已读到的节点可能不完整，应放弃本次读取
+     */
+    public boolean lockCommit() {
+        if (null == commitLock) {
+            Lock lock = RtreeLock.getCommitLock(indexName).readLock();
+            RtreeLock.lock(lock, indexName, "commitRead");
+            commitLock = lock;
+            lockedValid = isValid();
+        }
+        return lockedValid;
+    }
+
+    /**
+     * 释放lockCommit加的锁
+     */
+    void unlockCommit() {
+        if (null != commitLock) {
+            commitLock.unlock();
+            commitLock = null;
+        }
+    }
+
+    /**
+     * @return 构造时的索引版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * @return 索引METADATA节点的elementId
+     */
+    public String getMetadataNodeId() {
+        return metadataNodeId;
+    }
+
+    public QueryStats getStats() {
+        return stats;
+    }
+
+    public Transaction getTx() {
+        return tx;
+    }
+}
@@ -0,0 +1,26 @@
+package org.wowtools.neo4j.rtree.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR事件 编辑器提交事务
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@Name("org.wowtools.neo4j.rtree.Commit")
+@Label("Rtree Commit")
+@Category("neo4j-rtree")
+final class CommitEvent extends Event {
+    @Label("Index Name")
+    String indexName;
+    @Label("Change Num")
+    int changeNum;
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
@@ -0,0 +1,28 @@
+package org.wowtools.neo4j.rtree.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR事件 提交前清理脱离树的节点
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@Name("org.wowtools.neo4j.rtree.Gc")
+@Label("Rtree Gc")
+@Category("neo4j-rtree")
+final class GcEvent extends Event {
+    @Label("Index Name")
+    String indexName;
+    @Label("Traversed")
+    long traversed;
+    @Label("Deleted")
+    long deleted;
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
@@ -0,0 +1,26 @@
+package org.wowtools.neo4j.rtree.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR事件 等待索引的锁
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@Name("org.wowtools.neo4j.rtree.LockWait")
+@Label("Rtree Lock Wait")
+@Category("neo4j-rtree")
+final class LockWaitEvent extends Event {
+    @Label("Index Name")
+    String indexName;
+    @Label("Lock Name")
+    String lockName;
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
@@ -0,0 +1,36 @@
+package org.wowtools.neo4j.rtree.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR事件 查询
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@Name("org.wowtools.neo4j.rtree.Query")
+@Label("Rtree Query")
+@Category("neo4j-rtree")
+final class QueryEvent extends Event {
+    @Label("Index Name")
+    String indexName;
+    @Label("Query Type")
+    String queryType;
+    @Label("Attempts")
+    int attempts;
+    @Label("Branch Read")
+    long branchRead;
+    @Label("Branch Cache Hit")
+    long branchCacheHit;
+    @Label("Leaf Read")
+    long leafRead;
+    @Label("Entry Read")
+    long entryRead;
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
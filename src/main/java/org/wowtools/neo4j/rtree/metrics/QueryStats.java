@@ -0,0 +1,124 @@
+package org.wowtools.neo4j.rtree.metrics;
+
+/**
+ * 一次查询的统计信息，查询结束后传给RtreeMetricsListener.onQuery。
+ * 计数方法供查询内部调用，同一个QueryStats对象同一时刻只会被一个线程计数，并行查询的各个任务用fork出的对象计数后再merge
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public final class QueryStats {
+
+    private final String indexName;
+    private final String queryType;
+    private int attempts;
+    private long branchRead;
+    private long branchCacheHit;
+    private long leafRead;
+    private long entryRead;
+    private long elapsedNanos;
+
+    /**
+     * @param indexName 索引名
+     * @param queryType 查询类型，如intersects、nearest
+     */
+    public QueryStats(String indexName, String queryType) {
+        this.indexName = indexName;
+        this.queryType = queryType;
+    }
+
+    /**
+     * @return 一个新的计数对象，用于并行查询中的子任务，结束后用merge合并回来
+     */
+    public QueryStats fork() {
+        return new QueryStats(indexName, queryType);
+    }
+
+    /**
+     * 合并子任务的计数
+     *
+     * @param child fork出的计数对象
+     */
+    public synchronized void merge(QueryStats child) {
+        branchRead += child.branchRead;
+        branchCacheHit += child.branchCacheHit;
+        leafRead += child.leafRead;
+        entryRead += child.entryRead;
+    }
+
+    public void incAttempts() {
+        attempts++;
+    }
+
+    /**
+     * @param cacheHit 是否从节点缓存中读取
+     */
+    public void incBranchRead(boolean cacheHit) {
+        branchRead++;
+        if (cacheHit) {
+            branchCacheHit++;
+        }
+    }
+
+    /**
+     * @param entryNum 叶子节点中的元素数
+     */
+    public void incLeafRead(int entryNum) {
+        leafRead++;
+        entryRead += entryNum;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public String getQueryType() {
+        return queryType;
+    }
+
+    /**
+     * @return 读取次数，大于1说明读取期间索引有提交而发生了重试
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return 读取的非叶子节点数
+     */
+    public synchronized long getBranchRead() {
+        return branchRead;
+    }
+
+    /**
+     * @return 读取的非叶子节点中从节点缓存命中的个数
+     */
+    public synchronized long getBranchCacheHit() {
+        return branchCacheHit;
+    }
+
+    /**
+     * @return 读取的叶子节点数
+     */
+    public synchronized long getLeafRead() {
+        return leafRead;
+    }
+
+    /**
+     * @return 读取的叶子节点中的元素数，即参与bbox判断或距离排序的元素数
+     */
+    public synchronized long getEntryRead() {
+        return entryRead;
+    }
+
+    /**
+     * @return 查询耗时，纳秒
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,279 @@
+package org.wowtools.neo4j.rtree.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 索引运行指标。
+ * 查询读取的节点数、编辑器的提交和gc、锁等待时间等指标会累加到全局计数器中，
+ * 同时回调注册的RtreeMetricsListener，并在JFR录制开启时记录org.wowtools.neo4j.rtree.*事件，
+ * 可用于确定合适的mMax、节点缓存大小以及排查延迟尖刺
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@Slf4j
+public final class RtreeMetrics {
+
+    private static final List<RtreeMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static final LongAdder queryNum = new LongAdder();
+    private static final LongAdder queryRetryNum = new LongAdder();
+    private static final LongAdder branchRead = new LongAdder();
+    private static final LongAdder branchCacheHit = new LongAdder();
+    private static final LongAdder leafRead = new LongAdder();
+    private static final LongAdder entryRead = new LongAdder();
+    private static final LongAdder geometryParsed = new LongAdder();
+    private static final LongAdder commitNum = new LongAdder();
+    private static final LongAdder commitChange = new LongAdder();
+    private static final LongAdder gcTraversed = new LongAdder();
+    private static final LongAdder gcDeleted = new LongAdder();
+    private static final LongAdder lockWaitNanos = new LongAdder();
+
+    private RtreeMetrics() {
+    }
+
+    /**
+     * 注册监听器
+     *
+     * @param listener 监听器
+     */
+    public static void addListener(RtreeMetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 移除监听器
+     *
+     * @param listener 监听器
+     */
+    public static void removeListener(RtreeMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 一次查询结束，内部调用
+     *
+     * @param stats 查询统计信息
+     */
+    public static void queryFinished(QueryStats stats) {
+        queryNum.increment();
+        if (stats.getAttempts() > 1) {
+            queryRetryNum.add(stats.getAttempts() - 1);
+        }
+        branchRead.add(stats.getBranchRead());
+        branchCacheHit.add(stats.getBranchCacheHit());
+        leafRead.add(stats.getLeafRead());
+        entryRead.add(stats.getEntryRead());
+        QueryEvent event = new QueryEvent();
+        if (event.shouldCommit()) {
+            event.indexName = stats.getIndexName();
+            event.queryType = stats.getQueryType();
+            event.attempts = stats.getAttempts();
+            event.branchRead = stats.getBranchRead();
+            event.branchCacheHit = stats.getBranchCacheHit();
+            event.leafRead = stats.getLeafRead();
+            event.entryRead = stats.getEntryRead();
+            event.elapsed = stats.getElapsedNanos();
+            event.commit();
+        }
+        for (RtreeMetricsListener listener : listeners) {
+            try {
+                listener.onQuery(stats);
+            } catch (RuntimeException e) {
+                log.warn("RtreeMetricsListener.onQuery异常", e);
+            }
+        }
+    }
+
+    /**
+     * 解析了一次数据节点上的geometry，内部调用
+     */
+    public static void geometryParsed() {
+        geometryParsed.increment();
+    }
+
+    /**
+     * 编辑器提交了一次事务，内部调用
+     *
+     * @param indexName    索引名
+     * @param changeNum    修改数
+     * @param elapsedNanos 耗时，纳秒
+     */
+    public static void commitFinished(String indexName, int changeNum, long elapsedNanos) {
+        commitNum.increment();
+        commitChange.add(changeNum);
+        CommitEvent event = new CommitEvent();
+        if (event.shouldCommit()) {
+            event.indexName = indexName;
+            event.changeNum = changeNum;
+            event.elapsed = elapsedNanos;
+            event.commit();
+        }
+        for (RtreeMetricsListener listener : listeners) {
+            try {
+                listener.onCommit(indexName, changeNum, elapsedNanos);
+            } catch (RuntimeException e) {
+                log.warn("RtreeMetricsListener.onCommit异常", e);
+            }
+        }
+    }
+
+    /**
+     * 提交前清理了一次脱离树的节点，内部调用
+     *
+     * @param indexName    索引名
+     * @param traversed    遍历的节点数
+     * @param deleted      删除的节点数
+     * @param elapsedNanos 耗时，纳秒
+     */
+    public static void gcFinished(String indexName, long traversed, long deleted, long elapsedNanos) {
+        gcTraversed.add(traversed);
+        gcDeleted.add(deleted);
+        GcEvent event = new GcEvent();
+        if (event.shouldCommit()) {
+            event.indexName = indexName;
+            event.traversed = traversed;
+            event.deleted = deleted;
+            event.elapsed = elapsedNanos;
+            event.commit();
+        }
+        for (RtreeMetricsListener listener : listeners) {
+            try {
+                listener.onGc(indexName, traversed, deleted, elapsedNanos);
+            } catch (RuntimeException e) {
+                log.warn("RtreeMetricsListener.onGc异常", e);
+            }
+        }
+    }
+
+    /**
+     * 等待了锁，内部调用
+     *
+     * @param indexName    索引名
+     * @param lockName     锁名
+     * @param elapsedNanos 等待时间，纳秒
+     */
+    public static void lockWaited(String indexName, String lockName, long elapsedNanos) {
+        lockWaitNanos.add(elapsedNanos);
+        LockWaitEvent event = new LockWaitEvent();
+        if (event.shouldCommit()) {
+            event.indexName = indexName;
+            event.lockName = lockName;
+            event.elapsed = elapsedNanos;
+            event.commit();
+        }
+        for (RtreeMetricsListener listener : listeners) {
+            try {
+                listener.onLockWait(indexName, lockName, elapsedNanos);
+            } catch (RuntimeException e) {
+                log.warn("RtreeMetricsListener.onLockWait异常", e);
+            }
+        }
+    }
+
+    /**
+     * 清零所有计数器
+     */
+    public static void reset() {
+        queryNum.reset();
+        queryRetryNum.reset();
+        branchRead.reset();
+        branchCacheHit.reset();
+        leafRead.reset();
+        entryRead.reset();
+        geometryParsed.reset();
+        commitNum.reset();
+        commitChange.reset();
+        gcTraversed.reset();
+        gcDeleted.reset();
+        lockWaitNanos.reset();
+    }
+
+    /**
+     * @return 查询次数
+     */
+    public static long getQueryNum() {
+        return queryNum.sum();
+    }
+
+    /**
+     * @return 查询因索引有提交而重试的次数
+     */
+    public static long getQueryRetryNum() {
+        return queryRetryNum.sum();
+    }
+
+    /**
+     * @return 查询读取的非叶子节点数
+     */
+    public static long getBranchRead() {
+        return branchRead.sum();
+    }
+
+    /**
+     * @return 查询读取的非叶子节点中从节点缓存命中的个数
+     */
+    public static long getBranchCacheHit() {
+        return branchCacheHit.sum();
+    }
+
+    /**
+     * @return 查询读取的叶子节点数
+     */
+    public static long getLeafRead() {
+        return leafRead.sum();
+    }
+
+    /**
+     * @return 查询读取的叶子节点中的元素数
+     */
+    public static long getEntryRead() {
+        return entryRead.sum();
+    }
+
+    /**
+     * @return geometry2d查询解析数据节点geometry(WKB)的次数
+     */
+    public static long getGeometryParsed() {
+        return geometryParsed.sum();
+    }
+
+    /**
+     * @return 编辑器提交次数
+     */
+    public static long getCommitNum() {
+        return commitNum.sum();
+    }
+
+    /**
+     * @return 编辑器提交的修改数
+     */
+    public static long getCommitChange() {
+        return commitChange.sum();
+    }
+
+    /**
+     * @return 提交前清理脱离树的节点时遍历的节点数
+     */
+    public static long getGcTraversed() {
+        return gcTraversed.sum();
+    }
+
+    /**
+     * @return 提交前清理脱离树的节点时删除的节点数
+     */
+    public static long getGcDeleted() {
+        return gcDeleted.sum();
+    }
+
+    /**
+     * @return 等待索引的锁的总时间，纳秒
+     */
+    public static long getLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+}
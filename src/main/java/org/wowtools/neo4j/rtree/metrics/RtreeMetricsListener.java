@@ -0,0 +1,50 @@
+package org.wowtools.neo4j.rtree.metrics;
+
+/**
+ * 索引运行指标监听器，通过RtreeMetrics.addListener注册，可在此桥接到Micrometer等监控系统。
+ * 回调在查询或编辑的线程中同步执行，应尽量轻量，抛出的异常会被忽略
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public interface RtreeMetricsListener {
+
+    /**
+     * 一次查询结束
+     *
+     * @param stats 查询统计信息
+     */
+    default void onQuery(QueryStats stats) {
+    }
+
+    /**
+     * 编辑器提交了一次事务
+     *
+     * @param indexName    索引名
+     * @param changeNum    本次提交包含的修改数
+     * @param elapsedNanos 提交耗时(含gc)，纳秒
+     */
+    default void onCommit(String indexName, int changeNum, long elapsedNanos) {
+    }
+
+    /**
+     * 提交前清理了一次脱离树的节点
+     *
+     * @param indexName    索引名
+     * @param traversed    遍历的节点数
+     * @param deleted      删除的节点数
+     * @param elapsedNanos 耗时，纳秒
+     */
+    default void onGc(String indexName, long traversed, long deleted, long elapsedNanos) {
+    }
+
+    /**
+     * 等待了锁，未发生等待时不回调
+     *
+     * @param indexName    索引名
+     * @param lockName     锁名，write为编辑器写锁，commit为提交时的提交锁写锁，commitRead为查询降级时的提交锁读锁
+     * @param elapsedNanos 等待时间，纳秒
+     */
+    default void onLockWait(String indexName, String lockName, long elapsedNanos) {
+    }
+}
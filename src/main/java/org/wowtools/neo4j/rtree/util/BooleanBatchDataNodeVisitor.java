@@ -0,0 +1,20 @@
+package org.wowtools.neo4j.rtree.util;
+
+/**
+ * 批量查询的数据节点访问器，返回true时，终止接下来的遍历(包括其它查询)
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@FunctionalInterface
+public interface BooleanBatchDataNodeVisitor {
+
+    /**
+     * 访问到数据节点时触发此方法，一个数据节点满足多个查询时，对每个查询各触发一次；各查询的结果按遍历顺序交错触发，不按查询分组
+     *
+     * @param queryIndex 数据节点满足的查询在查询列表中的序号
+     * @param nodeId     数据节点neo4j id
+     * @return 返回true时，终止接下来的遍历
+     */
+    boolean visit(int queryIndex, String nodeId);
+}
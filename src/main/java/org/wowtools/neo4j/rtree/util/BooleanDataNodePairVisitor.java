@@ -0,0 +1,20 @@
+package org.wowtools.neo4j.rtree.util;
+
+/**
+ * 空间连接结果访问器，返回true时，终止接下来的遍历
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+@FunctionalInterface
+public interface BooleanDataNodePairVisitor {
+
+    /**
+     * 访问到一对bbox相交的数据节点时触发此方法
+     *
+     * @param nodeIdA 索引A中的数据节点id
+     * @param nodeIdB 索引B中的数据节点id
+     * @return 返回true时，终止接下来的遍历
+     */
+    boolean visit(String nodeIdA, String nodeIdB);
+}
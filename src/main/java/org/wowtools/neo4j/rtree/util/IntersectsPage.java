@@ -0,0 +1,41 @@
+package org.wowtools.neo4j.rtree.util;
+
+import java.util.List;
+
+/**
+ * 分页相交查询的一页结果
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class IntersectsPage {
+    private final List<String> dataNodeIds;
+    private final String cursor;
+
+    /**
+     * @param dataNodeIds 本页的数据节点id
+     * @param cursor      读取下一页的游标，没有下一页时为null
+     */
+    public IntersectsPage(List<String> dataNodeIds, String cursor) {
+        this.dataNodeIds = dataNodeIds;
+        this.cursor = cursor;
+    }
+
+    public List<String> getDataNodeIds() {
+        return dataNodeIds;
+    }
+
+    /**
+     * @return 读取下一页的游标，传给RtreeIntersectsSearcher.intersectsPage以继续读取，没有下一页时为null
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return 是否还有下一页
+     */
+    public boolean hasMore() {
+        return null != cursor;
+    }
+}
@@ -7,15 +7,15 @@ package org.wowtools.neo4j.rtree.util;
 
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.Relationship;
-import org.wowtools.neo4j.rtree.internal.define.Labels;
-import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
+import org.neo4j.kernel.impl.core.NodeEntity;
 import org.wowtools.neo4j.rtree.internal.define.Relationships;
-import org.wowtools.neo4j.rtree.internal.nearest.MinDist;
-import org.wowtools.neo4j.rtree.internal.nearest.MinDistComparator;
+import org.wowtools.neo4j.rtree.internal.nearest.NearestQueue;
+import org.wowtools.neo4j.rtree.internal.read.ConsistentRead;
+import org.wowtools.neo4j.rtree.internal.read.TreeReader;
 import org.wowtools.neo4j.rtree.pojo.PointNd;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 最邻近搜索查询条件，计算距离目标点最近的几个点
@@ -25,6 +25,7 @@ public abstract class NearestNeighbour<T extends DistanceResult> {
     private final DistanceResultNodeFilter filter;
     private final int maxHits;
     private final PointNd pointNd;
+    private double maxDistance = Double.POSITIVE_INFINITY;
 
     public static final DistanceResultNodeFilter alwaysTrue = dr -> true;
 
@@ -36,7 +37,7 @@ public abstract class NearestNeighbour<T extends DistanceResult> {
      */
     public NearestNeighbour(DistanceResultNodeFilter filter, int maxHits, PointNd pointNd) {
         this.pointNd = pointNd;
-        this.filter = filter;
+        this.filter = null == filter ? alwaysTrue : filter;
         this.maxHits = maxHits;
     }
 
@@ -51,7 +52,27 @@ public abstract class NearestNeighbour<T extends DistanceResult> {
     }
 
     /**
-     * 新建一个DistanceResult对象，包含了距离和dataNodeId
+     * 不限制返回条数，用于RtreeNearestSearcher.nearestIterator等由调用者决定何时停止的查询
+     *
+     * @param filter  过滤器 为null则不过滤
+     * @param pointNd 目标点
+     */
+    public NearestNeighbour(DistanceResultNodeFilter filter, PointNd pointNd) {
+        this(filter, Integer.MAX_VALUE, pointNd);
+    }
+
+    /**
+     * 不限制返回条数，用于RtreeNearestSearcher.nearestIterator等由调用者决定何时停止的查询
+     *
+     * @param pointNd 目标点
+     */
+    public NearestNeighbour(PointNd pointNd) {
+        this(Integer.MAX_VALUE, pointNd);
+    }
+
+    /**
+     * 新建一个DistanceResult对象，包含了距离和dataNodeId。
+     * 距离须是欧氏距离意义下的距离，即不小于目标点到数据节点bbox的最小距离，否则结果顺序可能不正确
      *
      * @param pointNd    查询的点
      * @param dataNodeId dataNodeId
@@ -60,92 +81,76 @@ public abstract class NearestNeighbour<T extends DistanceResult> {
     public abstract T createDistanceResult(PointNd pointNd, String dataNodeId);
 
     /**
-     * @return the nearest neighbour
+     * 从索引的根节点开始查询，与RtreeNearestSearcher.nearest相同
+     *
+     * @param root 索引的根节点
+     * @return 距离最近的maxHits个结果，按距离由近到远排列
      */
     public List<T> find(Node root) {
-        List<T> ret =
-                new ArrayList<>(maxHits);
-        MinDistComparator nc =
-                new MinDistComparator(pointNd);
-        PriorityQueue<Node> queue = new PriorityQueue<Node>(20, nc);
-        queue.add(root);
-        while (!queue.isEmpty()) {
-            Node n = queue.remove();
-            if (n.hasLabel(Labels.RTREE_BRANCH)) {
-                nnExpandInternal(n, ret, maxHits, queue);
-            } else {
-                nnExpandLeaf(n, filter, ret, maxHits);
-            }
+        if (!(root instanceof NodeEntity)) {
+            throw new RuntimeException("不支持的节点类型 " + root.getClass().getName());
+        }
+        Node metadataNode = root.getSingleRelationship(Relationships.RTREE_METADATA_TO_ROOT, Direction.INCOMING).getStartNode();
+        String indexName = (String) metadataNode.getProperty("name");
+        return ConsistentRead.read(((NodeEntity) root).getTransaction(), metadataNode.getElementId(), indexName, "nearest", this::find);
+    }
+
+    /**
+     * @param reader 树节点读取器
+     * @return 距离最近的maxHits个结果，按距离由近到远排列
+     */
+    public List<T> find(TreeReader reader) {
+        if (maxHits <= 0) {
+            return new ArrayList<>(0);
+        }
+        List<T> ret = new ArrayList<>(Math.min(maxHits, 128));
+        NearestQueue<T> queue = new NearestQueue<>(this);
+        queue.start(reader);
+        T dr;
+        //best-first搜索，取够maxHits个即停止，不再展开剩余节点
+        while (ret.size() < maxHits && null != (dr = queue.poll(reader))) {
+            ret.add(dr);
         }
         return ret;
     }
 
+    /**
+     * createDistanceResult计算的距离是否不超过目标点到元素bbox的MINMAXDIST，
+     * 例如元素是bbox内的几何对象、距离为到几何对象的欧氏距离时成立。
+     * 返回true且没有过滤器时，搜索会用已知元素的MINMAXDIST估计第maxHits近的距离上界，不再展开最小距离超过上界的节点
+     *
+     * @return 默认false
+     */
+    public boolean isDistanceBoundedByMbr() {
+        return false;
+    }
 
-    //访问索引上的非叶子节点
-    private void nnExpandInternal(Node node,
-                                  List<T> drs,
-                                  int maxHits,
-                                  PriorityQueue<Node> queue) {
-
-        for (Relationship relationship : node.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD)) {
-            Node n = relationship.getEndNode();
-            Map<String, Object> properties = n.getProperties("mbrMax", "mbrMin");
-            double[] mins = (double[]) properties.get("mbrMin");
-            double[] maxs = (double[]) properties.get("mbrMax");
-            double minDist = MinDist.get(mins, maxs, pointNd);
-            int t = drs.size();
-            // drs is sorted so we can check only the last entry
-            if (t < maxHits || minDist <= drs.get(t - 1).getDist()) {
-                queue.add(n);
-            }
-        }
+    /**
+     * 设置最大距离，距离超过maxDistance的结果不会返回，最小距离超过maxDistance的节点不会展开
+     *
+     * @param maxDistance 最大距离，默认不限制
+     */
+    public void setMaxDistance(double maxDistance) {
+        this.maxDistance = maxDistance;
     }
 
-    //访问索引上的叶子节点
-    private void nnExpandLeaf(
-            Node node,
-            DistanceResultNodeFilter filter,
-            List<T> drs,
-            int maxHits) {
-        int size = (int) node.getProperty(PropertyNames.size);
-        String[] keys = new String[size];
-        for (int i = 0; i < size; i++) {
-            keys[i] = PropertyNames.entryDataId + i;
-        }
-        Map<String, Object> properties = node.getProperties(keys);
-        properties.forEach((k, v) -> {
-            String dataNodeId = (String) v;
-            T dr = createDistanceResult(pointNd, dataNodeId);
-            double dist = dr.getDist();
-            if (filter.accept(dr)) {
-                int n = drs.size();
-                if (n < maxHits || dist < drs.get(n - 1).getDist()) {
-                    add(drs, dr, maxHits);
-                }
-            }
-        });
+    public double getMaxDistance() {
+        return maxDistance;
+    }
 
+    public DistanceResultNodeFilter getFilter() {
+        return filter;
     }
 
-    private void add(List<T> drs,
-                     T dr,
-                     int maxHits) {
-        int n = drs.size();
-        if (n == maxHits)
-            drs.remove(n - 1);
-        int pos = Collections.binarySearch(drs, dr, comp);
-        if (pos < 0) {
-            // binarySearch return -(pos + 1) for new entries
-            pos = -(pos + 1);
-        }
-        drs.add(pos, dr);
+    /**
+     * @return 最大返回条数，不限制时为Integer.MAX_VALUE
+     */
+    public int getMaxHits() {
+        return maxHits;
     }
 
-    private static final Comparator<DistanceResult> comp =
-            new Comparator<DistanceResult>() {
-                public int compare(DistanceResult d1, DistanceResult d2) {
-                    return Double.compare(d1.getDist(), d2.getDist());
-                }
-            };
+    public PointNd getPointNd() {
+        return pointNd;
+    }
 
 }
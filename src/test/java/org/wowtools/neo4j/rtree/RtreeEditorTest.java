@@ -8,14 +8,39 @@ import org.junit.Test;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Polygon;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.internal.IndexVersion;
 import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.define.PropertyNames;
+import org.wowtools.neo4j.rtree.internal.define.Relationships;
+import org.wowtools.neo4j.rtree.internal.edit.GraphDbTxBuilder;
+import org.wowtools.neo4j.rtree.internal.read.LeafEntries;
+import org.wowtools.neo4j.rtree.metrics.QueryStats;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetricsListener;
 import org.wowtools.neo4j.rtree.pojo.PointNd;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
 import org.wowtools.neo4j.rtree.util.BooleanDataNodeVisitor;
+import org.wowtools.neo4j.rtree.util.DistanceResult;
+import org.wowtools.neo4j.rtree.util.NearestNeighbour;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class RtreeEditorTest {
     private Neo4jDbManager neo4jDbManager;
@@ -183,6 +208,688 @@ public class RtreeEditorTest {
     }
 
 
+    @Test
+    public void testBulkLoad() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0, 0}, new double[]{0.5, 0.5});
+        List<RectNd> rectNds = TestIndexes.randomRects(num);
+        List<RectNd> intersectRectNds = rectNds.stream().filter(bbox::intersects).collect(Collectors.toList());
+        int resNum = intersectRectNds.size();
+
+        // bulk load
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8)) {
+            rtreeEditor.bulkLoad(rectNds.iterator());
+        }
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+        }
+        Assert.assertEquals(resNum, myVisitor.num);
+
+        // 批量构建的树可以继续正常增删
+        int removeNum = (int) (resNum * 0.4);
+        resNum -= removeNum;
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (int i = 0; i < removeNum; i++) {
+                rtreeEditor.remove(intersectRectNds.get(i));
+            }
+            RectNd rect2d = new RectNd(new double[]{0.1, 0.1}, new double[]{0.2, 0.2});
+            rect2d.setDataNodeId(String.valueOf(num));
+            rtreeEditor.add(rect2d);
+            resNum++;
+        }
+        myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+            Assert.assertEquals(resNum, RtreeIntersectsSearcher.get(tx, indexName).count(bbox, tx));
+        }
+        Assert.assertEquals(resNum, myVisitor.num);
+    }
+
+    @Test
+    public void testBulkLoadExternalSort() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0, 0}, new double[]{0.5, 0.5});
+        List<RectNd> rectNds = TestIndexes.randomRects(num);
+        int half = num / 2;
+        // runSize小于数据量，走临时文件外部排序
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8)) {
+            rtreeEditor.bulkLoad(rectNds.subList(0, half).iterator(), 1000);
+            Assert.assertEquals(half, rtreeEditor.getrTree().getEntryCount());
+        }
+        Assert.assertEquals(1, leafDepths(indexName).size());
+        // 索引非空时分批addAll
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            rtreeEditor.bulkLoad(rectNds.subList(half, num).iterator(), 1000);
+            Assert.assertEquals(num, rtreeEditor.getrTree().getEntryCount());
+        }
+        int resNum = (int) rectNds.stream().filter(bbox::intersects).count();
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+        }
+        Assert.assertEquals(resNum, myVisitor.num);
+    }
+
+    @Test
+    public void testAddAll() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        List<RectNd> rectNds = TestIndexes.randomRects(num);
+        List<RectNd> intersectRectNds = rectNds.stream().filter(bbox::intersects).collect(Collectors.toList());
+        //先逐条add一部分，其余分两批addAll
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8)) {
+            for (int i = 0; i < 100; i++) {
+                rtreeEditor.add(rectNds.get(i));
+            }
+            rtreeEditor.addAll(rectNds.subList(100, 5000));
+        }
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            rtreeEditor.addAll(rectNds.subList(5000, num));
+            Assert.assertEquals(num, rtreeEditor.getrTree().getEntryCount());
+        }
+        int resNum = intersectRectNds.size();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            MyVisitor myVisitor = new MyVisitor();
+            RtreeIntersectsSearcher searcher = RtreeIntersectsSearcher.get(tx, indexName);
+            searcher.intersects(bbox, tx, myVisitor);
+            Assert.assertEquals(resNum, myVisitor.num);
+            Assert.assertEquals(resNum, searcher.count(bbox, tx));
+        }
+        //批量添加的元素可以正常移除
+        int removeNum = resNum / 2;
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (int i = 0; i < removeNum; i++) {
+                rtreeEditor.remove(intersectRectNds.get(i));
+            }
+        }
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            MyVisitor myVisitor = new MyVisitor();
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+            Assert.assertEquals(resNum - removeNum, myVisitor.num);
+        }
+    }
+
+    @Test
+    public void testDeleteDetached() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        List<RectNd> rectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num);
+        //删除大部分数据，触发节点的合并和删空
+        int removeNum = num * 4 / 5;
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (int i = 0; i < removeNum; i++) {
+                rtreeEditor.remove(rectNds.get(i));
+            }
+        }
+        //分裂、合并、删空后脱离树的节点都已被删除
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            for (Label label : new Label[]{Labels.RTREE_BRANCH, Labels.RTREE_LEAF}) {
+                tx.findNodes(label).forEachRemaining(node -> Assert.assertTrue(node.hasRelationship(Direction.INCOMING,
+                        Relationships.RTREE_PARENT_TO_CHILD, Relationships.RTREE_METADATA_TO_ROOT)));
+            }
+            long entityNum = tx.findNodes(Labels.RTREE_ENTITY).stream().count();
+            Assert.assertEquals(num - removeNum, entityNum);
+        }
+    }
+
+    @Test
+    public void testRemoveMiddleChild() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        List<RectNd> rectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num);
+        //子节点都是叶子节点且不少于3个的非叶子节点，删空其中间的一个叶子节点，其后的兄弟节点前移
+        Set<String> removedIds = new HashSet<>();
+        List<RectNd> removes = new ArrayList<>();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            tx.findNodes(Labels.RTREE_BRANCH).forEachRemaining(branch -> {
+                List<org.neo4j.graphdb.Node> children = new ArrayList<>();
+                branch.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD).forEach(r -> children.add(r.getEndNode()));
+                if (children.size() < 3 || !children.stream().allMatch(child -> child.hasLabel(Labels.RTREE_LEAF))) {
+                    return;
+                }
+                LeafEntries entries = LeafEntries.read(children.get(1));
+                for (int i = 0; i < entries.size(); i++) {
+                    removes.add(entries.getRectNd(i));
+                    removedIds.add(entries.getDataNodeId(i));
+                }
+            });
+        }
+        Assert.assertFalse(removes.isEmpty());
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (RectNd rectNd : removes) {
+                rtreeEditor.remove(rectNd);
+            }
+        }
+        //前移的兄弟节点及其元素都还在
+        Set<String> expected = new HashSet<>();
+        for (RectNd rectNd : rectNds) {
+            if (!removedIds.contains(rectNd.getDataNodeId())) {
+                expected.add(rectNd.getDataNodeId());
+            }
+        }
+        Set<String> res = new HashSet<>();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(new RectNd(new double[]{-1, -1}, new double[]{2, 2}), tx, nodeId -> {
+                res.add(nodeId);
+                return false;
+            });
+            Assert.assertEquals(expected.size(), tx.findNodes(Labels.RTREE_ENTITY).stream().count());
+        }
+        Assert.assertEquals(expected, res);
+    }
+
+    @Test
+    public void testGc() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        List<RectNd> rectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num);
+        //删除大部分数据，使叶子节点填充率降低
+        int removeNum = num * 4 / 5;
+        int resNum = 0;
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (int i = 0; i < num; i++) {
+                if (i < removeNum) {
+                    rtreeEditor.remove(rectNds.get(i));
+                } else if (bbox.intersects(rectNds.get(i))) {
+                    resNum++;
+                }
+            }
+        }
+        //一个没有挂在树上的叶子节点
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            tx.createNode(Labels.RTREE_LEAF).createRelationshipTo(tx.createNode(Labels.RTREE_ENTITY), Relationships.RTREE_LEAF_TO_ENTITY);
+            tx.commit();
+        }
+
+        try (RtreeGc gc = RtreeGc.get(new GraphDbTxBuilder(neo4jDbManager.getGraphDb()), indexName, Integer.MAX_VALUE, 0.9, 0.5, 500)) {
+            gc.gc();
+            Assert.assertTrue(gc.getRepackedNum() > 0);
+            Assert.assertEquals(2, gc.getOrphanDeletedNum());
+        }
+
+        //结果不变，且没有脱离树的节点
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+            Assert.assertEquals(resNum, RtreeIntersectsSearcher.get(tx, indexName).count(bbox, tx));
+            for (Label label : new Label[]{Labels.RTREE_BRANCH, Labels.RTREE_LEAF}) {
+                tx.findNodes(label).forEachRemaining(node -> Assert.assertTrue(node.hasRelationship(Direction.INCOMING,
+                        Relationships.RTREE_PARENT_TO_CHILD, Relationships.RTREE_METADATA_TO_ROOT)));
+            }
+            Assert.assertEquals(num - removeNum, tx.findNodes(Labels.RTREE_ENTITY).stream().count());
+        }
+        Assert.assertEquals(resNum, myVisitor.num);
+        //重新打包后的树可以继续正常编辑
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (int i = removeNum; i < num; i++) {
+                rtreeEditor.remove(rectNds.get(i));
+            }
+            Assert.assertEquals(0, rtreeEditor.getrTree().getEntryCount());
+        }
+    }
+
+    @Test
+    public void testGcLeafDepth() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        //批量构建的树所有叶子节点深度相同
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8)) {
+            rtreeEditor.bulkLoad(TestIndexes.randomRects(num).iterator());
+        }
+        Set<Integer> depths = leafDepths(indexName);
+        Assert.assertEquals(1, depths.size());
+        //每个叶子节点只保留一个元素，叶子节点不会被删空，深度不变，但填充率很低
+        List<RectNd> remains = new ArrayList<>();
+        List<RectNd> removes = new ArrayList<>();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            tx.findNodes(Labels.RTREE_LEAF).forEachRemaining(leaf -> {
+                LeafEntries entries = LeafEntries.read(leaf);
+                remains.add(entries.getRectNd(0));
+                for (int i = 1; i < entries.size(); i++) {
+                    removes.add(entries.getRectNd(i));
+                }
+            });
+        }
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (RectNd rectNd : removes) {
+                rtreeEditor.remove(rectNd);
+            }
+        }
+        Assert.assertEquals(depths, leafDepths(indexName));
+
+        //重新打包的子树比原子树矮，补齐层数后所有叶子节点深度仍然相同
+        try (RtreeGc gc = RtreeGc.get(new GraphDbTxBuilder(neo4jDbManager.getGraphDb()), indexName, Integer.MAX_VALUE, 0.5, 0.5, 500)) {
+            gc.gc();
+            Assert.assertTrue(gc.getRepackedNum() > 0);
+        }
+        Assert.assertEquals(depths, leafDepths(indexName));
+        long resNum = remains.stream().filter(bbox::intersects).count();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Assert.assertEquals(resNum, RtreeIntersectsSearcher.get(tx, indexName).count(bbox, tx));
+            Assert.assertEquals(remains.size(), tx.findNodes(Labels.RTREE_ENTITY).stream().count());
+        }
+    }
+
+    /**
+     * @return 索引中所有叶子节点的深度，根节点深度为1
+     */
+    private Set<Integer> leafDepths(String indexName) {
+        Set<Integer> depths = new HashSet<>();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            org.neo4j.graphdb.Node metadata = tx.findNode(Labels.METADATA, "name", indexName);
+            List<org.neo4j.graphdb.Node> level = new ArrayList<>();
+            metadata.getRelationships(Direction.OUTGOING, Relationships.RTREE_METADATA_TO_ROOT).forEach(r -> level.add(r.getEndNode()));
+            int depth = 1;
+            while (!level.isEmpty()) {
+                List<org.neo4j.graphdb.Node> lower = new ArrayList<>();
+                for (org.neo4j.graphdb.Node node : level) {
+                    if (node.hasLabel(Labels.RTREE_LEAF)) {
+                        depths.add(depth);
+                    } else {
+                        node.getRelationships(Direction.OUTGOING, Relationships.RTREE_PARENT_TO_CHILD).forEach(r -> lower.add(r.getEndNode()));
+                    }
+                }
+                level.clear();
+                level.addAll(lower);
+                depth++;
+            }
+        }
+        return depths;
+    }
+
+    @Test
+    public void testLegacyLeafFormat() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        PointNd pt = new PointNd(new double[]{0.5, 0.5});
+        List<RectNd> rectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num);
+        //改写为旧版本的叶子节点格式entryMin{i}、entryMax{i}、entryDataId{i}
+        int leafNum;
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            List<org.neo4j.graphdb.Node> leaves = tx.findNodes(Labels.RTREE_LEAF).stream().toList();
+            for (org.neo4j.graphdb.Node leaf : leaves) {
+                LeafEntries entries = LeafEntries.read(leaf);
+                for (int i = 0; i < entries.size(); i++) {
+                    RectNd entry = entries.getRectNd(i);
+                    leaf.setProperty(PropertyNames.entryMin + i, entry.getMinXs());
+                    leaf.setProperty(PropertyNames.entryMax + i, entry.getMaxXs());
+                    leaf.setProperty(PropertyNames.entryDataId + i, entry.getDataNodeId());
+                }
+                leaf.removeProperty(PropertyNames.entryMbrs);
+                leaf.removeProperty(PropertyNames.entryDataIds);
+            }
+            leafNum = leaves.size();
+            tx.commit();
+        }
+        Assert.assertEquals(leafNum, countLegacyLeaves());
+        assertSearchResults(indexName, bbox, pt, rectNds);
+
+        //编辑过的叶子节点转为紧凑格式
+        RectNd removed = rectNds.remove(0);
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            rtreeEditor.remove(removed);
+        }
+        long legacyNum = countLegacyLeaves();
+        Assert.assertTrue(legacyNum < leafNum);
+        assertSearchResults(indexName, bbox, pt, rectNds);
+
+        //迁移剩余的叶子节点
+        Assert.assertEquals(legacyNum, RtreeEditor.migrateLeafFormat(neo4jDbManager.getGraphDb(), 100, indexName));
+        Assert.assertEquals(0, countLegacyLeaves());
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            tx.findNodes(Labels.RTREE_LEAF).forEachRemaining(leaf -> {
+                Assert.assertTrue(leaf.hasProperty(PropertyNames.entryDataIds));
+                Assert.assertFalse(leaf.hasProperty(PropertyNames.entryMax + 0));
+                Assert.assertFalse(leaf.hasProperty(PropertyNames.entryDataId + 0));
+            });
+        }
+        assertSearchResults(indexName, bbox, pt, rectNds);
+    }
+
+    private long countLegacyLeaves() {
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            return tx.findNodes(Labels.RTREE_LEAF).stream().filter(leaf -> leaf.hasProperty(PropertyNames.entryMin + 0)).count();
+        }
+    }
+
+    /**
+     * intersects、kernel intersects、nearest的结果与遍历全部数据的结果一致
+     */
+    private void assertSearchResults(String indexName, RectNd bbox, PointNd pt, List<RectNd> rectNds) {
+        Set<String> expected = new HashSet<>();
+        Map<String, RectNd> rectMap = new HashMap<>();
+        for (RectNd rectNd : rectNds) {
+            rectMap.put(rectNd.getDataNodeId(), rectNd);
+            if (bbox.intersects(rectNd)) {
+                expected.add(rectNd.getDataNodeId());
+            }
+        }
+        List<RectNd> sorted = new ArrayList<>(rectNds);
+        sorted.sort(Comparator.comparingDouble(rectNd -> minDist(rectNd, pt)));
+        int hitNum = 10;
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Set<String> res = new HashSet<>();
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, id -> {
+                res.add(id);
+                return false;
+            });
+            Assert.assertEquals(expected, res);
+
+            Set<String> kernelRes = new HashSet<>();
+            RtreeKernelIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, id -> {
+                kernelRes.add(id);
+                return false;
+            });
+            Assert.assertEquals(expected, kernelRes);
+
+            NearestNeighbour<DistanceResult> nearestNeighbour = new NearestNeighbour<>(hitNum, pt) {
+                @Override
+                public DistanceResult createDistanceResult(PointNd pointNd, String dataNodeId) {
+                    return new DistanceResult(minDist(rectMap.get(dataNodeId), pointNd), dataNodeId);
+                }
+            };
+            RtreeNearestSearcher<DistanceResult> nearestSearcher = RtreeNearestSearcher.get(tx, indexName);
+            List<DistanceResult> nearests = nearestSearcher.nearest(nearestNeighbour, tx);
+            Assert.assertEquals(hitNum, nearests.size());
+            for (int i = 0; i < hitNum; i++) {
+                Assert.assertEquals(sorted.get(i).getDataNodeId(), nearests.get(i).getDataNodeId());
+            }
+        }
+    }
+
+    private static double minDist(RectNd rectNd, PointNd pt) {
+        double res = 0;
+        for (int d = 0; d < pt.getXs().length; d++) {
+            double x = pt.getXs()[d];
+            double dx = Math.max(Math.max(rectNd.getMinXs()[d] - x, 0), x - rectNd.getMaxXs()[d]);
+            res += dx * dx;
+        }
+        return Math.sqrt(res);
+    }
+
+    @Test
+    public void testLegacyEntryCount() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        List<RectNd> rectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num);
+        //模拟旧版本的索引，非叶子节点没有entryCount
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            tx.findNodes(Labels.RTREE_BRANCH).forEachRemaining(node -> node.removeProperty(PropertyNames.entryCount));
+            tx.commit();
+        }
+        //编辑不会补齐未知的元素总数，也不会因此改写整棵树
+        int removeNum = 100;
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (int i = 0; i < removeNum; i++) {
+                rtreeEditor.remove(rectNds.get(i));
+            }
+            Assert.assertEquals(num - removeNum, rtreeEditor.getrTree().getEntryCount());
+        }
+        int resNum = 0;
+        for (int i = removeNum; i < num; i++) {
+            if (bbox.intersects(rectNds.get(i))) {
+                resNum++;
+            }
+        }
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Assert.assertEquals(0, tx.findNodes(Labels.RTREE_BRANCH).stream().filter(node -> node.hasProperty(PropertyNames.entryCount)).count());
+            Assert.assertEquals(resNum, RtreeIntersectsSearcher.get(tx, indexName).count(bbox, tx));
+        }
+
+        //补齐
+        Assert.assertTrue(RtreeEditor.backfillEntryCount(neo4jDbManager.getGraphDb(), 100, indexName) > 0);
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            tx.findNodes(Labels.RTREE_BRANCH).forEachRemaining(node -> Assert.assertTrue(node.hasProperty(PropertyNames.entryCount)));
+            Assert.assertEquals(resNum, RtreeIntersectsSearcher.get(tx, indexName).count(bbox, tx));
+            Assert.assertEquals(resNum, RtreeIntersectsSearcher.get(tx, indexName).estimateCount(bbox, Integer.MAX_VALUE, tx), 0.001);
+        }
+        //补齐后按差值维护
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (int i = removeNum; i < removeNum * 2; i++) {
+                rtreeEditor.remove(rectNds.get(i));
+                if (bbox.intersects(rectNds.get(i))) {
+                    resNum--;
+                }
+            }
+            Assert.assertEquals(num - removeNum * 2, rtreeEditor.getrTree().getEntryCount());
+        }
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Assert.assertEquals(resNum, RtreeIntersectsSearcher.get(tx, indexName).count(bbox, tx));
+        }
+    }
+
+    @Test
+    public void testAsyncEditor() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8).close();
+        Set<String> intersectIds = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try (RtreeAsyncEditor asyncEditor = RtreeAsyncEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName, 1000)) {
+            //多个线程同时写入，每个元素先add，再分别update、remove或保持不变
+            ForkJoinPool.commonPool().submit(() -> IntStream.range(0, num).parallel().forEach(i -> {
+                Random r = new Random(i);
+                double xmin = r.nextDouble();
+                double ymin = r.nextDouble();
+                RectNd rect2d = new RectNd(new double[]{xmin, ymin}, new double[]{xmin + r.nextDouble() * 0.1, ymin + r.nextDouble() * 0.1});
+                rect2d.setDataNodeId(String.valueOf(i));
+                List<CompletableFuture<Void>> fs = new ArrayList<>(2);
+                fs.add(asyncEditor.add(rect2d));
+                RectNd res = rect2d;
+                if (i % 3 == 1) {
+                    res = new RectNd(new double[]{ymin, xmin}, new double[]{ymin + 0.01, xmin + 0.01});
+                    res.setDataNodeId(String.valueOf(i));
+                    fs.add(asyncEditor.update(rect2d, res));
+                } else if (i % 3 == 2) {
+                    res = null;
+                    fs.add(asyncEditor.remove(rect2d));
+                }
+                if (null != res && bbox.intersects(res)) {
+                    intersectIds.add(res.getDataNodeId());
+                }
+                synchronized (futures) {
+                    futures.addAll(fs);
+                }
+            })).join();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+        Set<String> resIds = new HashSet<>();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher searcher = RtreeIntersectsSearcher.get(tx, indexName);
+            searcher.intersects(bbox, tx, nodeId -> {
+                resIds.add(nodeId);
+                return false;
+            });
+        }
+        Assert.assertEquals(intersectIds, resIds);
+    }
+
+    @Test
+    public void testAsyncEditorMerge() {
+        String indexName = "testIndex";
+        RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8).close();
+        //获取和关闭编辑器不产生提交
+        long version = IndexVersion.get(indexName);
+        RtreeAsyncEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName, 1000).close();
+        Assert.assertEquals(version, IndexVersion.get(indexName));
+        //从未写入过的数据先remove后add，add不能丢失
+        RectNd old = new RectNd(new double[]{0.5, 0.5}, new double[]{0.6, 0.6});
+        old.setDataNodeId("2");
+        RectNd rect2 = new RectNd(new double[]{0.3, 0.3}, new double[]{0.4, 0.4});
+        rect2.setDataNodeId("2");
+        try (RtreeAsyncEditor asyncEditor = RtreeAsyncEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName, 1000)) {
+            asyncEditor.remove(old);
+            asyncEditor.add(rect2).join();
+        }
+        Set<String> resIds = new HashSet<>();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(new RectNd(new double[]{0, 0}, new double[]{1, 1}), tx, nodeId -> {
+                resIds.add(nodeId);
+                return false;
+            });
+        }
+        Assert.assertEquals(Set.of("2"), resIds);
+    }
+
+    @Test
+    public void testRStar() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0, 0}, new double[]{0.5, 0.5});
+        //先添加一半，重新打开编辑器后应沿用索引上记录的分裂策略
+        List<RectNd> rectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num / 2, RtreeSplit.RSTAR);
+        rectNds.addAll(TestIndexes.randomRects(num).subList(num / 2, num));
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            Assert.assertEquals(RtreeSplit.RSTAR, rtreeEditor.getTxCell().getSplit());
+            for (int i = num / 2; i < num; i++) {
+                rtreeEditor.add(rectNds.get(i));
+            }
+            //移除一部分
+            for (int i = 0; i < num; i += 3) {
+                rtreeEditor.remove(rectNds.get(i));
+            }
+        }
+        int resNum = 0;
+        for (int i = 0; i < num; i++) {
+            if (i % 3 != 0 && bbox.intersects(rectNds.get(i))) {
+                resNum++;
+            }
+        }
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+        }
+        Assert.assertEquals(resNum, myVisitor.num);
+    }
+
+    @Test
+    public void testReadWhileEditing() throws Exception {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0, 0}, new double[]{1, 1});
+        List<RectNd> rectNds = TestIndexes.randomRects(num);
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 200, indexName, 2, 8)) {
+            RectNd rect2d = new RectNd(new double[]{0.5, 0.5}, new double[]{0.5, 0.5});
+            rect2d.setDataNodeId("-1");
+            rtreeEditor.add(rect2d);
+        }
+        AtomicBoolean editing = new AtomicBoolean(true);
+        Thread editThread = new Thread(() -> {
+            try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 200, indexName)) {
+                for (RectNd rect2d : rectNds) {
+                    rtreeEditor.add(rect2d);
+                }
+            } finally {
+                editing.set(false);
+            }
+        });
+        editThread.start();
+        // 编辑期间查询不被阻塞，且每次都读到某次提交后的完整的树：只增不删，结果数不减少且没有重复
+        int last = 0;
+        int queryNum = 0;
+        while (editing.get()) {
+            Set<String> ids = new HashSet<>();
+            try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+                RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, nodeId -> {
+                    Assert.assertTrue(ids.add(nodeId));
+                    return false;
+                });
+            }
+            Assert.assertTrue(ids.size() >= last);
+            last = ids.size();
+            queryNum++;
+        }
+        editThread.join();
+        Assert.assertTrue(queryNum > 1);
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+        }
+        Assert.assertEquals(num + 1, myVisitor.num);
+    }
+
+    @Test
+    public void testNodeCache() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0, 0}, new double[]{0.5, 0.5});
+        RtreeNodeCache.enable(indexName, 1000);
+        try {
+            List<RectNd> intersectRectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num)
+                    .stream().filter(bbox::intersects).collect(Collectors.toList());
+            int resNum = intersectRectNds.size();
+            // 第二次查询走缓存
+            for (int i = 0; i < 2; i++) {
+                MyVisitor myVisitor = new MyVisitor();
+                try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+                    RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+                }
+                Assert.assertEquals(resNum, myVisitor.num);
+            }
+            // 编辑后缓存失效
+            int removeNum = (int) (resNum * 0.4);
+            resNum -= removeNum;
+            try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+                for (int i = 0; i < removeNum; i++) {
+                    rtreeEditor.remove(intersectRectNds.get(i));
+                }
+            }
+            MyVisitor myVisitor = new MyVisitor();
+            try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+                RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+            }
+            Assert.assertEquals(resNum, myVisitor.num);
+        } finally {
+            RtreeNodeCache.disable(indexName);
+        }
+    }
+
+    @Test
+    public void testMetrics() {
+        int num = 12345;//测试数据量
+        String indexName = "testIndex";
+        RectNd bbox = new RectNd(new double[]{0, 0}, new double[]{0.5, 0.5});
+        List<QueryStats> queries = new ArrayList<>();
+        AtomicInteger commitNum = new AtomicInteger();
+        RtreeMetricsListener listener = new RtreeMetricsListener() {
+            @Override
+            public void onQuery(QueryStats stats) {
+                queries.add(stats);
+            }
+
+            @Override
+            public void onCommit(String indexName, int changeNum, long elapsedNanos) {
+                commitNum.incrementAndGet();
+            }
+        };
+        RtreeMetrics.addListener(listener);
+        try {
+            TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num);
+            Assert.assertTrue(commitNum.get() > 1);
+            MyVisitor myVisitor = new MyVisitor();
+            try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+                RtreeIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+            }
+            Assert.assertEquals(1, queries.size());
+            QueryStats stats = queries.get(0);
+            Assert.assertEquals("intersects", stats.getQueryType());
+            Assert.assertEquals(1, stats.getAttempts());
+            Assert.assertTrue(stats.getBranchRead() > 0);
+            Assert.assertTrue(stats.getEntryRead() >= myVisitor.num);
+        } finally {
+            RtreeMetrics.removeListener(listener);
+        }
+    }
+
     private static final class MyVisitor implements BooleanDataNodeVisitor {
         int num;
 
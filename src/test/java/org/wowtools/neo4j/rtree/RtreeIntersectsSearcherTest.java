@@ -0,0 +1,291 @@
+package org.wowtools.neo4j.rtree;
+
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+import org.wowtools.neo4j.rtree.util.BooleanDataNodeVisitor;
+import org.wowtools.neo4j.rtree.util.IntersectsPage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class RtreeIntersectsSearcherTest {
+
+    private static final int num = 12345;//测试数据量
+    private static final String indexName = "testIndex";
+
+    private Neo4jDbManager neo4jDbManager;
+
+    @Before
+    public void before() {
+        neo4jDbManager = new Neo4jDbManager();
+    }
+
+    @After
+    public void after() {
+        neo4jDbManager.afterTest();
+    }
+
+    @Test
+    public void testKernelIntersects() {
+        RectNd bbox = new RectNd(new double[]{0, 0}, new double[]{0.5, 0.5});
+        long resNum = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num)
+                .stream().filter(bbox::intersects).count();
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeKernelIntersectsSearcher.get(tx, indexName).intersects(bbox, tx, myVisitor);
+        }
+        Assert.assertEquals(resNum, myVisitor.num);
+    }
+
+    @Test
+    public void testParallelIntersects() {
+        RectNd bbox = new RectNd(new double[]{0, 0}, new double[]{0.5, 0.5});
+        long resNum = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num)
+                .stream().filter(bbox::intersects).count();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        RtreeIntersectsSearcher searcher;
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            searcher = RtreeIntersectsSearcher.get(tx, indexName);
+        }
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        searcher.parallelIntersects(bbox, neo4jDbManager.getGraphDb(), pool, nodeId -> {
+            Assert.assertTrue(ids.add(nodeId));
+            return false;
+        });
+        Assert.assertEquals(resNum, ids.size());
+        // 访问器返回true后取消其它任务
+        AtomicInteger visitNum = new AtomicInteger();
+        searcher.parallelIntersects(bbox, neo4jDbManager.getGraphDb(), pool, nodeId -> visitNum.incrementAndGet() == 10);
+        Assert.assertTrue(visitNum.get() < resNum);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testContainsWithin() {
+        RectNd bbox = new RectNd(new double[]{0.2, 0.2}, new double[]{0.5, 0.5});
+        RectNd smallBbox = new RectNd(new double[]{0.3, 0.3}, new double[]{0.31, 0.31});
+        int withinNum = 0;
+        int containsNum = 0;
+        for (RectNd rect2d : TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num)) {
+            if (bbox.contains(rect2d)) {
+                withinNum++;
+            }
+            if (rect2d.contains(smallBbox)) {
+                containsNum++;
+            }
+        }
+        MyVisitor withinVisitor = new MyVisitor();
+        MyVisitor containsVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher searcher = RtreeIntersectsSearcher.get(tx, indexName);
+            searcher.within(bbox, tx, withinVisitor);
+            searcher.contains(smallBbox, tx, containsVisitor);
+        }
+        Assert.assertEquals(withinNum, withinVisitor.num);
+        Assert.assertEquals(containsNum, containsVisitor.num);
+    }
+
+    @Test
+    public void testIntersectsJoin() {
+        int numA = 2345, numB = 1234;//测试数据量
+        Random r = new Random(233);
+        RectNd[] rectsA = new RectNd[numA];
+        RectNd[] rectsB = new RectNd[numB];
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, "indexA", 2, 8)) {
+            for (int i = 0; i < numA; i++) {
+                double xmin = r.nextDouble();
+                double ymin = r.nextDouble();
+                rectsA[i] = new RectNd(new double[]{xmin, ymin}, new double[]{xmin + r.nextDouble() * 0.02, ymin + r.nextDouble() * 0.02});
+                rectsA[i].setDataNodeId("a" + i);
+                rtreeEditor.add(rectsA[i]);
+            }
+        }
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, "indexB", 2, 16)) {
+            for (int i = 0; i < numB; i++) {
+                double xmin = r.nextDouble();
+                double ymin = r.nextDouble();
+                rectsB[i] = new RectNd(new double[]{xmin, ymin}, new double[]{xmin + r.nextDouble() * 0.05, ymin + r.nextDouble() * 0.05});
+                rectsB[i].setDataNodeId("b" + i);
+                rtreeEditor.add(rectsB[i]);
+            }
+        }
+        Set<String> expected = new HashSet<>();
+        for (RectNd a : rectsA) {
+            for (RectNd b : rectsB) {
+                if (a.intersects(b)) {
+                    expected.add(a.getDataNodeId() + "," + b.getDataNodeId());
+                }
+            }
+        }
+        Set<String> res = new HashSet<>();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsJoinSearcher.get(tx, "indexA", "indexB").join(tx, (a, b) -> {
+                Assert.assertTrue(res.add(a + "," + b));
+                return false;
+            });
+        }
+        Assert.assertEquals(expected, res);
+    }
+
+    @Test
+    public void testBatchIntersects() {
+        TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num);
+        //4*4个相邻的瓦片
+        List<RectNd> bboxes = new ArrayList<>();
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                bboxes.add(new RectNd(new double[]{0.1 * x, 0.1 * y}, new double[]{0.1 * x + 0.1, 0.1 * y + 0.1}));
+            }
+        }
+        int[] batchNums = new int[bboxes.size()];
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher searcher = RtreeIntersectsSearcher.get(tx, indexName);
+            searcher.intersects(bboxes, tx, (queryIndex, nodeId) -> {
+                batchNums[queryIndex]++;
+                return false;
+            });
+            for (int i = 0; i < bboxes.size(); i++) {
+                MyVisitor myVisitor = new MyVisitor();
+                searcher.intersects(bboxes.get(i), tx, myVisitor);
+                Assert.assertEquals(myVisitor.num, batchNums[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testCount() {
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        List<RectNd> intersectRectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num)
+                .stream().filter(bbox::intersects).collect(Collectors.toList());
+        int removeNum = intersectRectNds.size() / 3;
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            for (int i = 0; i < removeNum; i++) {
+                rtreeEditor.remove(intersectRectNds.get(i));
+            }
+            Assert.assertEquals(num - removeNum, rtreeEditor.getrTree().getEntryCount());
+        }
+        int resNum = intersectRectNds.size() - removeNum;
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher searcher = RtreeIntersectsSearcher.get(tx, indexName);
+            Assert.assertEquals(resNum, searcher.count(bbox, tx));
+            //展开到叶子节点时估算值即精确值
+            Assert.assertEquals(resNum, searcher.estimateCount(bbox, Integer.MAX_VALUE, tx), 0.001);
+            double estimate = searcher.estimateCount(bbox, 2, tx);
+            System.out.println("count " + resNum + " estimate " + estimate);
+            Assert.assertTrue(Math.abs(estimate - resNum) < resNum * 0.3);
+        }
+    }
+
+    @Test
+    public void testIntersectsIterator() {
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        Set<String> expected = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num)
+                .stream().filter(bbox::intersects).map(RectNd::getDataNodeId).collect(Collectors.toSet());
+        Set<String> res = new HashSet<>();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Iterator<String> iterator = RtreeIntersectsSearcher.get(tx, indexName).intersectsIterator(bbox, tx);
+            for (int i = 0; i < 300; i++) {
+                Assert.assertTrue(res.add(iterator.next()));
+            }
+            //迭代期间索引被修改，从上一个结果的位置继续，未修改的数据不重复不遗漏
+            try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+                RectNd rect2d = new RectNd(new double[]{0.55, 0.3}, new double[]{0.56, 0.31});
+                rect2d.setDataNodeId(String.valueOf(num));
+                rtreeEditor.add(rect2d);
+            }
+            expected.add(String.valueOf(num));
+            while (iterator.hasNext()) {
+                Assert.assertTrue(res.add(iterator.next()));
+            }
+        }
+        Assert.assertEquals(expected, res);
+    }
+
+    @Test
+    public void testIntersectsPage() {
+        RectNd bbox = new RectNd(new double[]{0.1, 0.2}, new double[]{0.6, 0.5});
+        Set<String> expected = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num)
+                .stream().filter(bbox::intersects).map(RectNd::getDataNodeId).collect(Collectors.toSet());
+        //每页在新的事务中读取
+        Set<String> res = new HashSet<>();
+        String cursor = null;
+        int pageNum = 0;
+        do {
+            try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+                IntersectsPage page = RtreeIntersectsSearcher.get(tx, indexName).intersectsPage(bbox, cursor, 100, tx);
+                Assert.assertTrue(page.getDataNodeIds().size() <= 100);
+                for (String id : page.getDataNodeIds()) {
+                    Assert.assertTrue(res.add(id));
+                }
+                cursor = page.getCursor();
+            }
+            pageNum++;
+        } while (null != cursor);
+        Assert.assertEquals(expected, res);
+        Assert.assertTrue(pageNum > 1);
+
+        //索引被修改后游标仍然有效，未修改的数据不重复不遗漏，位置在游标之后新增的数据也能读到
+        res.clear();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            IntersectsPage page = RtreeIntersectsSearcher.get(tx, indexName).intersectsPage(bbox, null, 100, tx);
+            res.addAll(page.getDataNodeIds());
+            cursor = page.getCursor();
+        }
+        try (RtreeEditor rtreeEditor = RtreeEditor.get(neo4jDbManager.getGraphDb(), 2000, indexName)) {
+            RectNd rect2d = new RectNd(new double[]{0.3, 0.3}, new double[]{0.31, 0.31});
+            rect2d.setDataNodeId(String.valueOf(num));
+            rtreeEditor.add(rect2d);
+        }
+        expected.add(String.valueOf(num));
+        while (null != cursor) {
+            try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+                IntersectsPage page = RtreeIntersectsSearcher.get(tx, indexName).intersectsPage(bbox, cursor, 100, tx);
+                for (String id : page.getDataNodeIds()) {
+                    Assert.assertTrue(res.add(id));
+                }
+                cursor = page.getCursor();
+            }
+        }
+        Assert.assertEquals(expected, res);
+        //游标不能用于其它索引
+        String indexName2 = "testIndex2";
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName2, 2, 8)) {
+            RectNd rect2d = new RectNd(new double[]{0.3, 0.3}, new double[]{0.31, 0.31});
+            rect2d.setDataNodeId(String.valueOf(num));
+            rtreeEditor.add(rect2d);
+        }
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            cursor = RtreeIntersectsSearcher.get(tx, indexName).intersectsPage(bbox, null, 100, tx).getCursor();
+        }
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeIntersectsSearcher.get(tx, indexName2).intersectsPage(bbox, cursor, 100, tx);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private static final class MyVisitor implements BooleanDataNodeVisitor {
+        int num;
+
+        @Override
+        public boolean visit(String nodeId) {
+            num++;
+            return false;
+        }
+    }
+
+}
@@ -5,7 +5,11 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.internal.define.Labels;
+import org.wowtools.neo4j.rtree.internal.define.Relationships;
 import org.wowtools.neo4j.rtree.util.DistanceResult;
 import org.wowtools.neo4j.rtree.pojo.PointNd;
 import org.wowtools.neo4j.rtree.pojo.RectNd;
@@ -13,8 +17,10 @@ import org.wowtools.neo4j.rtree.util.NearestNeighbour;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RtreeNearestSearcherTest {
 
@@ -57,11 +63,13 @@ public class RtreeNearestSearcherTest {
         System.out.println("search");
         PointNd pt = new PointNd(new double[]{x, y});
         List<DistanceResult> nearests;
+        AtomicInteger createNum = new AtomicInteger();
         try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
             RtreeNearestSearcher searcher = RtreeNearestSearcher.get(tx, indexName);
             NearestNeighbour nearestNeighbour = new NearestNeighbour(hitNum, pt) {
                 @Override
                 public DistanceResult createDistanceResult(PointNd pointNd, String dataNodeId) {
+                    createNum.incrementAndGet();
                     RectNd rectNd = rectNds[Integer.valueOf(dataNodeId)];
                     double dist = dist(rectNd);
                     return new DistanceResult(dist, dataNodeId);
@@ -72,6 +80,94 @@ public class RtreeNearestSearcherTest {
         for (int i = 0; i < hitNum; i++) {
             Assert.assertEquals(distNds[i].getDataNodeId(), nearests.get(i).getDataNodeId());
         }
+        //元素先按叶子节点上存储的bbox排序，只有到达队首的元素才会计算距离
+        Assert.assertTrue(createNum.get() <= hitNum * 2);
+    }
+
+    @Test
+    public void testIterator() {
+        RectNd[] rectNds = new RectNd[num];
+        for (int i = 0; i < rectNds.length; i++) {
+            double x1 = r.nextDouble();
+            double y1 = r.nextDouble();
+            RectNd rect2d = new RectNd(new PointNd(new double[]{x1, y1}), new PointNd(new double[]{x1, y1}));
+            rect2d.setDataNodeId(String.valueOf(i));
+            rectNds[i] = rect2d;
+        }
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8)) {
+            for (int i = 0; i < num; i++) {
+                rtreeEditor.add(rectNds[i]);
+            }
+        }
+        RectNd[] distNds = rectNds.clone();
+        Arrays.sort(distNds, Comparator.comparingDouble(RtreeNearestSearcherTest::dist));
+        PointNd pt = new PointNd(new double[]{x, y});
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeNearestSearcher<DistanceResult> searcher = RtreeNearestSearcher.get(tx, indexName);
+            NearestNeighbour<DistanceResult> nearestNeighbour = new NearestNeighbour<>(pt) {
+                @Override
+                public DistanceResult createDistanceResult(PointNd pointNd, String dataNodeId) {
+                    return new DistanceResult(dist(rectNds[Integer.valueOf(dataNodeId)]), dataNodeId);
+                }
+            };
+            //逐个取出，与全排序结果一致
+            Iterator<DistanceResult> iterator = searcher.nearestIterator(nearestNeighbour, tx);
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(distNds[i].getDataNodeId(), iterator.next().getDataNodeId());
+            }
+            //满足条件的最近的一个
+            int expected = -1;
+            for (RectNd distNd : distNds) {
+                if (Integer.parseInt(distNd.getDataNodeId()) % 1000 == 7) {
+                    expected = Integer.parseInt(distNd.getDataNodeId());
+                    break;
+                }
+            }
+            DistanceResult first = searcher.nearestStream(nearestNeighbour, tx)
+                    .filter(dr -> Integer.parseInt(dr.getDataNodeId()) % 1000 == 7)
+                    .findFirst().get();
+            Assert.assertEquals(String.valueOf(expected), first.getDataNodeId());
+            //不限制条数时可以取出全部
+            Assert.assertEquals(num, searcher.nearestStream(nearestNeighbour, tx).count());
+        }
+    }
+
+    @Test
+    public void testFindRootAndZeroHits() {
+        List<RectNd> rectNds = TestIndexes.buildRandomIndex(neo4jDbManager.getGraphDb(), indexName, num);
+        PointNd pt = new PointNd(new double[]{x, y});
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            RtreeNearestSearcher<DistanceResult> searcher = RtreeNearestSearcher.get(tx, indexName);
+            NearestNeighbour<DistanceResult> nearestNeighbour = new NearestNeighbour<>(hitNum, pt) {
+                @Override
+                public DistanceResult createDistanceResult(PointNd pointNd, String dataNodeId) {
+                    return new DistanceResult(dist(rectNds.get(Integer.parseInt(dataNodeId))), dataNodeId);
+                }
+            };
+            //从根节点查询与nearest结果相同
+            Node root = tx.findNode(Labels.METADATA, "name", indexName)
+                    .getSingleRelationship(Relationships.RTREE_METADATA_TO_ROOT, Direction.OUTGOING).getEndNode();
+            List<DistanceResult> expected = searcher.nearest(nearestNeighbour, tx);
+            List<DistanceResult> actual = nearestNeighbour.find(root);
+            Assert.assertEquals(hitNum, actual.size());
+            for (int i = 0; i < hitNum; i++) {
+                Assert.assertEquals(expected.get(i).getDataNodeId(), actual.get(i).getDataNodeId());
+            }
+            //maxHits为0时返回空结果
+            NearestNeighbour<DistanceResult> zeroHits = new NearestNeighbour<>(0, pt) {
+                @Override
+                public DistanceResult createDistanceResult(PointNd pointNd, String dataNodeId) {
+                    return new DistanceResult(0, dataNodeId);
+                }
+
+                @Override
+                public boolean isDistanceBoundedByMbr() {
+                    return true;
+                }
+            };
+            Assert.assertTrue(searcher.nearest(zeroHits, tx).isEmpty());
+            Assert.assertFalse(searcher.nearestIterator(zeroHits, tx).hasNext());
+        }
     }
 
     private static final double dist(RectNd rect2d) {
@@ -0,0 +1,67 @@
+package org.wowtools.neo4j.rtree;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.wowtools.neo4j.rtree.pojo.RectNd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 测试用的随机数据与索引
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class TestIndexes {
+
+    /**
+     * 生成num个[0,1.1]范围内的随机矩形，dataNodeId依次为0~num-1，相同的num每次生成的结果相同
+     *
+     * @param num 数量
+     * @return 随机矩形
+     */
+    public static List<RectNd> randomRects(int num) {
+        Random r = new Random(233);
+        List<RectNd> rectNds = new ArrayList<>(num);
+        for (int i = 0; i < num; i++) {
+            double xmin = r.nextDouble();
+            double ymin = r.nextDouble();
+            RectNd rect2d = new RectNd(new double[]{xmin, ymin}, new double[]{xmin + r.nextDouble() * 0.1, ymin + r.nextDouble() * 0.1});
+            rect2d.setDataNodeId(String.valueOf(i));
+            rectNds.add(rect2d);
+        }
+        return rectNds;
+    }
+
+    /**
+     * 新建一个二维索引并逐条添加randomRects(num)
+     *
+     * @param graphDb   db
+     * @param indexName 索引名
+     * @param num       数量
+     * @return 添加的矩形
+     */
+    public static List<RectNd> buildRandomIndex(GraphDatabaseService graphDb, String indexName, int num) {
+        return buildRandomIndex(graphDb, indexName, num, RtreeSplit.AXIAL);
+    }
+
+    /**
+     * 新建一个二维索引并逐条添加randomRects(num)
+     *
+     * @param graphDb   db
+     * @param indexName 索引名
+     * @param num       数量
+     * @param split     节点分裂策略
+     * @return 添加的矩形
+     */
+    public static List<RectNd> buildRandomIndex(GraphDatabaseService graphDb, String indexName, int num, RtreeSplit split) {
+        List<RectNd> rectNds = randomRects(num);
+        try (RtreeEditor rtreeEditor = RtreeEditor.create(graphDb, 2000, indexName, 2, 8, split)) {
+            for (RectNd rectNd : rectNds) {
+                rtreeEditor.add(rectNd);
+            }
+        }
+        return rectNds;
+    }
+}
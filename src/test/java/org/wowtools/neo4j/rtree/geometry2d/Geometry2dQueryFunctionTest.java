@@ -87,6 +87,21 @@ public class Geometry2dQueryFunctionTest {
         }
         System.out.println("geoIntersects end----------------------------------------");
 
+        try (Transaction tx = session.beginTransaction()) {
+            Result result = tx.run("return nr.g2d.withinDistance($indexName,$wkt,$distance,$propertyNames)", Map.of(
+                    "indexName", indexName,
+                    "wkt", "LINESTRING (100 20, 110 25)",
+                    "distance", 0.5,
+                    "propertyNames", List.of("name")
+            ));
+            byte[] bytes = result.single().get(0).asByteArray();
+            FeatureCollection featureCollection = ProtoFeatureConverter.proto2featureCollection(bytes, Constant.geometryFactory);
+            for (Feature feature : featureCollection.getFeatures()) {
+                System.out.println(feature.getProperties().get("name") + "\t" + feature.getGeometry());
+            }
+        }
+        System.out.println("withinDistance end----------------------------------------");
+
         try (Transaction tx = session.beginTransaction()) {
             Result result = tx.run("return nr.g2d.nearest($indexName,$x,$y,$n,$propertyNames)", Map.of(
                     "indexName", indexName,
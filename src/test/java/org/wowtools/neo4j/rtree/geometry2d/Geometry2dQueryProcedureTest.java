@@ -0,0 +1,82 @@
+package org.wowtools.neo4j.rtree.geometry2d;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.wowtools.neo4j.rtree.Neo4jDbManager;
+import org.wowtools.neo4j.rtree.internal.edit.TxCell;
+import org.wowtools.neo4j.rtree.util.CustomProceduresRegister;
+
+import java.util.Map;
+import java.util.Random;
+
+public class Geometry2dQueryProcedureTest {
+    private Neo4jDbManager neo4jDbManager;
+
+    @Before
+    public void before() {
+        neo4jDbManager = new Neo4jDbManager();
+        CustomProceduresRegister.registerProcedures(neo4jDbManager.getGraphDb(), Geometry2dQueryProcedure.class);
+    }
+
+    @After
+    public void after() {
+        neo4jDbManager.afterTest();
+    }
+
+    @Test
+    public void test() throws Exception {
+        String wkt = "POLYGON ((0.20 0.40, 0.30 0.90, 0.57 0.75, 0.55 0.55, 0.20 0.40))";
+        Geometry inputGeometry = new WKTReader().read(wkt);
+        int num = 1234;
+        String indexName = "testIndex";
+        String geometryName = "geo";
+        int resNum = 0;//手算出来的相交数
+        Random r = new Random(233);
+        GeometryFactory geometryFactory = new GeometryFactory();
+        WKBWriter wkbWriter = new WKBWriter();
+        try (Geometry2dRtreeEditor rtreeEditor = Geometry2dRtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8, geometryName)) {
+            TxCell txCell = rtreeEditor.getTxCell();
+            for (int i = 0; i < num; i++) {
+                Geometry geometry = geometryFactory.createPoint(new Coordinate(r.nextDouble(), r.nextDouble()));
+                geometry = geometry.buffer(r.nextDouble() * 0.1);
+                Node dataNode = txCell.getTx().createNode();
+                dataNode.setProperty(geometryName, wkbWriter.write(geometry));
+                if (inputGeometry.intersects(geometry)) {
+                    resNum++;
+                }
+                rtreeEditor.add(dataNode.getElementId());
+            }
+        }
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Result result = tx.execute("CALL nr.g2d.stream.geoIntersects($indexName, $wkt) YIELD node RETURN count(node) AS n",
+                    Map.of("indexName", indexName, "wkt", wkt));
+            Assert.assertEquals(resNum, ((Number) result.next().get("n")).intValue());
+
+            result = tx.execute("CALL nr.g2d.stream.geoIntersects($indexName, $wkt, 10) YIELD node RETURN count(node) AS n",
+                    Map.of("indexName", indexName, "wkt", wkt));
+            Assert.assertEquals(Math.min(10, resNum), ((Number) result.next().get("n")).intValue());
+
+            result = tx.execute("CALL nr.g2d.stream.nearest($indexName, 0.5, 0.5, 5) YIELD node, distance RETURN node, distance",
+                    Map.of("indexName", indexName));
+            int n = 0;
+            double lastDistance = -1;
+            while (result.hasNext()) {
+                double distance = (Double) result.next().get("distance");
+                Assert.assertTrue(distance >= lastDistance);
+                lastDistance = distance;
+                n++;
+            }
+            Assert.assertEquals(5, n);
+        }
+    }
+}
@@ -11,12 +11,16 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.io.WKBWriter;
 import org.locationtech.jts.io.WKTReader;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.wowtools.neo4j.rtree.Neo4jDbManager;
 import org.wowtools.neo4j.rtree.internal.edit.TxCell;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 public class Geometry2dRtreeEditorTest {
@@ -135,6 +139,171 @@ public class Geometry2dRtreeEditorTest {
     }
 
 
+    @Test
+    public void testWithinDistance() throws Exception {
+        Geometry inputGeometry = new WKTReader().read("LINESTRING (0.20 0.40, 0.30 0.90, 0.57 0.75)");
+        double distance = 0.05;
+        String indexName = "testIndex";
+        List<Geometry> geometries = TestGeometries.randomCircles(1234, 0.01);
+        TestGeometries.buildIndex(neo4jDbManager.getGraphDb(), indexName, geometries);
+        int resNum = 0;//手算出来的结果数
+        for (Geometry geometry : geometries) {
+            if (inputGeometry.isWithinDistance(geometry, distance)) {
+                resNum++;
+            }
+        }
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Geometry2dRtreeIntersectsSearcher searcher = Geometry2dRtreeIntersectsSearcher.get(tx, indexName);
+            searcher.withinDistance(inputGeometry, distance, tx, myVisitor);
+        }
+        System.out.println("withinDistance " + myVisitor.num);
+        Assert.assertTrue(resNum > 0);
+        Assert.assertEquals(resNum, myVisitor.num);
+    }
+
+    @Test
+    public void testIntersectsPoints() throws Exception {
+        Geometry inputGeometry = new WKTReader().read("MULTIPOLYGON (((0.20 0.40, 0.30 0.90, 0.57 0.75, 0.55 0.55, 0.20 0.40)), ((0.6 0.1, 0.9 0.1, 0.9 0.3, 0.6 0.1)))");
+        String indexName = "testIndex";
+        //每3个中有1个面，其余为点
+        List<Geometry> geometries = TestGeometries.randomGeometries(233, 1234,
+                (i, center, r) -> i % 3 == 0 ? center.buffer(r.nextDouble() * 0.05) : center);
+        TestGeometries.buildIndex(neo4jDbManager.getGraphDb(), indexName, geometries);
+        int resNum = 0;//手算出来的相交数
+        for (Geometry geometry : geometries) {
+            if (inputGeometry.intersects(geometry)) {
+                resNum++;
+            }
+        }
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Geometry2dRtreeIntersectsSearcher searcher = Geometry2dRtreeIntersectsSearcher.get(tx, indexName);
+            searcher.intersects(inputGeometry, tx, myVisitor);
+        }
+        Assert.assertEquals(resNum, myVisitor.num);
+    }
+
+    @Test
+    public void testContainsWithin() throws Exception {
+        Geometry inputGeometry = new WKTReader().read("POLYGON ((0.20 0.40, 0.30 0.90, 0.57 0.75, 0.55 0.55, 0.20 0.40))");
+        Geometry inputPoint = new WKTReader().read("POINT (0.4 0.6)");
+        String indexName = "testIndex";
+        List<Geometry> geometries = TestGeometries.randomCircles(1234, 0.1);
+        TestGeometries.buildIndex(neo4jDbManager.getGraphDb(), indexName, geometries);
+        int withinNum = 0, containsNum = 0, coversNum = 0;//手算出来的结果数
+        for (Geometry geometry : geometries) {
+            if (geometry.within(inputGeometry)) {
+                withinNum++;
+            }
+            if (geometry.contains(inputPoint)) {
+                containsNum++;
+            }
+            if (geometry.covers(inputPoint)) {
+                coversNum++;
+            }
+        }
+        MyVisitor withinVisitor = new MyVisitor();
+        MyVisitor containsVisitor = new MyVisitor();
+        MyVisitor coversVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Geometry2dRtreeIntersectsSearcher searcher = Geometry2dRtreeIntersectsSearcher.get(tx, indexName);
+            searcher.within(inputGeometry, tx, withinVisitor);
+            searcher.contains(inputPoint, tx, containsVisitor);
+            searcher.covers(inputPoint, tx, coversVisitor);
+        }
+        Assert.assertEquals(withinNum, withinVisitor.num);
+        Assert.assertEquals(containsNum, containsVisitor.num);
+        Assert.assertEquals(coversNum, coversVisitor.num);
+    }
+
+    @Test
+    public void testIntersectsJoin() throws Exception {
+        List<Geometry> geometriesA = TestGeometries.randomCircles(233, 1234, 0.02);
+        List<Geometry> geometriesB = TestGeometries.randomCircles(234, 1234, 0.02);
+        TestGeometries.buildIndex(neo4jDbManager.getGraphDb(), "indexA", geometriesA);
+        TestGeometries.buildIndex(neo4jDbManager.getGraphDb(), "indexB", geometriesB);
+        int resNum = 0;//手算出来的相交对数
+        for (Geometry a : geometriesA) {
+            for (Geometry b : geometriesB) {
+                if (a.intersects(b)) {
+                    resNum++;
+                }
+            }
+        }
+        int[] joinNum = new int[1];
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Geometry2dRtreeIntersectsJoinSearcher.get(tx, "indexA", "indexB").join(tx, (nodeIdA, geometryA, nodeIdB, geometryB) -> {
+                joinNum[0]++;
+                return false;
+            });
+        }
+        Assert.assertTrue(resNum > 0);
+        Assert.assertEquals(resNum, joinNum[0]);
+    }
+
+    @Test
+    public void testMaintainer() throws Exception {
+        Geometry inputGeometry = new WKTReader().read("POLYGON ((0.20 0.40, 0.30 0.90, 0.57 0.75, 0.55 0.55, 0.20 0.40))");
+        int num = 1234;
+        String indexName = "testIndex";
+        String geometryName = TestGeometries.geometryName;
+        Label label = Label.label("Poi");
+        //前num个用于新增，后100个用于修改
+        List<Geometry> randomGeometries = TestGeometries.randomCircles(num + 100, 0.1);
+        Geometry2dRtreeEditor.create(neo4jDbManager.getGraphDb(), 2000, indexName, 2, 8, geometryName).close();
+        Map<String, Geometry> geometries = new HashMap<>();
+        try (Geometry2dRtreeMaintainer maintainer = Geometry2dRtreeMaintainer.register(neo4jDbManager.getServer().getDatabaseManagementService(),
+                "neo4j", label, geometryName, indexName, 2000, 100)) {
+            //多个小事务新增
+            List<String> ids = new ArrayList<>(num);
+            for (int i = 0; i < num; i += 100) {
+                try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+                    for (int j = i; j < Math.min(i + 100, num); j++) {
+                        Geometry geometry = randomGeometries.get(j);
+                        Node dataNode = tx.createNode(label);
+                        dataNode.setProperty(geometryName, TestGeometries.wkb(geometry));
+                        ids.add(dataNode.getElementId());
+                        geometries.put(dataNode.getElementId(), geometry);
+                    }
+                    tx.commit();
+                }
+            }
+            //修改、删除、移除标签
+            try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+                for (int i = 0; i < 300; i++) {
+                    String id = ids.get(i);
+                    Node dataNode = tx.getNodeByElementId(id);
+                    if (i < 100) {
+                        Geometry geometry = randomGeometries.get(num + i);
+                        dataNode.setProperty(geometryName, TestGeometries.wkb(geometry));
+                        geometries.put(id, geometry);
+                    } else if (i < 200) {
+                        dataNode.delete();
+                        geometries.remove(id);
+                    } else {
+                        dataNode.removeLabel(label);
+                        geometries.remove(id);
+                    }
+                }
+                tx.commit();
+            }
+            maintainer.flush();
+        }
+        int resNum = 0;//手算出来的相交数
+        for (Geometry geometry : geometries.values()) {
+            if (inputGeometry.intersects(geometry)) {
+                resNum++;
+            }
+        }
+        MyVisitor myVisitor = new MyVisitor();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Geometry2dRtreeIntersectsSearcher searcher = Geometry2dRtreeIntersectsSearcher.get(tx, indexName);
+            searcher.intersects(inputGeometry, tx, myVisitor);
+        }
+        Assert.assertEquals(resNum, myVisitor.num);
+    }
+
     private static final class MyVisitor implements BooleanGeometryDataNodeVisitor {
         int num;
 
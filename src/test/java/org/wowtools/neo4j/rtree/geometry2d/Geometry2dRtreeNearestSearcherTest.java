@@ -14,6 +14,7 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.wowtools.neo4j.rtree.Neo4jDbManager;
 import org.wowtools.neo4j.rtree.internal.edit.TxCell;
+import org.wowtools.neo4j.rtree.metrics.RtreeMetrics;
 
 import java.util.*;
 
@@ -71,6 +72,19 @@ public class Geometry2dRtreeNearestSearcherTest {
         for (int i = 0; i < hitNum; i++) {
             Assert.assertEquals(dataNodeCells[i].dataNodeId, distanceResults.get(i).getDataNodeId());
         }
+
+        //限制最大距离，且只解析少量geometry
+        double maxDistance = dataNodeCells[4].geometry.distance(point);
+        long parsed = RtreeMetrics.getGeometryParsed();
+        try (Transaction tx = neo4jDbManager.getGraphDb().beginTx()) {
+            Geometry2dRtreeNearestSearcher geometry2dRtreeNearestSearcher = Geometry2dRtreeNearestSearcher.get(tx, indexName);
+            distanceResults = geometry2dRtreeNearestSearcher.nearest(null, hitNum, maxDistance, x, y, tx);
+        }
+        Assert.assertTrue(RtreeMetrics.getGeometryParsed() - parsed < hitNum * 2);
+        Assert.assertEquals(5, distanceResults.size());
+        for (int i = 0; i < distanceResults.size(); i++) {
+            Assert.assertEquals(dataNodeCells[i].dataNodeId, distanceResults.get(i).getDataNodeId());
+        }
     }
 
     private static final class DataNodeCell {
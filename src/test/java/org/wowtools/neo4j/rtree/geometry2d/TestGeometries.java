@@ -0,0 +1,111 @@
+package org.wowtools.neo4j.rtree.geometry2d;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.WKBWriter;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * geometry2d测试用的随机数据与索引
+ *
+ * @author liuyu
+ * @date 2026/10/17
+ */
+public class TestGeometries {
+
+    /**
+     * 数据节点上存放geometry的属性名
+     */
+    public static final String geometryName = "geo";
+
+    /**
+     * 由随机点生成geometry
+     */
+    public interface Shape {
+        /**
+         * @param i      序号
+         * @param center [0,1]范围内的随机点
+         * @param r      随机数，生成半径等
+         * @return geometry
+         */
+        Geometry create(int i, Point center, Random r);
+    }
+
+    /**
+     * 生成num个随机geometry，相同的seed、num与shape每次生成的结果相同
+     *
+     * @param seed  随机种子
+     * @param num   数量
+     * @param shape 由随机点生成geometry
+     * @return 随机geometry
+     */
+    public static List<Geometry> randomGeometries(long seed, int num, Shape shape) {
+        Random r = new Random(seed);
+        GeometryFactory geometryFactory = new GeometryFactory();
+        List<Geometry> geometries = new ArrayList<>(num);
+        for (int i = 0; i < num; i++) {
+            Point center = geometryFactory.createPoint(new Coordinate(r.nextDouble(), r.nextDouble()));
+            geometries.add(shape.create(i, center, r));
+        }
+        return geometries;
+    }
+
+    /**
+     * 以233为种子生成num个随机圆(点的缓冲区)
+     *
+     * @param num       数量
+     * @param maxRadius 最大半径
+     * @return 随机geometry
+     */
+    public static List<Geometry> randomCircles(int num, double maxRadius) {
+        return randomCircles(233, num, maxRadius);
+    }
+
+    /**
+     * 生成num个随机圆(点的缓冲区)
+     *
+     * @param seed      随机种子
+     * @param num       数量
+     * @param maxRadius 最大半径
+     * @return 随机geometry
+     */
+    public static List<Geometry> randomCircles(long seed, int num, double maxRadius) {
+        return randomGeometries(seed, num, (i, center, r) -> center.buffer(r.nextDouble() * maxRadius));
+    }
+
+    /**
+     * @param geometry geometry
+     * @return wkb
+     */
+    public static byte[] wkb(Geometry geometry) {
+        return new WKBWriter().write(geometry);
+    }
+
+    /**
+     * 新建一个二维索引，为每个geometry新建数据节点并逐条添加到索引
+     *
+     * @param graphDb    db
+     * @param indexName  索引名
+     * @param geometries geometry
+     * @return 数据节点id，与geometries一一对应
+     */
+    public static List<String> buildIndex(GraphDatabaseService graphDb, String indexName, List<Geometry> geometries) {
+        List<String> dataNodeIds = new ArrayList<>(geometries.size());
+        try (Geometry2dRtreeEditor rtreeEditor = Geometry2dRtreeEditor.create(graphDb, 2000, indexName, 2, 8, geometryName)) {
+            for (Geometry geometry : geometries) {
+                Node dataNode = rtreeEditor.getTxCell().getTx().createNode();
+                dataNode.setProperty(geometryName, wkb(geometry));
+                rtreeEditor.add(dataNode.getElementId());
+                dataNodeIds.add(dataNode.getElementId());
+            }
+        }
+        return dataNodeIds;
+    }
+}